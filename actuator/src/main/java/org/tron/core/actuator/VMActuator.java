@@ -502,6 +502,7 @@ public class VMActuator implements Actuator2 {
       this.vm = new VM();
       rootInternalTransaction = new InternalTransaction(trx, trxType);
       this.program = new Program(code, programInvoke, rootInternalTransaction, vmConfig);
+      this.program.setCodeHash(deployedContract.getCodeHash());
       if (VMConfig.allowTvmCompatibleEvm()) {
         this.program.setContractVersion(deployedContract.getContractVersion());
       }
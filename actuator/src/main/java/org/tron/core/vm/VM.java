@@ -26,8 +26,11 @@ import static org.tron.core.vm.OpCode.WITHDRAWREWARD;
 import static org.tron.core.vm.OpCode.BASEFEE;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.util.encoders.Hex;
 import org.springframework.util.StringUtils;
@@ -46,14 +49,68 @@ public class VM {
 
   private static final BigInteger _32_ = BigInteger.valueOf(32);
   private static final BigInteger MEM_LIMIT = BigInteger.valueOf(3L * 1024 * 1024); // 3MB
+  // the opcodes by byte, null when unknown or not enabled yet, by enabled proposals
+  // the proposals which enable ops, the bits of the key of an op table
+  private static final int TRANSFER_TRC10 = 1;
+  private static final int CONSTANTINOPLE = 1 << 1;
+  private static final int SOLIDITY_059 = 1 << 2;
+  private static final int ISTANBUL = 1 << 3;
+  private static final int FREEZE_OPS = 1 << 4;
+  private static final int VOTE_OPS = 1 << 5;
+  private static final int LONDON = 1 << 6;
+  private static final Map<Integer, OpCode[]> OP_TABLES = new ConcurrentHashMap<>();
   private final VMConfig config;
+  private final OpCode[] opTable;
+  private final boolean chargeRuns;
 
   public VM() {
-    config = VMConfig.getInstance();
+    this(VMConfig.getInstance());
   }
 
   public VM(VMConfig config) {
     this.config = config;
+    this.opTable = opTable();
+    this.chargeRuns = VMConfig.chargeRuns() && !config.vmTrace();
+  }
+
+  private static OpCode[] opTable() {
+    int key = (VMConfig.allowTvmTransferTrc10() ? TRANSFER_TRC10 : 0)
+        | (VMConfig.allowTvmConstantinople() ? CONSTANTINOPLE : 0)
+        | (VMConfig.allowTvmSolidity059() ? SOLIDITY_059 : 0)
+        | (VMConfig.allowTvmIstanbul() ? ISTANBUL : 0)
+        | (VMConfig.allowTvmFreeze() ? FREEZE_OPS : 0)
+        | (VMConfig.allowTvmVote() ? VOTE_OPS : 0)
+        | (VMConfig.allowTvmLondon() ? LONDON : 0);
+    return OP_TABLES.computeIfAbsent(key, k -> {
+      OpCode[] table = new OpCode[256];
+      for (int i = 0; i < table.length; i++) {
+        OpCode op = OpCode.code((byte) i);
+        table[i] = isEnabled(op, k) ? op : null;
+      }
+      return table;
+    });
+  }
+
+  /**
+   * @param key the proposals in effect, the bits of opTable.
+   */
+  private static boolean isEnabled(OpCode op, int key) {
+    return !(op == null
+        || ((key & TRANSFER_TRC10) == 0
+            && (op == CALLTOKEN || op == TOKENBALANCE
+                || op == CALLTOKENVALUE || op == CALLTOKENID))
+        || ((key & CONSTANTINOPLE) == 0
+            && (op == SHL || op == SHR || op == SAR
+                || op == CREATE2 || op == EXTCODEHASH))
+        || ((key & SOLIDITY_059) == 0
+            && op == ISCONTRACT)
+        || ((key & ISTANBUL) == 0
+            && (op == SELFBALANCE || op == CHAINID))
+        || ((key & FREEZE_OPS) == 0
+            && (op == FREEZE || op == UNFREEZE || op == FREEZEEXPIRETIME))
+        || ((key & VOTE_OPS) == 0
+            && (op == VOTEWITNESS || op == WITHDRAWREWARD))
+        || ((key & LONDON) == 0 && (op == BASEFEE)));
   }
 
   /**
@@ -104,35 +161,23 @@ public class VM {
     }
 
     try {
-      OpCode op = OpCode.code(program.getCurrentOp());
-      if (op == null
-          || (!VMConfig.allowTvmTransferTrc10()
-              && (op == CALLTOKEN || op == TOKENBALANCE
-                  || op == CALLTOKENVALUE || op == CALLTOKENID))
-          || (!VMConfig.allowTvmConstantinople()
-              && (op == SHL || op == SHR || op == SAR
-                  || op == CREATE2 || op == EXTCODEHASH))
-          || (!VMConfig.allowTvmSolidity059()
-              && op == ISCONTRACT)
-          || (!VMConfig.allowTvmIstanbul()
-              && (op == SELFBALANCE || op == CHAINID))
-          || (!VMConfig.allowTvmFreeze()
-              && (op == FREEZE || op == UNFREEZE || op == FREEZEEXPIRETIME))
-          || (!VMConfig.allowTvmVote()
-              && (op == VOTEWITNESS || op == WITHDRAWREWARD))
-          || (!VMConfig.allowTvmLondon() && (op == BASEFEE))
-      ) {
+      OpCode op = opTable[program.getCurrentOp() & 0xFF];
+      if (op == null) {
         throw Program.Exception.invalidOpCode(program.getCurrentOp());
       }
 
       program.setLastOp(op.val());
-      program.verifyStackSize(op.require());
-      program.verifyStackOverflow(op.require(), op.ret()); //Check not exceeding stack limits
+      // the ops of a charged run only have their tier as energy, which is charged already
+      boolean charged = chargeRuns && program.chargeRun();
+      if (!charged) {
+        program.verifyStackSize(op.require());
+        program.verifyStackOverflow(op.require(), op.ret()); //Check not exceeding stack limits
+      }
 
       long oldMemSize = program.getMemSize();
       Stack stack = program.getStack();
 
-      long energyCost = op.getTier().asInt();
+      long energyCost = charged ? 0 : op.getTier().asInt();
       EnergyCost energyCosts = EnergyCost.getInstance();
       DataWord adjustedCallEnergy = null;
 
@@ -643,10 +688,10 @@ public class VM {
         case SHA3: {
           DataWord memOffsetData = program.stackPop();
           DataWord lengthData = program.stackPop();
-          byte[] buffer = program
-              .memoryChunk(memOffsetData.intValueSafe(), lengthData.intValueSafe());
+          ByteBuffer buffer = program
+              .memoryView(memOffsetData.intValueSafe(), lengthData.intValueSafe());
 
-          byte[] encoded = sha3(buffer);
+          byte[] encoded = sha3(buffer.array(), buffer.position(), buffer.remaining());
           DataWord word = new DataWord(encoded);
 
           program.stackPush(word);
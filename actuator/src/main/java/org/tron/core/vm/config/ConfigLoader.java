@@ -18,6 +18,7 @@ public class ConfigLoader {
     if (!disable) {
       DynamicPropertiesStore ds = storeFactory.getChainBaseManager().getDynamicPropertiesStore();
       VMConfig.setVmTrace(CommonParameter.getInstance().isVmTrace());
+      VMConfig.setChargeRuns(CommonParameter.getInstance().isVmChargeRuns());
       if (ds != null) {
         VMConfig.initVmHardFork(checkForEnergyLimit(ds));
         VMConfig.initAllowMultiSign(ds.getAllowMultiSign());
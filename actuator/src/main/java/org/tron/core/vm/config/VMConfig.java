@@ -35,6 +35,9 @@ public class VMConfig {
   @Setter
   private static boolean vmTrace = false;
 
+  @Setter
+  private static boolean chargeRuns = false;
+
   private static boolean ALLOW_TVM_TRANSFER_TRC10 = false;
 
   private static boolean ALLOW_TVM_CONSTANTINOPLE = false;
@@ -66,6 +69,10 @@ public class VMConfig {
     return vmTrace;
   }
 
+  public static boolean chargeRuns() {
+    return chargeRuns;
+  }
+
   public static boolean vmTraceCompressed() {
     return vmTraceCompressed;
   }
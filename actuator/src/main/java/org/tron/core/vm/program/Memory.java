@@ -18,23 +18,30 @@
 package org.tron.core.vm.program;
 
 import static java.lang.Math.ceil;
-import static java.lang.Math.min;
 import static java.lang.String.format;
 import static org.tron.common.utils.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.tron.common.utils.ByteUtil.oneByteToHexString;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import org.tron.common.runtime.vm.DataWord;
 import org.tron.core.vm.program.listener.ProgramListener;
 import org.tron.core.vm.program.listener.ProgramListenerAware;
 
+/**
+ * The memory of a program, in one array which doubles when the memory outgrows it. The memory
+ * is still allocated by chunks of CHUNK_SIZE, see internalSize.
+ */
 public class Memory implements ProgramListenerAware {
 
   private static final int CHUNK_SIZE = 1024;
   private static final int WORD_SIZE = 32;
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
-  private List<byte[]> chunks = new LinkedList<>();
+  private byte[] buffer = EMPTY_BYTE_ARRAY;
+  private int internalSize;
   private int softSize;
   private ProgramListener programListener;
 
@@ -49,27 +56,20 @@ public class Memory implements ProgramListenerAware {
     }
 
     extend(address, size);
-    byte[] data = new byte[size];
-
-    int chunkIndex = address / CHUNK_SIZE;
-    int chunkOffset = address % CHUNK_SIZE;
-
-    int toGrab = data.length;
-    int start = 0;
-
-    while (toGrab > 0) {
-      int copied = grabMax(chunkIndex, chunkOffset, toGrab, data, start);
-
-      // read next chunk from the start
-      ++chunkIndex;
-      chunkOffset = 0;
+    return Arrays.copyOfRange(buffer, address, address + size);
+  }
 
-      // mark remind
-      toGrab -= copied;
-      start += copied;
+  /**
+   * Like read, without copying the memory: the view wraps the memory array from address, it is
+   * only valid until the next write or extension of the memory and must not be written to.
+   */
+  public ByteBuffer view(int address, int size) {
+    if (size <= 0) {
+      return ByteBuffer.wrap(EMPTY_BYTE_ARRAY);
     }
 
-    return data;
+    extend(address, size);
+    return ByteBuffer.wrap(buffer, address, size);
   }
 
   public void write(int address, byte[] data, int dataSize, boolean limited) {
@@ -82,9 +82,6 @@ public class Memory implements ProgramListenerAware {
       extend(address, dataSize);
     }
 
-    int chunkIndex = address / CHUNK_SIZE;
-    int chunkOffset = address % CHUNK_SIZE;
-
     int toCapture = 0;
     if (limited) {
       toCapture = (address + dataSize > softSize) ? softSize - address : dataSize;
@@ -92,17 +89,8 @@ public class Memory implements ProgramListenerAware {
       toCapture = dataSize;
     }
 
-    int start = 0;
-    while (toCapture > 0) {
-      int captured = captureMax(chunkIndex, chunkOffset, toCapture, data, start);
-
-      // capture next chunk
-      ++chunkIndex;
-      chunkOffset = 0;
-
-      // mark remind
-      toCapture -= captured;
-      start += captured;
+    if (toCapture > 0) {
+      System.arraycopy(data, 0, buffer, address, toCapture);
     }
 
     if (programListener != null) {
@@ -122,9 +110,10 @@ public class Memory implements ProgramListenerAware {
     }
 
     final int newSize = Math.addExact(address, size);
-    int toAllocate = newSize - internalSize();
+    int toAllocate = newSize - internalSize;
     if (toAllocate > 0) {
-      addChunks((int) ceil((double) toAllocate / CHUNK_SIZE));
+      allocate(Math.addExact(internalSize,
+          (int) ceil((double) toAllocate / CHUNK_SIZE) * CHUNK_SIZE));
     }
 
     toAllocate = newSize - softSize;
@@ -144,13 +133,10 @@ public class Memory implements ProgramListenerAware {
 
   // just access expecting all data valid
   public byte readByte(int address) {
-
-    int chunkIndex = address / CHUNK_SIZE;
-    int chunkOffset = address % CHUNK_SIZE;
-
-    byte[] chunk = chunks.get(chunkIndex);
-
-    return chunk[chunkOffset];
+    if (address >= internalSize) {
+      throw new IndexOutOfBoundsException("Index: " + address + ", Size: " + internalSize);
+    }
+    return buffer[address];
   }
 
   @Override
@@ -191,35 +177,26 @@ public class Memory implements ProgramListenerAware {
   }
 
   public int internalSize() {
-    return chunks.size() * CHUNK_SIZE;
+    return internalSize;
   }
 
+  /**
+   * @return copies of the memory by chunks of CHUNK_SIZE.
+   */
   public List<byte[]> getChunks() {
-    return new LinkedList<>(chunks);
-  }
-
-  private int captureMax(int chunkIndex, int chunkOffset, int size, byte[] src, int srcPos) {
-
-    byte[] chunk = chunks.get(chunkIndex);
-    int toCapture = min(size, chunk.length - chunkOffset);
-
-    System.arraycopy(src, srcPos, chunk, chunkOffset, toCapture);
-    return toCapture;
-  }
-
-  private int grabMax(int chunkIndex, int chunkOffset, int size, byte[] dest, int destPos) {
-
-    byte[] chunk = chunks.get(chunkIndex);
-    int toGrab = min(size, chunk.length - chunkOffset);
-
-    System.arraycopy(chunk, chunkOffset, dest, destPos, toGrab);
-
-    return toGrab;
+    List<byte[]> chunks = new LinkedList<>();
+    for (int i = 0; i < internalSize; i += CHUNK_SIZE) {
+      chunks.add(Arrays.copyOfRange(buffer, i, i + CHUNK_SIZE));
+    }
+    return chunks;
   }
 
-  private void addChunks(int num) {
-    for (int i = 0; i < num; ++i) {
-      chunks.add(new byte[CHUNK_SIZE]);
+  // the new chunks are zero, past the old internal size
+  private void allocate(int size) {
+    if (size > buffer.length) {
+      long capacity = Math.max(size, Math.min((long) buffer.length * 2, MAX_ARRAY_SIZE));
+      buffer = Arrays.copyOf(buffer, (int) capacity);
     }
+    internalSize = size;
   }
 }
@@ -31,6 +31,7 @@ import static org.tron.core.config.Parameter.ChainConstant.TRX_PRECISION;
 import com.google.protobuf.ByteString;
 import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
@@ -106,7 +107,7 @@ public class Program {
 
   private static final int MAX_DEPTH = 64;
   //Max size for stack checks
-  private static final int MAX_STACK_SIZE = 1024;
+  private static final int MAX_STACK_SIZE = Stack.MAX_SIZE;
   private static final String VALIDATE_FOR_SMART_CONTRACT_FAILURE =
       "validateForSmartContract failure:%s";
   private static final String INVALID_TOKEN_ID_MSG = "not valid token id";
@@ -134,6 +135,10 @@ public class Program {
   private byte previouslyExecutedOp;
   private boolean stopped;
   private ProgramPrecompile programPrecompile;
+  private byte[] codeHash;
+  // the run of ops whose energy was charged when entering it
+  private int runStart;
+  private int runEnd;
   private int contractVersion;
 
 
@@ -154,7 +159,8 @@ public class Program {
 
     traceListener = new ProgramTraceListener(config.vmTrace());
     this.memory = setupProgramListener(new Memory());
-    this.stack = setupProgramListener(new Stack());
+    // only the trace listens to the stack
+    this.stack = config.vmTrace() ? setupProgramListener(new Stack()) : new Stack();
     this.contractState = setupProgramListener(new ContractState(programInvoke));
     this.trace = new ProgramTrace(config, programInvoke);
     this.nonce = internalTransaction.getNonce();
@@ -324,9 +330,17 @@ public class Program {
     nonce = nonceValue;
   }
 
+  /**
+   * @param codeHash the hash of the code of the contract run, to share the analysis of the code
+   *     with the other programs running it.
+   */
+  public void setCodeHash(byte[] codeHash) {
+    this.codeHash = codeHash;
+  }
+
   public ProgramPrecompile getProgramPrecompile() {
     if (programPrecompile == null) {
-      programPrecompile = ProgramPrecompile.compile(ops);
+      programPrecompile = ProgramPrecompile.compile(codeHash, ops);
     }
     return programPrecompile;
   }
@@ -489,6 +503,31 @@ public class Program {
     }
   }
 
+  /**
+   * Charges the energy of the run of ops starting at the pc at once, when the energy left and
+   * the stack are enough for all of them, see {@link ProgramPrecompile#getRun(int)}.
+   *
+   * @return whether the current op was charged with its run, its stack checked too.
+   */
+  public boolean chargeRun() {
+    if (pc > runStart && pc < runEnd) {
+      return true;
+    }
+    runEnd = 0;
+    ProgramPrecompile precompile = getProgramPrecompile();
+    int run = precompile.getRun(pc);
+    if (run < 0
+        || getEnergylimitLeftLong() < precompile.getRunEnergy(run)
+        || stack.size() < precompile.getRunStackNeeded(run)
+        || stack.size() + precompile.getRunStackAdded(run) > MAX_STACK_SIZE) {
+      return false;
+    }
+    getResult().spendEnergy(precompile.getRunEnergy(run));
+    runStart = pc;
+    runEnd = precompile.getRunEnd(run);
+    return true;
+  }
+
   public int getMemSize() {
     return memory.size();
   }
@@ -534,6 +573,14 @@ public class Program {
     return memory.read(offset, size);
   }
 
+  /**
+   * The memory from offset without copying it, to be consumed before the memory changes, see
+   * Memory#view.
+   */
+  public ByteBuffer memoryView(int offset, int size) {
+    return memory.view(offset, size);
+  }
+
   /**
    * . Allocates extra memory in the program for a specified size, calculated from a given offset
    *
@@ -1020,9 +1067,12 @@ public class Program {
       VM vm = new VM(config);
       Program program = new Program(programCode, programInvoke, internalTx, config);
       program.setRootTransactionId(this.rootTransactionId);
+      ContractCapsule codeContract = invoke.getDeposit().getContract(codeAddress);
+      if (codeContract != null) {
+        program.setCodeHash(codeContract.getCodeHash());
+      }
       if (VMConfig.allowTvmCompatibleEvm()) {
-        program.setContractVersion(
-            invoke.getDeposit().getContract(codeAddress).getContractVersion());
+        program.setContractVersion(codeContract.getContractVersion());
       }
       vm.play(program);
       callResult = program.getResult();
@@ -17,10 +17,17 @@
  */
 package org.tron.core.vm.program;
 
-import java.util.HashSet;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
 import org.tron.common.runtime.vm.DataWord;
+import org.tron.core.db2.common.WrappedByteArray;
 import org.tron.core.vm.OpCode;
 import org.tron.core.vm.config.VMConfig;
 
@@ -31,29 +38,118 @@ import org.tron.core.vm.config.VMConfig;
  */
 public class ProgramPrecompile {
 
-  private Set<Integer> jumpdest = new HashSet<>();
+  // the analysis of the code of contracts by code hash, shared by every program, weighed by
+  // code size, null until init
+  private static volatile Cache<WrappedByteArray, ProgramPrecompile> cache;
+  private static final LongAdder hitCount = new LongAdder();
+  private static final LongAdder missCount = new LongAdder();
+  private static final LongAdder savedTime = new LongAdder();
+
+  // the ops whose energy is their tier in any config and which do not read the energy left, a
+  // run of them is charged at once, keep in line with VM.step
+  private static final Set<OpCode> RUN_OPS = EnumSet.complementOf(EnumSet.of(
+      OpCode.STOP, OpCode.SUICIDE, OpCode.SSTORE, OpCode.SLOAD, OpCode.BALANCE,
+      OpCode.MSTORE, OpCode.MSTORE8, OpCode.MLOAD, OpCode.RETURN, OpCode.REVERT, OpCode.SHA3,
+      OpCode.CALLDATACOPY, OpCode.RETURNDATACOPY, OpCode.CODECOPY, OpCode.EXTCODESIZE,
+      OpCode.EXTCODECOPY, OpCode.EXTCODEHASH, OpCode.CALL, OpCode.CALLCODE, OpCode.DELEGATECALL,
+      OpCode.STATICCALL, OpCode.CALLTOKEN, OpCode.CREATE, OpCode.CREATE2, OpCode.LOG0,
+      OpCode.LOG1, OpCode.LOG2, OpCode.LOG3, OpCode.LOG4, OpCode.EXP, OpCode.GAS,
+      // enabled by proposals
+      OpCode.TOKENBALANCE, OpCode.CALLTOKENVALUE, OpCode.CALLTOKENID, OpCode.ISCONTRACT,
+      OpCode.SHL, OpCode.SHR, OpCode.SAR, OpCode.SELFBALANCE, OpCode.CHAINID, OpCode.BASEFEE,
+      OpCode.FREEZE, OpCode.UNFREEZE, OpCode.FREEZEEXPIRETIME, OpCode.VOTEWITNESS,
+      OpCode.WITHDRAWREWARD));
+  private static final int RUN_FIELDS = 4;
+
+  private final BitSet jumpdest = new BitSet();
+  // the runs of at least two ops of RUN_OPS: entered at their first op only, since a JUMPDEST
+  // starts a run and a JUMP or JUMPI ends it. By start: end, energy, the stack needed and the
+  // stack added at most
+  private final BitSet runStarts = new BitSet();
+  private int[] runPcs;
+  private int[] runs;
+  private int codeSize;
+  private long compileTime;
+
+  /**
+   * Replace the cache by an empty one of size bytes of code, no cache if size is 0.
+   */
+  public static void init(long size) {
+    cache = size > 0 ? CacheBuilder.newBuilder().maximumWeight(size)
+        .weigher((WrappedByteArray k, ProgramPrecompile v) -> v.codeSize)
+        .concurrencyLevel(Runtime.getRuntime().availableProcessors()).build() : null;
+  }
+
+  /**
+   * @param codeHash the hash of ops, empty when the contract has none.
+   */
+  public static ProgramPrecompile compile(byte[] codeHash, byte[] ops) {
+    Cache<WrappedByteArray, ProgramPrecompile> cache = ProgramPrecompile.cache;
+    if (cache == null || ArrayUtils.isEmpty(codeHash)) {
+      return compile(ops);
+    }
+    WrappedByteArray key = WrappedByteArray.of(codeHash);
+    ProgramPrecompile ret = cache.getIfPresent(key);
+    if (ret != null) {
+      hitCount.increment();
+      savedTime.add(ret.compileTime);
+      return ret;
+    }
+    missCount.increment();
+    ret = compile(ops);
+    cache.put(key, ret);
+    return ret;
+  }
 
   public static ProgramPrecompile compile(byte[] ops) {
+    long start = System.nanoTime();
     ProgramPrecompile ret = new ProgramPrecompile();
+    ret.codeSize = ops.length;
+    RunBuilder run = new RunBuilder(ret);
     for (int i = 0; i < ops.length; ++i) {
 
       OpCode op = OpCode.code(ops[i]);
+      run.add(i, op);
       if (op == null) {
         continue;
       }
 
       if (op.equals(OpCode.JUMPDEST)) {
         logger.debug("JUMPDEST:" + i);
-        ret.jumpdest.add(i);
+        ret.jumpdest.set(i);
       }
 
       if (op.asInt() >= OpCode.PUSH1.asInt() && op.asInt() <= OpCode.PUSH32.asInt()) {
         i += op.asInt() - OpCode.PUSH1.asInt() + 1;
       }
+      run.next(i + 1);
     }
+    run.build();
+    ret.compileTime = System.nanoTime() - start;
     return ret;
   }
 
+  /**
+   * @return the number of programs which found their analysis in the cache since the last call.
+   */
+  public static long resetHitCount() {
+    return hitCount.sumThenReset();
+  }
+
+  /**
+   * @return the number of programs which analyzed their code since the last call.
+   */
+  public static long resetMissCount() {
+    return missCount.sumThenReset();
+  }
+
+  /**
+   * @return the nanoseconds the analyses found in the cache took, since the last call.
+   */
+  public static long resetSavedTime() {
+    return savedTime.sumThenReset();
+  }
+
   public static byte[] getCode(byte[] ops) {
     for (int i = 0; i < ops.length; ++i) {
 
@@ -88,6 +184,112 @@ public class ProgramPrecompile {
   }
 
   public boolean hasJumpDest(int pc) {
-    return jumpdest.contains(pc);
+    return pc >= 0 && jumpdest.get(pc);
+  }
+
+  /**
+   * @return the index of the run starting at pc, -1 if none.
+   */
+  public int getRun(int pc) {
+    return pc >= 0 && runStarts.get(pc) ? Arrays.binarySearch(runPcs, pc) : -1;
+  }
+
+  /**
+   * @return the pc after the last op of the run.
+   */
+  public int getRunEnd(int run) {
+    return runs[run * RUN_FIELDS];
+  }
+
+  public int getRunEnergy(int run) {
+    return runs[run * RUN_FIELDS + 1];
+  }
+
+  /**
+   * @return the stack size the ops of the run need to find their arguments.
+   */
+  public int getRunStackNeeded(int run) {
+    return runs[run * RUN_FIELDS + 2];
+  }
+
+  /**
+   * @return the most the ops of the run add to the stack, at any point of the run.
+   */
+  public int getRunStackAdded(int run) {
+    return runs[run * RUN_FIELDS + 3];
+  }
+
+  private static class RunBuilder {
+
+    private final ProgramPrecompile precompile;
+    private int[] pcs = new int[16];
+    private int[] runs = new int[16 * RUN_FIELDS];
+    private int count;
+
+    private int start = -1;
+    private int end;
+    private int ops;
+    private int energy;
+    private int height;
+    private int needed;
+    private int added;
+
+    RunBuilder(ProgramPrecompile precompile) {
+      this.precompile = precompile;
+    }
+
+    void add(int pc, OpCode op) {
+      if (start >= 0 && (op == null || op == OpCode.JUMPDEST || !RUN_OPS.contains(op))) {
+        end();
+      }
+      if (op == null || !RUN_OPS.contains(op)) {
+        return;
+      }
+      if (start < 0) {
+        start = pc;
+        ops = energy = height = needed = added = 0;
+      }
+      ops++;
+      energy += op.getTier().asInt();
+      needed = Math.max(needed, op.require() - height);
+      height += op.ret() - op.require();
+      added = Math.max(added, height);
+      if (op == OpCode.JUMP || op == OpCode.JUMPI) {
+        end = pc + 1;
+        end();
+      }
+    }
+
+    /**
+     * @param pc the pc of the op after the last one added, past its data.
+     */
+    void next(int pc) {
+      if (start >= 0) {
+        end = pc;
+      }
+    }
+
+    void end() {
+      if (start >= 0 && ops > 1) {
+        if (count == pcs.length) {
+          pcs = Arrays.copyOf(pcs, count * 2);
+          runs = Arrays.copyOf(runs, count * 2 * RUN_FIELDS);
+        }
+        pcs[count] = start;
+        runs[count * RUN_FIELDS] = end;
+        runs[count * RUN_FIELDS + 1] = energy;
+        runs[count * RUN_FIELDS + 2] = needed;
+        runs[count * RUN_FIELDS + 3] = added;
+        count++;
+        precompile.runStarts.set(start);
+      }
+      start = -1;
+    }
+
+    void build() {
+      end();
+      precompile.runPcs = Arrays.copyOf(pcs, count);
+      precompile.runs = Arrays.copyOf(runs, count * RUN_FIELDS);
+    }
   }
 }
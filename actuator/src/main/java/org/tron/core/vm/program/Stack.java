@@ -17,36 +17,75 @@
  */
 package org.tron.core.vm.program;
 
+import java.util.Arrays;
+import java.util.EmptyStackException;
 import java.util.Objects;
 import org.tron.common.runtime.vm.DataWord;
 import org.tron.core.vm.program.listener.ProgramListener;
 import org.tron.core.vm.program.listener.ProgramListenerAware;
 
-public class Stack extends java.util.Stack<DataWord> implements ProgramListenerAware {
+/**
+ * The operand stack of a program, in an array of the maximum stack size. It is only used by
+ * the thread running the program, so nothing is synchronized.
+ */
+public class Stack implements ProgramListenerAware {
+
+  public static final int MAX_SIZE = 1024;
 
-  private static final long serialVersionUID = 1;
+  // Program checks the size against MAX_SIZE before every push
+  private final DataWord[] words = new DataWord[MAX_SIZE];
+  private int size;
 
-  private transient ProgramListener programListener;
+  private ProgramListener programListener;
 
   @Override
   public void setProgramListener(ProgramListener listener) {
     this.programListener = listener;
   }
 
-  @Override
-  public synchronized DataWord pop() {
+  public DataWord pop() {
+    if (size == 0) {
+      throw new EmptyStackException();
+    }
     if (programListener != null) {
       programListener.onStackPop();
     }
-    return super.pop();
+    DataWord item = words[--size];
+    words[size] = null;
+    return item;
   }
 
-  @Override
   public DataWord push(DataWord item) {
     if (programListener != null) {
       programListener.onStackPush(item);
     }
-    return super.push(item);
+    words[size++] = item;
+    return item;
+  }
+
+  public DataWord peek() {
+    if (size == 0) {
+      throw new EmptyStackException();
+    }
+    return words[size - 1];
+  }
+
+  /**
+   * @param index from the bottom of the stack.
+   */
+  public DataWord get(int index) {
+    if (!isAccessible(index)) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return words[index];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
   }
 
   public void swap(int from, int to) {
@@ -54,13 +93,14 @@ public class Stack extends java.util.Stack<DataWord> implements ProgramListenerA
       if (programListener != null) {
         programListener.onStackSwap(from, to);
       }
-      DataWord tmp = get(from);
-      set(from, set(to, tmp));
+      DataWord tmp = words[from];
+      words[from] = words[to];
+      words[to] = tmp;
     }
   }
 
   private boolean isAccessible(int from) {
-    return from >= 0 && from < size();
+    return from >= 0 && from < size;
   }
 
   @Override
@@ -74,16 +114,20 @@ public class Stack extends java.util.Stack<DataWord> implements ProgramListenerA
     if (o.getClass() != this.getClass()) {
       return false;
     }
-    if (!super.equals(o)) {
-      return false;
-    }
     Stack dataWords = (Stack) o;
-    return Objects.equals(programListener, dataWords.programListener);
+    return size == dataWords.size
+        && Arrays.equals(Arrays.copyOf(words, size), Arrays.copyOf(dataWords.words, size))
+        && Objects.equals(programListener, dataWords.programListener);
   }
 
 
   @Override
   public int hashCode() {
-    return Objects.hash(super.hashCode(), programListener);
+    return Objects.hash(Arrays.hashCode(Arrays.copyOf(words, size)), programListener);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(Arrays.copyOf(words, size));
   }
 }
@@ -0,0 +1,95 @@
+package org.tron.common.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import lombok.Getter;
+import org.rocksdb.ColumnFamilyHandle;
+
+/**
+ * A native write batch of either engine, rows are copied to native memory on put, so callers
+ * can stream large updates without materializing them in a java map first.
+ */
+public class WriteBatchWrapper implements Closeable {
+
+  public org.rocksdb.WriteBatch rocks = null;
+  public org.iq80.leveldb.WriteBatch level = null;
+  // column family of the rows of a rocks batch, null for the default one
+  private ColumnFamilyHandle family = null;
+
+  @Getter
+  private long bytes;
+  @Getter
+  private int count;
+
+  private WriteBatchWrapper() {
+
+  }
+
+  public static WriteBatchWrapper of(org.iq80.leveldb.WriteBatch batch) {
+    WriteBatchWrapper wrapper = new WriteBatchWrapper();
+    wrapper.level = batch;
+    return wrapper;
+  }
+
+  public static WriteBatchWrapper of(org.rocksdb.WriteBatch batch) {
+    WriteBatchWrapper wrapper = new WriteBatchWrapper();
+    wrapper.rocks = batch;
+    return wrapper;
+  }
+
+  public static WriteBatchWrapper of(org.rocksdb.WriteBatch batch, ColumnFamilyHandle family) {
+    WriteBatchWrapper wrapper = of(batch);
+    wrapper.family = family;
+    return wrapper;
+  }
+
+  public void put(byte[] key, byte[] value) {
+    if (value == null) {
+      delete(key);
+      return;
+    }
+
+    try {
+      if (level != null) {
+        level.put(key, value);
+      } else if (family != null) {
+        rocks.put(family, key, value);
+      } else {
+        rocks.put(key, value);
+      }
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    bytes += key.length + value.length;
+    ++count;
+  }
+
+  public void delete(byte[] key) {
+    try {
+      if (level != null) {
+        level.delete(key);
+      } else if (family != null) {
+        rocks.delete(family, key);
+      } else {
+        rocks.delete(key);
+      }
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    bytes += key.length;
+    ++count;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (level != null) {
+      level.close();
+    } else {
+      rocks.close();
+    }
+  }
+}
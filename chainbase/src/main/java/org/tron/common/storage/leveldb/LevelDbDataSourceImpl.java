@@ -46,6 +46,7 @@ import org.iq80.leveldb.WriteBatch;
 import org.iq80.leveldb.WriteOptions;
 import org.iq80.leveldb.ReadOptions;
 import org.tron.common.parameter.CommonParameter;
+import org.tron.common.storage.WriteBatchWrapper;
 import org.tron.common.storage.WriteOptionsWrapper;
 import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.StorageUtils;
@@ -307,6 +308,7 @@ public class LevelDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
   }
 
+  @Override
   public List<byte[]> getKeysNext(byte[] key, long limit) {
     if (limit <= 0) {
       return new ArrayList<>();
@@ -442,6 +444,26 @@ public class LevelDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
   }
 
+  @Override
+  public WriteBatchWrapper createWriteBatch() {
+    resetDbLock.readLock().lock();
+    try {
+      return WriteBatchWrapper.of(database.createWriteBatch());
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void updateByBatch(WriteBatchWrapper batch, WriteOptionsWrapper options) {
+    resetDbLock.readLock().lock();
+    try {
+      database.write(batch.level, options.level);
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
   @Override
   public boolean flush() {
     return false;
@@ -20,6 +20,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.rocksdb.BlockBasedTableConfig;
 import org.rocksdb.BloomFilter;
 import org.rocksdb.Checkpoint;
+import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.DirectComparator;
 import org.rocksdb.Options;
 import org.rocksdb.ReadOptions;
@@ -29,7 +30,9 @@ import org.rocksdb.RocksIterator;
 import org.rocksdb.Statistics;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
+import org.tron.common.parameter.CommonParameter;
 import org.tron.common.setting.RocksDbSettings;
+import org.tron.common.storage.WriteBatchWrapper;
 import org.tron.common.storage.WriteOptionsWrapper;
 import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.PropUtil;
@@ -53,6 +56,9 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
   private static final String KEY_ENGINE = "ENGINE";
   private static final String ROCKSDB = "ROCKSDB";
   private DirectComparator comparator;
+  // set in column family mode, the database is then the instance shared with other stores
+  private SharedRocksDb shared;
+  private ColumnFamilyHandle handle;
 
   public RocksDbDataSourceImpl(String parentPath, String name, RocksDbSettings settings,
       DirectComparator comparator) {
@@ -83,6 +89,19 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     return database;
   }
 
+  /**
+   * @return the instance this db is a column family of, or null if it is a separate one.
+   */
+  public SharedRocksDb getShared() {
+    return shared;
+  }
+
+  private boolean isColumnFamily() {
+    CommonParameter parameter = CommonParameter.getInstance();
+    return comparator == null && parameter.getStorage() != null
+        && parameter.getStorage().isDbColumnFamilies();
+  }
+
   public boolean isAlive() {
     return alive;
   }
@@ -94,7 +113,13 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
       if (!isAlive()) {
         return;
       }
-      database.close();
+      if (shared != null) {
+        shared.release(dataBaseName);
+        shared = null;
+        handle = null;
+      } else {
+        database.close();
+      }
       alive = false;
     } catch (Exception e) {
     } finally {
@@ -104,6 +129,16 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
 
   @Override
   public void resetDb() {
+    if (shared != null) {
+      resetDbLock.writeLock().lock();
+      try {
+        handle = shared.reset(dataBaseName);
+      } finally {
+        resetDbLock.writeLock().unlock();
+      }
+      return;
+    }
+
     closeDB();
     FileUtil.recursiveDelete(getDbPath().toString());
     initDB();
@@ -152,8 +187,31 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
   public void setDBName(String name) {
   }
 
+  /**
+   * Refuse to open a database kept in the other layout, storage.db.columnFamilies does not
+   * migrate the data, so opening it would start this store empty and resync the chain.
+   */
+  private void checkLayout() {
+    if (comparator != null) {
+      return;
+    }
+    boolean separate = new File(getDbPath().toFile(), "CURRENT").exists();
+    boolean shared = Paths.get(parentPath, SharedRocksDb.NAME, "CURRENT").toFile().exists();
+    if (isColumnFamily() && separate) {
+      logger.error("{} is a separate rocksdb, but storage.db.columnFamilies is on, "
+          + "turn it off or move the data to a new db.directory", getDbPath());
+      throw new RuntimeException(FAIL_TO_INIT_DATABASE);
+    }
+    if (!isColumnFamily() && !separate && shared) {
+      logger.error("{} is kept in {} as a column family, but storage.db.columnFamilies is off",
+          dataBaseName, Paths.get(parentPath, SharedRocksDb.NAME));
+      throw new RuntimeException(FAIL_TO_INIT_DATABASE);
+    }
+  }
+
   public boolean checkOrInitEngine() {
-    String dir = getDbPath().toString();
+    String dir = isColumnFamily() ? Paths.get(parentPath, SharedRocksDb.NAME).toString()
+        : getDbPath().toString();
     String enginePath = dir + File.separator + "engine.properties";
 
     if (FileUtil.createDirIfNotExists(dir)) {
@@ -192,6 +250,17 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
         throw new NullPointerException("no name set to the dbStore");
       }
 
+      checkLayout();
+      if (isColumnFamily()) {
+        readOpts = new ReadOptions().setPrefixSameAsStart(true).setVerifyChecksums(false);
+        shared = SharedRocksDb.open(parentPath, settings);
+        database = shared.getDatabase();
+        handle = shared.acquire(dataBaseName);
+        alive = true;
+        logger.debug("<~ RocksDbDataSource.initDB(): column family " + dataBaseName);
+        return;
+      }
+
       try (Options options = new Options()) {
 
         // most of these options are suggested by https://github.com/facebook/rocksdb/wiki/Set-Up-Options
@@ -268,7 +337,11 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
     resetDbLock.readLock().lock();
     try {
-      database.put(key, value);
+      if (handle != null) {
+        database.put(handle, key, value);
+      } else {
+        database.put(key, value);
+      }
     } catch (RocksDBException e) {
       logger.error("RocksDBException:{}", e);
     } finally {
@@ -283,7 +356,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
     resetDbLock.readLock().lock();
     try {
-      return database.get(key);
+      return handle != null ? database.get(handle, key) : database.get(key);
     } catch (RocksDBException e) {
       logger.error("RocksDBException: {}", e);
     } finally {
@@ -299,7 +372,11 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
     resetDbLock.readLock().lock();
     try {
-      database.delete(key);
+      if (handle != null) {
+        database.delete(handle, key);
+      } else {
+        database.delete(key);
+      }
     } catch (RocksDBException e) {
       logger.error("RocksDBException:{}", e);
     } finally {
@@ -307,6 +384,26 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
   }
 
+  @Override
+  public WriteBatchWrapper createWriteBatch() {
+    return WriteBatchWrapper.of(new WriteBatch(), handle);
+  }
+
+  @Override
+  public void updateByBatch(WriteBatchWrapper batch, WriteOptionsWrapper optionsWrapper) {
+    if (quitIfNotAlive()) {
+      return;
+    }
+    resetDbLock.readLock().lock();
+    try {
+      database.write(optionsWrapper.rocks, batch.rocks);
+    } catch (RocksDBException e) {
+      throw new RuntimeException(e);
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
   @Override
   public boolean flush() {
     return false;
@@ -321,15 +418,9 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     if (quitIfNotAlive()) {
       return;
     }
-    try (WriteBatch batch = new WriteBatch()) {
-      for (Map.Entry<byte[], byte[]> entry : rows.entrySet()) {
-        if (entry.getValue() == null) {
-          batch.delete(entry.getKey());
-        } else {
-          batch.put(entry.getKey(), entry.getValue());
-        }
-      }
-      database.write(new WriteOptions(), batch);
+    try (WriteBatchWrapper batch = createWriteBatch()) {
+      rows.forEach(batch::put);
+      database.write(new WriteOptions(), batch.rocks);
     }
   }
 
@@ -338,15 +429,9 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     if (quitIfNotAlive()) {
       return;
     }
-    try (WriteBatch batch = new WriteBatch()) {
-      for (Map.Entry<byte[], byte[]> entry : rows.entrySet()) {
-        if (entry.getValue() == null) {
-          batch.delete(entry.getKey());
-        } else {
-          batch.put(entry.getKey(), entry.getValue());
-        }
-      }
-      database.write(options, batch);
+    try (WriteBatchWrapper batch = createWriteBatch()) {
+      rows.forEach(batch::put);
+      database.write(options, batch.rocks);
     }
   }
 
@@ -388,6 +473,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
   }
 
+  @Override
   public List<byte[]> getKeysNext(byte[] key, long limit) {
     if (quitIfNotAlive()) {
       return new ArrayList<>();
@@ -493,18 +579,43 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
   }
 
+  /**
+   * Append rows to a batch of the shared instance, to be written along with the rows of other
+   * column families.
+   */
+  public void appendTo(WriteBatch batch, Map<byte[], byte[]> rows) {
+    rows.forEach(wrap(batch)::put);
+  }
+
+  /**
+   * @return a writer of rows of this db into a batch of the shared instance, closing it closes
+   *     the batch.
+   */
+  public WriteBatchWrapper wrap(WriteBatch batch) {
+    return WriteBatchWrapper.of(batch, handle);
+  }
+
   public void backup(String dir) throws RocksDBException {
+    if (shared != null) {
+      shared.backup(dir);
+      return;
+    }
     Checkpoint cp = Checkpoint.create(database);
     cp.createCheckpoint(dir + this.getDBName());
   }
 
   private RocksIterator getRocksIterator() {
     try ( ReadOptions readOptions = new ReadOptions().setFillCache(false)) {
-      return  database.newIterator(readOptions);
+      return handle != null ? database.newIterator(handle, readOptions)
+          : database.newIterator(readOptions);
     }
   }
 
   public boolean deleteDbBakPath(String dir) {
+    if (shared != null) {
+      File bak = new File(dir + SharedRocksDb.NAME);
+      return !bak.exists() || FileUtil.deleteDir(bak);
+    }
     return FileUtil.deleteDir(new File(dir + this.getDBName()));
   }
 
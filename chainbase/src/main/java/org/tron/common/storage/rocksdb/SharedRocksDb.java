@@ -0,0 +1,209 @@
+package org.tron.common.storage.rocksdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Checkpoint;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Statistics;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.tron.common.setting.RocksDbSettings;
+
+/**
+ * One RocksDB instance under {parentPath}/chainbase holding the databases opened in column
+ * family mode (storage.db.columnFamilies) as its column families. They share one WAL, one
+ * write buffer budget, the background threads and the block cache, and a WriteBatch may hold
+ * rows of several of them, which are then committed atomically.
+ * Existing column families are opened before their stores ask for them, so all of them use
+ * the bytewise comparator, a database with its own comparator stays a separate instance.
+ */
+@Slf4j(topic = "DB")
+public final class SharedRocksDb {
+
+  public static final String NAME = "chainbase";
+
+  private static final Map<String, SharedRocksDb> instances = new HashMap<>();
+
+  @Getter
+  private final String path;
+  @Getter
+  private final RocksDB database;
+  private final DBOptions dbOptions;
+  private final ColumnFamilyOptions columnFamilyOptions;
+  private final Map<String, ColumnFamilyHandle> families = new HashMap<>();
+  // data sources per column family, the instance is closed when none is left
+  private final Map<String, Integer> acquired = new HashMap<>();
+
+  private SharedRocksDb(String path, RocksDbSettings settings) throws RocksDBException {
+    this.path = path;
+    dbOptions = new DBOptions();
+    if (settings.isEnableStatistics()) {
+      dbOptions.setStatistics(new Statistics());
+      dbOptions.setStatsDumpPeriodSec(60);
+    }
+    dbOptions.setCreateIfMissing(true);
+    dbOptions.setCreateMissingColumnFamilies(true);
+    dbOptions.setIncreaseParallelism(1);
+    dbOptions.setMaxOpenFiles(settings.getMaxOpenFiles());
+    dbOptions.setMaxBackgroundCompactions(settings.getCompactThreads());
+    // memtables of all column families together, instead of a write buffer per database
+    dbOptions.setDbWriteBufferSize(settings.getWriteBufferSize());
+
+    columnFamilyOptions = new ColumnFamilyOptions();
+    columnFamilyOptions.setLevelCompactionDynamicLevelBytes(true);
+    columnFamilyOptions.setNumLevels(settings.getLevelNumber());
+    columnFamilyOptions.setMaxBytesForLevelMultiplier(settings.getMaxBytesForLevelMultiplier());
+    columnFamilyOptions.setMaxBytesForLevelBase(settings.getMaxBytesForLevelBase());
+    columnFamilyOptions.setLevel0FileNumCompactionTrigger(
+        settings.getLevel0FileNumCompactionTrigger());
+    columnFamilyOptions.setTargetFileSizeMultiplier(settings.getTargetFileSizeMultiplier());
+    columnFamilyOptions.setTargetFileSizeBase(settings.getTargetFileSizeBase());
+    BlockBasedTableConfig tableCfg = new BlockBasedTableConfig();
+    tableCfg.setBlockSize(settings.getBlockSize());
+    tableCfg.setBlockCache(RocksDbSettings.getCache());
+    tableCfg.setCacheIndexAndFilterBlocks(true);
+    tableCfg.setPinL0FilterAndIndexBlocksInCache(true);
+    tableCfg.setFilter(new BloomFilter(10, false));
+    columnFamilyOptions.setTableFormatConfig(tableCfg);
+
+    List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+    for (byte[] name : listColumnFamilies(path)) {
+      descriptors.add(new ColumnFamilyDescriptor(name, columnFamilyOptions));
+    }
+    List<ColumnFamilyHandle> handles = new ArrayList<>();
+    database = RocksDB.open(dbOptions, path, descriptors, handles);
+    for (int i = 0; i < descriptors.size(); i++) {
+      families.put(new String(descriptors.get(i).columnFamilyName(), StandardCharsets.UTF_8),
+          handles.get(i));
+    }
+    logger.info("open shared rocksdb {} with column families {}", path, families.keySet());
+  }
+
+  private static List<byte[]> listColumnFamilies(String path) throws RocksDBException {
+    if (!new File(path, "CURRENT").exists()) {
+      return Collections.singletonList(RocksDB.DEFAULT_COLUMN_FAMILY);
+    }
+    try (Options options = new Options()) {
+      return RocksDB.listColumnFamilies(options, path);
+    }
+  }
+
+  /**
+   * @return the shared instance under parentPath, opened on the first call.
+   */
+  public static synchronized SharedRocksDb open(String parentPath, RocksDbSettings settings) {
+    String path = Paths.get(parentPath, NAME).toString();
+    SharedRocksDb shared = instances.get(path);
+    if (shared == null) {
+      try {
+        Files.createDirectories(Paths.get(path));
+        shared = new SharedRocksDb(path, settings);
+      } catch (IOException | RocksDBException e) {
+        logger.error(e.getMessage(), e);
+        throw new RuntimeException("Failed to initialize database", e);
+      }
+      instances.put(path, shared);
+    }
+    return shared;
+  }
+
+  /**
+   * @return the column family of a database, created if missing.
+   */
+  public synchronized ColumnFamilyHandle acquire(String name) {
+    ColumnFamilyHandle handle = families.get(name);
+    if (handle == null) {
+      handle = createColumnFamily(name);
+    }
+    acquired.merge(name, 1, Integer::sum);
+    return handle;
+  }
+
+  /**
+   * Close the column family of a database, and the instance after the last one.
+   */
+  public void release(String name) {
+    synchronized (SharedRocksDb.class) {
+      synchronized (this) {
+        if (acquired.computeIfPresent(name, (k, count) -> count > 1 ? count - 1 : null) != null
+            || !acquired.isEmpty()) {
+          return;
+        }
+
+        families.values().forEach(ColumnFamilyHandle::close);
+        families.clear();
+        database.close();
+        columnFamilyOptions.close();
+        dbOptions.close();
+        instances.remove(path);
+        logger.info("close shared rocksdb {}", path);
+      }
+    }
+  }
+
+  /**
+   * Drop every row of a database by recreating its column family.
+   *
+   * @return the new column family.
+   */
+  public synchronized ColumnFamilyHandle reset(String name) {
+    ColumnFamilyHandle handle = families.remove(name);
+    if (handle != null) {
+      try {
+        database.dropColumnFamily(handle);
+      } catch (RocksDBException e) {
+        throw new RuntimeException(e);
+      } finally {
+        handle.close();
+      }
+    }
+    return createColumnFamily(name);
+  }
+
+  private ColumnFamilyHandle createColumnFamily(String name) {
+    try {
+      ColumnFamilyHandle handle = database.createColumnFamily(
+          new ColumnFamilyDescriptor(name.getBytes(StandardCharsets.UTF_8), columnFamilyOptions));
+      families.put(name, handle);
+      return handle;
+    } catch (RocksDBException e) {
+      throw new RuntimeException("Failed to create column family " + name, e);
+    }
+  }
+
+  /**
+   * Write a batch which may hold rows of several column families, all or none of them.
+   */
+  public void write(WriteOptions options, WriteBatch batch) throws RocksDBException {
+    database.write(options, batch);
+  }
+
+  /**
+   * Checkpoint the whole instance to dir + NAME, once for all of its databases.
+   */
+  public synchronized void backup(String dir) throws RocksDBException {
+    if (new File(dir + NAME).exists()) {
+      return;
+    }
+    Checkpoint cp = Checkpoint.create(database);
+    cp.createCheckpoint(dir + NAME);
+  }
+}
@@ -4,11 +4,14 @@ import static org.tron.common.parameter.CommonParameter.ENERGY_LIMIT_HARD_FORK;
 import static org.tron.common.utils.DbOptionalsUtils.createDefaultDbOptions;
 
 import java.io.File;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.iq80.leveldb.Options;
 import org.tron.common.parameter.CommonParameter;
+import org.tron.core.config.args.Storage;
 
 
+@Slf4j(topic = "DB")
 public class StorageUtils {
 
   public static boolean getEnergyLimitHardFork() {
@@ -54,8 +57,20 @@ public class StorageUtils {
 
   public static Options getOptionsByDbName(String dbName) {
     if (hasProperty(dbName)) {
-      return getProperty(dbName).getDbOptions();
+      Options options = getProperty(dbName).getDbOptions();
+      logger.info("db {} options from storage.properties: {}", dbName,
+          DbProfile.toString(options));
+      return options;
     }
+
+    Storage storage = CommonParameter.getInstance().getStorage();
+    if (storage != null && storage.hasProfile(dbName)) {
+      Options options = storage.createOptionsByProfile(dbName);
+      logger.info("db {} options from profile {}: {}", dbName,
+          storage.getProfile(dbName).getName(), DbProfile.toString(options));
+      return options;
+    }
+
     Options options = createDefaultDbOptions();
     switch (dbName) {
       case "block":
@@ -65,6 +80,7 @@ public class StorageUtils {
         break;
       default:
     }
+    logger.info("db {} options: {}", dbName, DbProfile.toString(options));
     return options;
   }
 }
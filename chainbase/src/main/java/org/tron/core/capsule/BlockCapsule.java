@@ -18,6 +18,7 @@ package org.tron.core.capsule;
 import com.google.common.primitives.Longs;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.security.SignatureException;
 import java.util.ArrayList;
@@ -140,6 +141,23 @@ public class BlockCapsule implements ProtoCapsule<Block> {
     getTransactions().add(pendingTrx);
   }
 
+  /**
+   * Add transactions with one rebuild of the block.
+   */
+  public void addTransactions(List<TransactionCapsule> pendingTrxs) {
+    if (pendingTrxs.isEmpty()) {
+      return;
+    }
+    Block.Builder builder = this.block.toBuilder();
+    pendingTrxs.forEach(trx -> builder.addTransactions(trx.getInstance()));
+    this.block = builder.build();
+    getTransactions().addAll(pendingTrxs);
+  }
+
+  public Assembler assembler() {
+    return new Assembler(this);
+  }
+
   public List<TransactionCapsule> getTransactions() {
     return transactions;
   }
@@ -394,4 +412,47 @@ public class BlockCapsule implements ProtoCapsule<Block> {
       return num;
     }
   }
+
+  /**
+   * Collects the transactions of a block being produced, keeping the serialized size of the
+   * block with them, the block is rebuilt once by seal instead of once per transaction.
+   */
+  public static class Assembler {
+
+    private final BlockCapsule blockCapsule;
+    private final List<TransactionCapsule> transactions = new ArrayList<>();
+    @Getter
+    private long serializedSize;
+
+    private Assembler(BlockCapsule blockCapsule) {
+      this.blockCapsule = blockCapsule;
+      this.serializedSize = blockCapsule.getInstance().getSerializedSize();
+    }
+
+    /**
+     * @return the serialized size of the block after adding trx.
+     */
+    public long sizeWith(TransactionCapsule trx) {
+      return serializedSize + CodedOutputStream
+          .computeMessageSize(Block.TRANSACTIONS_FIELD_NUMBER, trx.getInstance());
+    }
+
+    public void add(TransactionCapsule trx) {
+      serializedSize = sizeWith(trx);
+      transactions.add(trx);
+    }
+
+    public int size() {
+      return transactions.size();
+    }
+
+    /**
+     * Add the collected transactions to the block.
+     */
+    public BlockCapsule seal() {
+      blockCapsule.addTransactions(transactions);
+      transactions.clear();
+      return blockCapsule;
+    }
+  }
 }
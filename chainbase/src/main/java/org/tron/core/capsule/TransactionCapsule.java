@@ -35,6 +35,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -48,6 +49,7 @@ import org.tron.common.utils.ByteArray;
 import org.tron.common.utils.ReflectUtils;
 import org.tron.common.utils.Sha256Hash;
 import org.tron.core.actuator.TransactionFactory;
+import org.tron.core.capsule.utils.SignerCache;
 import org.tron.core.db.TransactionContext;
 import org.tron.core.db.TransactionTrace;
 import org.tron.core.exception.BadItemException;
@@ -88,12 +90,24 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
           .getValidContractProtoThreadNum());
   private static final String OWNER_ADDRESS = "ownerAddress_";
 
+  // raw hashes computed since the last reset, see resetHashCount
+  private static final LongAdder hashCount = new LongAdder();
+
   private Transaction transaction;
+  // hash of the raw data it was computed from, recomputed once the raw data is replaced
+  private RawHash rawHash;
+  // signers recovered ahead of validating the signatures, see recoverSigners
+  private Signers signers;
   @Setter
+  @Getter
   private boolean isVerified = false;
   @Setter
   @Getter
   private long blockNum = -1;
+  // position in the block, -1 if not processed as part of one
+  @Setter
+  @Getter
+  private int indexInBlock = -1;
   @Getter
   @Setter
   private TransactionTrace trxTrace;
@@ -201,6 +215,16 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   public static long checkWeight(Permission permission, List<ByteString> sigs, byte[] hash,
       List<ByteString> approveList)
       throws SignatureException, PermissionException, SignatureFormatException {
+    return checkWeight(permission, sigs, hash, approveList, null);
+  }
+
+  /**
+   * @param recovered the signer of each signature recovered beforehand, an address missing is
+   *     recovered here.
+   */
+  private static long checkWeight(Permission permission, List<ByteString> sigs, byte[] hash,
+      List<ByteString> approveList, byte[][] recovered)
+      throws SignatureException, PermissionException, SignatureFormatException {
     long currentWeight = 0;
     if (sigs.size() > permission.getKeysCount()) {
       throw new PermissionException(
@@ -208,14 +232,15 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
               + permission.getKeysCount());
     }
     HashMap addMap = new HashMap();
-    for (ByteString sig : sigs) {
+    for (int i = 0; i < sigs.size(); i++) {
+      ByteString sig = sigs.get(i);
       if (sig.size() < 65) {
         throw new SignatureFormatException(
             "Signature size is " + sig.size());
       }
       String base64 = TransactionCapsule.getBase64FromByteString(sig);
-      byte[] address = SignUtils
-          .signatureToAddress(hash, base64, CommonParameter.getInstance().isECKeyCryptoEngine());
+      byte[] address = recovered != null && recovered[i] != null ? recovered[i]
+          : SignerCache.signatureToAddress(hash, sig, base64);
       long weight = getWeight(permission, address);
       if (weight == 0) {
         throw new PermissionException(
@@ -435,6 +460,13 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   public static boolean validateSignature(Transaction transaction,
       byte[] hash, AccountStore accountStore, DynamicPropertiesStore dynamicPropertiesStore)
       throws PermissionException, SignatureException, SignatureFormatException {
+    return validateSignature(transaction, hash, accountStore, dynamicPropertiesStore, null);
+  }
+
+  private static boolean validateSignature(Transaction transaction,
+      byte[] hash, AccountStore accountStore, DynamicPropertiesStore dynamicPropertiesStore,
+      byte[][] recovered)
+      throws PermissionException, SignatureException, SignatureFormatException {
     Transaction.Contract contract = transaction.getRawData().getContractList().get(0);
     int permissionId = contract.getPermissionId();
     byte[] owner = getOwner(contract);
@@ -455,7 +487,8 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
       throw new PermissionException("permission isn't exit");
     }
     checkPermission(permissionId, permission, contract);
-    long weight = checkWeight(permission, transaction.getSignatureList(), hash, null);
+    long weight = checkWeight(permission, transaction.getSignatureList(), hash, null,
+        recovered);
     if (weight >= permission.getThreshold()) {
       return true;
     }
@@ -528,8 +561,56 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   }
 
   private Sha256Hash getRawHash() {
-    return Sha256Hash.of(CommonParameter.getInstance().isECKeyCryptoEngine(),
-        this.transaction.getRawData().toByteArray());
+    Transaction.raw rawData = this.transaction.getRawData();
+    RawHash cached = this.rawHash;
+    if (cached != null && cached.rawData == rawData) {
+      return cached.hash;
+    }
+    hashCount.increment();
+    cached = new RawHash(rawData, Sha256Hash.of(CommonParameter.getInstance()
+        .isECKeyCryptoEngine(), rawData.toByteArray()));
+    this.rawHash = cached;
+    return cached.hash;
+  }
+
+  /**
+   * Recover the signer of every signature, which does not depend on the state, so validating
+   * the signatures later only has to check them against the permission of the owner.
+   * A malformed signature is left to the validation to report.
+   */
+  public void recoverSigners() {
+    Transaction signed = this.transaction;
+    byte[] hash = getRawHash().getBytes();
+    List<ByteString> sigs = signed.getSignatureList();
+    byte[][] addresses = new byte[sigs.size()][];
+    for (int i = 0; i < sigs.size(); i++) {
+      if (sigs.get(i).size() < 65) {
+        continue;
+      }
+      try {
+        addresses[i] = SignerCache.signatureToAddress(hash, sigs.get(i),
+            getBase64FromByteString(sigs.get(i)));
+      } catch (SignatureException e) {
+        logger.debug("recover signer of {} failed, {}", getTransactionId(), e.getMessage());
+      }
+    }
+    this.signers = new Signers(signed.getRawData(), sigs, addresses);
+  }
+
+  private byte[][] getRecoveredSigners() {
+    Signers cached = this.signers;
+    if (cached != null && cached.rawData == transaction.getRawData()
+        && cached.sigs.equals(transaction.getSignatureList())) {
+      return cached.addresses;
+    }
+    return null;
+  }
+
+  /**
+   * @return the number of transaction ids computed since the last call.
+   */
+  public static long resetHashCount() {
+    return hashCount.sumThenReset();
   }
 
   public void sign(byte[] privateKey) {
@@ -608,7 +689,8 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
       byte[] hash = this.getRawHash().getBytes();
 
       try {
-        if (!validateSignature(this.transaction, hash, accountStore, dynamicPropertiesStore)) {
+        if (!validateSignature(this.transaction, hash, accountStore, dynamicPropertiesStore,
+            getRecoveredSigners())) {
           isVerified = false;
           throw new ValidateSignatureException("sig error");
         }
@@ -781,4 +863,30 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
       return null;
     }
   }
+
+  // immutable, so it is published safely to the other threads reading the id
+  private static final class RawHash {
+
+    private final Transaction.raw rawData;
+    private final Sha256Hash hash;
+
+    private RawHash(Transaction.raw rawData, Sha256Hash hash) {
+      this.rawData = rawData;
+      this.hash = hash;
+    }
+  }
+
+  // immutable as well, the signers hold for these raw data and signatures only
+  private static final class Signers {
+
+    private final Transaction.raw rawData;
+    private final List<ByteString> sigs;
+    private final byte[][] addresses;
+
+    private Signers(Transaction.raw rawData, List<ByteString> sigs, byte[][] addresses) {
+      this.rawData = rawData;
+      this.sigs = sigs;
+      this.addresses = addresses;
+    }
+  }
 }
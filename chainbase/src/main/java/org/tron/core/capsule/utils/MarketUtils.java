@@ -18,6 +18,7 @@ package org.tron.core.capsule.utils;
 import com.google.protobuf.ByteString;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Comparator;
 import org.tron.common.crypto.Hash;
 import org.tron.common.utils.ByteArray;
 import org.tron.common.utils.ByteUtil;
@@ -39,6 +40,8 @@ public class MarketUtils {
   public static final int TOKEN_ID_LENGTH = ByteArray
       .fromString(Long.toString(Long.MAX_VALUE)).length; // 19
 
+  public static final Comparator<byte[]> PRICE_KEY_COMPARATOR = MarketUtils::comparePriceKey;
+
   public static byte[] calculateOrderId(ByteString address, byte[] sellTokenId,
       byte[] buyTokenId, long count) {
 
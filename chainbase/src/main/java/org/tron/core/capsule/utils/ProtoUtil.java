@@ -0,0 +1,33 @@
+package org.tron.core.capsule.utils;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+
+public class ProtoUtil {
+
+  private ProtoUtil() {
+  }
+
+  /**
+   * Read one element of a repeated message field from a serialized message, the fields and
+   * elements before it are skipped by their length without being parsed.
+   *
+   * @return the serialized element, or null if the field has no more than index elements.
+   */
+  public static ByteString readRepeated(byte[] message, int fieldNumber, int index)
+      throws IOException {
+    CodedInputStream input = CodedInputStream.newInstance(message);
+    int count = 0;
+    for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+      if (WireFormat.getTagFieldNumber(tag) == fieldNumber
+          && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED
+          && count++ == index) {
+        return input.readBytes();
+      }
+      input.skipField(tag);
+    }
+    return null;
+  }
+}
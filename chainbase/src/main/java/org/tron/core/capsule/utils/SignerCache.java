@@ -0,0 +1,76 @@
+package org.tron.core.capsule.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.ByteString;
+import java.security.SignatureException;
+import java.util.concurrent.atomic.LongAdder;
+import org.tron.common.crypto.SignUtils;
+import org.tron.common.parameter.CommonParameter;
+import org.tron.core.db2.common.WrappedByteArray;
+
+/**
+ * Signer addresses recovered from a raw hash and a signature, shared by every validation of
+ * a transaction: when it is broadcast, pushed again after a block, processed in a block and
+ * processed again after a fork switch. The address only depends on the hash, the signature
+ * and the crypto engine, so an entry never has to be invalidated.
+ */
+public class SignerCache {
+
+  // null until init, signers are then recovered every time
+  private static volatile Cache<WrappedByteArray, byte[]> cache;
+  private static final LongAdder hitCount = new LongAdder();
+  private static final LongAdder missCount = new LongAdder();
+
+  private SignerCache() {
+  }
+
+  /**
+   * Replace the cache by an empty one of size entries, no cache if size is 0.
+   */
+  public static void init(long size) {
+    cache = size > 0 ? CacheBuilder.newBuilder().maximumSize(size)
+        .concurrencyLevel(Runtime.getRuntime().availableProcessors()).build() : null;
+  }
+
+  /**
+   * @param base64 sig in the base64 form SignUtils recovers from.
+   */
+  public static byte[] signatureToAddress(byte[] hash, ByteString sig, String base64)
+      throws SignatureException {
+    boolean isECKey = CommonParameter.getInstance().isECKeyCryptoEngine();
+    Cache<WrappedByteArray, byte[]> cache = SignerCache.cache;
+    if (cache == null) {
+      return SignUtils.signatureToAddress(hash, base64, isECKey);
+    }
+    byte[] key = new byte[1 + hash.length + sig.size()];
+    key[0] = (byte) (isECKey ? 1 : 0);
+    System.arraycopy(hash, 0, key, 1, hash.length);
+    sig.copyTo(key, 1 + hash.length);
+    WrappedByteArray k = WrappedByteArray.of(key);
+
+    byte[] address = cache.getIfPresent(k);
+    if (address != null) {
+      hitCount.increment();
+      return address;
+    }
+    missCount.increment();
+    address = SignUtils.signatureToAddress(hash, base64, isECKey);
+    cache.put(k, address);
+    return address;
+  }
+
+  /**
+   * @return the number of signers found in the cache since the last call.
+   */
+  public static long resetHitCount() {
+    return hitCount.sumThenReset();
+  }
+
+  /**
+   * @return the number of signers recovered since the last call.
+   */
+  public static long resetMissCount() {
+    return missCount.sumThenReset();
+  }
+}
@@ -18,6 +18,7 @@ package org.tron.core.db;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -52,6 +53,16 @@ public class BlockStore extends TronStoreWithRevoking<BlockCapsule> {
         .collect(Collectors.toList());
   }
 
+  /**
+   * @return the serialized block with number num, or of the first block after it if it is
+   *     missing, without parsing it.
+   */
+  public byte[] getRawByNum(long num) {
+    BlockId startBlockId = new BlockId(Sha256Hash.ZERO_HASH, num);
+    Set<byte[]> values = revokingDB.getValuesNext(startBlockId.getBytes(), 1);
+    return values.isEmpty() ? null : values.iterator().next();
+  }
+
   public List<BlockCapsule> getBlockByLatestNum(long getNum) {
 
     return revokingDB.getlatestValues(getNum).stream()
@@ -1,5 +1,10 @@
 package org.tron.core.db;
 
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Ints;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
@@ -11,8 +16,11 @@ import org.tron.common.utils.ByteArray;
 import org.tron.common.utils.Sha256Hash;
 import org.tron.core.capsule.BlockCapsule;
 import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.capsule.utils.ProtoUtil;
 import org.tron.core.db.KhaosDatabase.KhaosBlock;
 import org.tron.core.exception.BadItemException;
+import org.tron.protos.Protocol.Block;
+import org.tron.protos.Protocol.Transaction;
 
 @Slf4j(topic = "DB")
 @Component
@@ -24,6 +32,9 @@ public class TransactionStore extends TronStoreWithRevoking<TransactionCapsule>
   @Autowired
   private KhaosDatabase khaosDatabase;
 
+  // block number(8) | index in the block(4)
+  private static final int POSITION_LENGTH = 12;
+
   @Autowired
   private TransactionStore(@Value("trans") String dbName) {
     super(dbName);
@@ -33,11 +44,40 @@ public class TransactionStore extends TronStoreWithRevoking<TransactionCapsule>
   public void put(byte[] key, TransactionCapsule item) {
     if (Objects.isNull(item) || item.getBlockNum() == -1) {
       super.put(key, item);
-    } else {
+    } else if (item.getIndexInBlock() < 0) {
       revokingDB.put(key, ByteArray.fromLong(item.getBlockNum()));
+    } else {
+      revokingDB.put(key, Bytes.concat(ByteArray.fromLong(item.getBlockNum()),
+          Ints.toByteArray(item.getIndexInBlock())));
     }
   }
 
+  /**
+   * Decode only the transaction at index of the block, and check it is the one of key.
+   */
+  private TransactionCapsule getTransactionFromBlockStore(byte[] key, long blockNum,
+      int index) {
+    byte[] block = blockStore.getRawByNum(blockNum);
+    if (block == null) {
+      return null;
+    }
+
+    try {
+      ByteString transaction = ProtoUtil.readRepeated(block, Block.TRANSACTIONS_FIELD_NUMBER,
+          index);
+      if (transaction != null) {
+        TransactionCapsule e = new TransactionCapsule(Transaction.parseFrom(transaction));
+        if (e.getTransactionId().equals(Sha256Hash.wrap(key))) {
+          return e;
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("decode transaction {} of block {} failed, {}", index, blockNum,
+          e.getMessage());
+    }
+    return null;
+  }
+
   private TransactionCapsule getTransactionFromBlockStore(byte[] key, long blockNum) {
     List<BlockCapsule> blocksList = blockStore.getLimitNumber(blockNum, 1);
     if (blocksList.size() != 0) {
@@ -68,13 +108,24 @@ public class TransactionStore extends TronStoreWithRevoking<TransactionCapsule>
       return -1;
     }
 
-    if (value.length == 8) {
-      return ByteArray.toLong(value);
+    if (value.length == 8 || value.length == POSITION_LENGTH) {
+      return ByteArray.toLong(Arrays.copyOf(value, 8));
     }
     TransactionCapsule transactionCapsule = new TransactionCapsule(value);
     return transactionCapsule.getBlockNum();
   }
 
+  /**
+   * @return the index of the transaction of key in its block, or -1 if it is not known.
+   */
+  public int getIndexInBlock(byte[] key) {
+    byte[] value = revokingDB.getUnchecked(key);
+    if (value == null || value.length != POSITION_LENGTH) {
+      return -1;
+    }
+    return Ints.fromByteArray(Arrays.copyOfRange(value, 8, POSITION_LENGTH));
+  }
+
   @Override
   public TransactionCapsule get(byte[] key) throws BadItemException {
     byte[] value = revokingDB.getUnchecked(key);
@@ -85,7 +136,17 @@ public class TransactionStore extends TronStoreWithRevoking<TransactionCapsule>
     TransactionCapsule transactionCapsule = null;
     long blockHigh = -1;
 
-    if (value.length == 8) {
+    if (value.length == POSITION_LENGTH) {
+      blockHigh = ByteArray.toLong(Arrays.copyOf(value, 8));
+      transactionCapsule = getTransactionFromBlockStore(key, blockHigh,
+          Ints.fromByteArray(Arrays.copyOfRange(value, 8, POSITION_LENGTH)));
+      if (transactionCapsule == null) {
+        transactionCapsule = getTransactionFromBlockStore(key, blockHigh);
+      }
+      if (transactionCapsule == null) {
+        transactionCapsule = getTransactionFromKhaosDatabase(key, blockHigh);
+      }
+    } else if (value.length == 8) {
       blockHigh = ByteArray.toLong(value);
       transactionCapsule = getTransactionFromBlockStore(key, blockHigh);
       if (transactionCapsule == null) {
@@ -17,8 +17,11 @@
  */
 package org.tron.core.db.common;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.tron.common.storage.WriteBatchWrapper;
+import org.tron.common.storage.WriteOptionsWrapper;
 
 
 public interface DbSourceInter<V> extends BatchSourceInter<byte[], V>,
@@ -42,4 +45,10 @@ public interface DbSourceInter<V> extends BatchSourceInter<byte[], V>,
 
   long getTotal() throws RuntimeException;
 
+  List<byte[]> getKeysNext(byte[] key, long limit);
+
+  WriteBatchWrapper createWriteBatch();
+
+  void updateByBatch(WriteBatchWrapper batch, WriteOptionsWrapper writeOptions);
+
 }
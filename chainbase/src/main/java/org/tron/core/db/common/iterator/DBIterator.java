@@ -6,4 +6,8 @@ import java.util.Map.Entry;
 
 public interface DBIterator extends Iterator<Entry<byte[], byte[]>>, Closeable {
 
+  /**
+   * Position the iterator at the first key not less than key, in the order of the db.
+   */
+  void seek(byte[] key);
 }
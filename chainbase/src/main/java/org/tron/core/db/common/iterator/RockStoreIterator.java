@@ -22,6 +22,12 @@ public final class RockStoreIterator implements DBIterator {
     dbIterator.close();
   }
 
+  @Override
+  public void seek(byte[] key) {
+    dbIterator.seek(key);
+    first = false;
+  }
+
   @Override
   public boolean hasNext() {
     boolean hasNext = false;
@@ -10,6 +10,7 @@ public final class StoreIterator implements org.tron.core.db.common.iterator.DBI
 
   private DBIterator dbIterator;
   private boolean first = true;
+  private boolean closed = false;
 
   public StoreIterator(DBIterator dbIterator) {
     this.dbIterator = dbIterator;
@@ -17,7 +18,16 @@ public final class StoreIterator implements org.tron.core.db.common.iterator.DBI
 
   @Override
   public void close() throws IOException {
-    dbIterator.close();
+    if (!closed) {
+      closed = true;
+      dbIterator.close();
+    }
+  }
+
+  @Override
+  public void seek(byte[] key) {
+    dbIterator.seek(key);
+    first = false;
   }
 
   @Override
@@ -31,7 +41,7 @@ public final class StoreIterator implements org.tron.core.db.common.iterator.DBI
       }
 
       if (!(hasNext = dbIterator.hasNext())) { // false is last item
-        dbIterator.close();
+        close();
       }
     } catch (Exception e) {
       logger.debug(e.getMessage(), e);
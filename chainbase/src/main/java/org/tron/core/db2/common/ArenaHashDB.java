@@ -0,0 +1,338 @@
+package org.tron.core.db2.common;
+
+import com.google.common.collect.Maps;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.tron.core.db2.common.Value.Operator;
+
+/**
+ * A DB of a snapshot layer which keeps every row in one growing byte slab, indexed by an open
+ * addressing table of slab offsets, instead of a Key, a Value and their byte arrays per row.
+ * A record is laid out as hash(4) | key length(4) | value length(4, -1 for null) | operator(1)
+ * | key | value. Records are append only, an overwrite appends a new record and repoints the
+ * slot, the slab is compacted when it has to grow and most of it is garbage.
+ * Writes are serialized on the db, reads are lock free: a record is written before the slot
+ * pointing to it, and a grown slab is published before any slot pointing past the old one.
+ */
+public class ArenaHashDB implements DB<Key, Value> {
+
+  private static final int HEADER = 13;
+  private static final int EMPTY = 0;
+  // slots hold offset + 1, so 0 means empty
+  private static final int TOMBSTONE = -1;
+  private static final int INITIAL_SLOTS = 64;
+  private static final int INITIAL_ARENA = 16 * 1024;
+
+  private final String name;
+
+  private volatile State state = new State(new AtomicIntegerArray(INITIAL_SLOTS),
+      new byte[INITIAL_ARENA]);
+  // written under the lock of this db only
+  private volatile int size;
+  private int used;
+  private int position;
+  private int live;
+
+  public ArenaHashDB(String name) {
+    this.name = name;
+  }
+
+  private static final class State {
+
+    private final AtomicIntegerArray slots;
+    private final byte[] arena;
+
+    private State(AtomicIntegerArray slots, byte[] arena) {
+      this.slots = slots;
+      this.arena = arena;
+    }
+  }
+
+  @Override
+  public Value get(Key key) {
+    byte[] k = key.getData().getBytes();
+    int hash = hash(k);
+    State s = state;
+    AtomicIntegerArray slots = s.slots;
+    int mask = slots.length() - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      int slot = slots.get(i);
+      if (slot == EMPTY) {
+        return null;
+      }
+      if (slot == TOMBSTONE) {
+        continue;
+      }
+
+      // a slab is published before the slots pointing into it, so the latest slab of this
+      // table holds the record
+      State latest = state;
+      if (latest.slots != slots) {
+        // the table was rebuilt, start over on the new one
+        s = latest;
+        slots = s.slots;
+        mask = slots.length() - 1;
+        i = (hash & mask) - 1;
+        continue;
+      }
+      if (matches(latest.arena, slot - 1, k, hash)) {
+        return readValue(latest.arena, slot - 1);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void put(Key key, Value value) {
+    byte[] k = key.getData().getBytes();
+    byte[] v = value.getData().getBytes();
+    int hash = hash(k);
+    int recordSize = HEADER + k.length + (v == null ? 0 : v.length);
+    ensureArena(recordSize);
+    if (used + 1 > state.slots.length() >> 1) {
+      rebuild(state.slots.length() << 1, state.arena.length);
+    }
+
+    State s = state;
+    int offset = position;
+    writeRecord(s.arena, offset, hash, k, v, value.getOperator());
+    position += recordSize;
+
+    AtomicIntegerArray slots = s.slots;
+    int mask = slots.length() - 1;
+    int tombstone = -1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      int slot = slots.get(i);
+      if (slot == EMPTY) {
+        if (tombstone >= 0) {
+          i = tombstone;
+        } else {
+          ++used;
+        }
+        slots.set(i, offset + 1);
+        ++size;
+        live += recordSize;
+        return;
+      }
+      if (slot == TOMBSTONE) {
+        if (tombstone < 0) {
+          tombstone = i;
+        }
+        continue;
+      }
+      if (matches(s.arena, slot - 1, k, hash)) {
+        live += recordSize - recordSize(s.arena, slot - 1);
+        slots.set(i, offset + 1);
+        return;
+      }
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public synchronized void remove(Key key) {
+    byte[] k = key.getData().getBytes();
+    int hash = hash(k);
+    State s = state;
+    AtomicIntegerArray slots = s.slots;
+    int mask = slots.length() - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      int slot = slots.get(i);
+      if (slot == EMPTY) {
+        return;
+      }
+      if (slot != TOMBSTONE && matches(s.arena, slot - 1, k, hash)) {
+        live -= recordSize(s.arena, slot - 1);
+        slots.set(i, TOMBSTONE);
+        --size;
+        return;
+      }
+    }
+  }
+
+  @Override
+  public String getDbName() {
+    return name;
+  }
+
+  /**
+   * Iterate the rows at the time of the call, records are never rewritten in place, so the
+   * captured slab stays valid whatever is written afterwards.
+   */
+  @Override
+  public synchronized Iterator<Map.Entry<Key, Value>> iterator() {
+    byte[] arena = state.arena;
+    int[] offsets = new int[size];
+    int count = 0;
+    AtomicIntegerArray slots = state.slots;
+    for (int i = 0; i < slots.length(); i++) {
+      int slot = slots.get(i);
+      if (slot > EMPTY) {
+        offsets[count++] = slot - 1;
+      }
+    }
+
+    return new Iterator<Map.Entry<Key, Value>>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < offsets.length;
+      }
+
+      @Override
+      public Map.Entry<Key, Value> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int offset = offsets[index++];
+        return Maps.immutableEntry(Key.of(readKey(arena, offset)), readValue(arena, offset));
+      }
+    };
+  }
+
+  @Override
+  public synchronized void close() {
+    state = new State(new AtomicIntegerArray(INITIAL_SLOTS), new byte[0]);
+    size = 0;
+    used = 0;
+    position = 0;
+    live = 0;
+  }
+
+  @Override
+  public ArenaHashDB newInstance() {
+    return new ArenaHashDB(name);
+  }
+
+  private void ensureArena(int recordSize) {
+    byte[] arena = state.arena;
+    if (position + recordSize <= arena.length) {
+      return;
+    }
+
+    if (live + recordSize <= position >> 1) {
+      // more than half of the slab is overwritten records, compact instead of growing
+      rebuild(state.slots.length(), Math.max(arena.length, INITIAL_ARENA));
+      arena = state.arena;
+      if (position + recordSize <= arena.length) {
+        return;
+      }
+    }
+
+    long capacity = Math.max(arena.length, INITIAL_ARENA);
+    while (capacity < position + recordSize) {
+      capacity <<= 1;
+    }
+    if (capacity > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("snapshot layer " + name + " is too large");
+    }
+    // offsets stay valid, so the table is shared with the old slab
+    state = new State(state.slots, Arrays.copyOf(arena, (int) capacity));
+  }
+
+  /**
+   * Copy the live records into a new table and slab, dropping tombstones and garbage.
+   */
+  private void rebuild(int slotCount, int arenaCapacity) {
+    State old = state;
+    int capacity = Math.max(arenaCapacity, live);
+    AtomicIntegerArray slots = new AtomicIntegerArray(slotCount);
+    byte[] arena = new byte[capacity];
+    int mask = slotCount - 1;
+    int pos = 0;
+    for (int i = 0; i < old.slots.length(); i++) {
+      int slot = old.slots.get(i);
+      if (slot <= EMPTY) {
+        continue;
+      }
+
+      int length = recordSize(old.arena, slot - 1);
+      System.arraycopy(old.arena, slot - 1, arena, pos, length);
+      int j = readInt(arena, pos) & mask;
+      while (slots.get(j) != EMPTY) {
+        j = (j + 1) & mask;
+      }
+      slots.set(j, pos + 1);
+      pos += length;
+    }
+    used = size;
+    position = pos;
+    live = pos;
+    state = new State(slots, arena);
+  }
+
+  private static boolean matches(byte[] arena, int offset, byte[] key, int hash) {
+    if (readInt(arena, offset) != hash || readInt(arena, offset + 4) != key.length) {
+      return false;
+    }
+    int start = offset + HEADER;
+    for (int i = 0; i < key.length; i++) {
+      if (arena[start + i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeRecord(byte[] arena, int offset, int hash, byte[] key, byte[] value,
+      Operator operator) {
+    writeInt(arena, offset, hash);
+    writeInt(arena, offset + 4, key.length);
+    writeInt(arena, offset + 8, value == null ? -1 : value.length);
+    arena[offset + 12] = operator.getValue();
+    System.arraycopy(key, 0, arena, offset + HEADER, key.length);
+    if (value != null) {
+      System.arraycopy(value, 0, arena, offset + HEADER + key.length, value.length);
+    }
+  }
+
+  private static int recordSize(byte[] arena, int offset) {
+    int valueLength = readInt(arena, offset + 8);
+    return HEADER + readInt(arena, offset + 4) + Math.max(valueLength, 0);
+  }
+
+  private static byte[] readKey(byte[] arena, int offset) {
+    int start = offset + HEADER;
+    return Arrays.copyOfRange(arena, start, start + readInt(arena, offset + 4));
+  }
+
+  private static Value readValue(byte[] arena, int offset) {
+    Operator operator = Operator.valueOf(arena[offset + 12]);
+    int valueLength = readInt(arena, offset + 8);
+    if (valueLength < 0) {
+      return Value.of(operator, null);
+    }
+    int start = offset + HEADER + readInt(arena, offset + 4);
+    return Value.of(operator, Arrays.copyOfRange(arena, start, start + valueLength));
+  }
+
+  private static int hash(byte[] key) {
+    int h = Arrays.hashCode(key);
+    // spread the high bits, the table is indexed by the low ones
+    return h ^ (h >>> 16);
+  }
+
+  private static int readInt(byte[] b, int offset) {
+    return (b[offset] & 0xFF) << 24 | (b[offset + 1] & 0xFF) << 16
+        | (b[offset + 2] & 0xFF) << 8 | (b[offset + 3] & 0xFF);
+  }
+
+  private static void writeInt(byte[] b, int offset, int value) {
+    b[offset] = (byte) (value >>> 24);
+    b[offset + 1] = (byte) (value >>> 16);
+    b[offset + 2] = (byte) (value >>> 8);
+    b[offset + 3] = (byte) value;
+  }
+}
@@ -0,0 +1,66 @@
+package org.tron.core.db2.common;
+
+import java.io.Closeable;
+import java.util.Map;
+import lombok.Getter;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.tron.common.storage.WriteBatchWrapper;
+import org.tron.common.storage.rocksdb.RocksDbDataSourceImpl;
+import org.tron.common.storage.rocksdb.SharedRocksDb;
+import org.tron.core.db.common.DbSourceInter;
+
+/**
+ * Rows of several dbs committed all or none, in one WriteBatch of the SharedRocksDb those dbs
+ * are column families of, see storage.db.columnFamilies.
+ */
+public class AtomicBatch implements Closeable {
+
+  @Getter
+  private final SharedRocksDb shared;
+  private final WriteBatch batch = new WriteBatch();
+
+  public AtomicBatch(SharedRocksDb shared) {
+    this.shared = shared;
+  }
+
+  /**
+   * @return the instance db is a column family of, or null.
+   */
+  public static SharedRocksDb sharedOf(DB<byte[], byte[]> db) {
+    return db instanceof RocksDB ? ((RocksDB) db).getDb().getShared() : null;
+  }
+
+  /**
+   * @return the instance source is a column family of, or null.
+   */
+  public static SharedRocksDb sharedOf(DbSourceInter<byte[]> source) {
+    return source instanceof RocksDbDataSourceImpl
+        ? ((RocksDbDataSourceImpl) source).getShared() : null;
+  }
+
+  public void put(DB<byte[], byte[]> db, Map<WrappedByteArray, WrappedByteArray> rows) {
+    ((RocksDB) db).appendTo(batch, rows);
+  }
+
+  /**
+   * @return a writer of rows of source into this batch, which must not be closed.
+   */
+  public WriteBatchWrapper writerOf(DbSourceInter<byte[]> source) {
+    return ((RocksDbDataSourceImpl) source).wrap(batch);
+  }
+
+  public void commit(boolean sync) {
+    try (WriteOptions options = new WriteOptions().setSync(sync)) {
+      shared.write(options, batch);
+    } catch (RocksDBException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    batch.close();
+  }
+}
@@ -0,0 +1,78 @@
+package org.tron.core.db2.common;
+
+import java.util.Arrays;
+
+/**
+ * A count-min sketch estimating how often a key has been accessed recently.
+ * Counters saturate at 15 and are halved once the number of increments reaches
+ * the sample size, so the estimate favours recent popularity (TinyLFU aging).
+ * Not thread safe, the owner must synchronize.
+ */
+public final class FrequencySketch {
+
+  private static final int MAX_COUNT = 15;
+  private static final int DEPTH = 4;
+  private static final int[] SEEDS = {0x97cb3127, 0x2b6a3c45, 0x7e3f1d9b, 0x5bd1e995};
+
+  private final byte[] table;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  public FrequencySketch(int expectedEntries) {
+    int width = tableSizeFor(Math.max(expectedEntries, 64));
+    table = new byte[width * DEPTH];
+    mask = width - 1;
+    sampleSize = 10 * width;
+  }
+
+  private static int tableSizeFor(int n) {
+    int size = Integer.highestOneBit(Math.min(n, 1 << 24) - 1) << 1;
+    return Math.max(size, 1);
+  }
+
+  public int frequency(byte[] key) {
+    int hash = spread(Arrays.hashCode(key));
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < DEPTH; i++) {
+      frequency = Math.min(frequency, table[indexOf(hash, i)]);
+    }
+    return frequency;
+  }
+
+  public void increment(byte[] key) {
+    int hash = spread(Arrays.hashCode(key));
+    boolean added = false;
+    for (int i = 0; i < DEPTH; i++) {
+      int index = indexOf(hash, i);
+      if (table[index] < MAX_COUNT) {
+        table[index]++;
+        added = true;
+      }
+    }
+
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (byte) (table[i] >>> 1);
+    }
+    additions >>>= 1;
+  }
+
+  private int indexOf(int hash, int row) {
+    int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+    h ^= h >>> 16;
+    return row * (mask + 1) + (h & mask);
+  }
+
+  private static int spread(int h) {
+    h ^= h >>> 17;
+    h *= 0xed5ad4bb;
+    h ^= h >>> 11;
+    return h;
+  }
+}
@@ -20,6 +20,11 @@ public final class Key {
     return new Key(WrappedByteArray.of(bytes));
   }
 
+  // the wrapped bytes without a copy, for the DB implementations of this package
+  WrappedByteArray getData() {
+    return data;
+  }
+
   public byte[] getBytes() {
     byte[] key = data.getBytes();
     if (key == null) {
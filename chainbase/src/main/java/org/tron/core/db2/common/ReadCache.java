@@ -0,0 +1,282 @@
+package org.tron.core.db2.common;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+/**
+ * Byte budgeted LRU cache of the rows persisted in a SnapshotRoot.
+ * A new row is only admitted when the cache is full if it has been accessed
+ * more frequently than the rows it would evict (TinyLFU admission), so one-off
+ * scans do not flush the hot set. Writes bump a version, a reader that loaded a
+ * row from disk before a concurrent write will not fill it into the cache.
+ * The keys are striped over segments with their own lock and share of the budget,
+ * so concurrent readers of different keys rarely wait for each other.
+ */
+public class ReadCache {
+
+  // approximate heap cost of an entry beside its key and value bytes
+  private static final int ENTRY_OVERHEAD = 96;
+  private static final int AVERAGE_ENTRY_SIZE = 256;
+  private static final int MAX_SEGMENTS = 16;
+  private static final long MIN_SEGMENT_BYTES = 1024 * 1024;
+
+  @Getter
+  private final String name;
+  @Getter
+  private final long maxBytes;
+
+  private final Segment[] segments;
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final LongAdder rejectCount = new LongAdder();
+  private final AtomicLong reportedHits = new AtomicLong();
+  private final AtomicLong reportedMisses = new AtomicLong();
+
+  public ReadCache(String name, long maxBytes) {
+    this.name = name;
+    this.maxBytes = maxBytes;
+    int count = 1;
+    while (count < MAX_SEGMENTS && maxBytes / (count * 2) >= MIN_SEGMENT_BYTES) {
+      count <<= 1;
+    }
+    segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new Segment(maxBytes / count);
+    }
+  }
+
+  private static long weigh(byte[] key, byte[] value) {
+    return ENTRY_OVERHEAD + key.length + value.length;
+  }
+
+  private Segment segmentFor(byte[] key) {
+    int h = Arrays.hashCode(key);
+    h ^= h >>> 16;
+    return segments[h & (segments.length - 1)];
+  }
+
+  /**
+   * @return a copy of the cached value, or null on a miss.
+   */
+  public byte[] get(byte[] key) {
+    byte[] value = segmentFor(key).get(key);
+    if (value == null) {
+      missCount.increment();
+      return null;
+    }
+
+    hitCount.increment();
+    return value;
+  }
+
+  /**
+   * The version to pass to {@link #fill(byte[], byte[], long)} after loading a missed row.
+   */
+  public long version(byte[] key) {
+    return segmentFor(key).version();
+  }
+
+  /**
+   * Cache a row loaded from disk, unless the store was written since {@code readVersion}.
+   */
+  public void fill(byte[] key, byte[] value, long readVersion) {
+    segmentFor(key).fill(key, value, readVersion);
+  }
+
+  /**
+   * Apply a write to the store, a null value deletes the row.
+   */
+  public void put(byte[] key, byte[] value) {
+    segmentFor(key).update(WrappedByteArray.copyOf(key),
+        value == null ? null : Arrays.copyOf(value, value.length));
+  }
+
+  public void remove(byte[] key) {
+    segmentFor(key).update(WrappedByteArray.of(key), null);
+  }
+
+  /**
+   * Apply a flushed batch, the values are owned by the cache afterwards.
+   */
+  public void putAll(Map<WrappedByteArray, WrappedByteArray> batch) {
+    batch.forEach((k, v) -> segmentFor(k.getBytes()).update(k, v.getBytes()));
+  }
+
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  public long getUsedBytes() {
+    long usedBytes = 0;
+    for (Segment segment : segments) {
+      usedBytes += segment.usedBytes();
+    }
+    return usedBytes;
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * @return hits since the last call.
+   */
+  public long resetHitCount() {
+    long hits = hitCount.sum();
+    return hits - reportedHits.getAndSet(hits);
+  }
+
+  /**
+   * @return misses since the last call.
+   */
+  public long resetMissCount() {
+    long misses = missCount.sum();
+    return misses - reportedMisses.getAndSet(misses);
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  public long getRejectCount() {
+    return rejectCount.sum();
+  }
+
+  public double hitRate() {
+    long hit = getHitCount();
+    long total = hit + getMissCount();
+    return total == 0 ? 1.0 : (double) hit / total;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: size=%d, bytes=%d/%d, hitRate=%.4f, evicted=%d, rejected=%d",
+        name, size(), getUsedBytes(), maxBytes, hitRate(), getEvictionCount(),
+        getRejectCount());
+  }
+
+  private class Segment {
+
+    private final long maxBytes;
+    private long usedBytes;
+    private long version;
+
+    private final LinkedHashMap<WrappedByteArray, byte[]> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    Segment(long maxBytes) {
+      this.maxBytes = maxBytes;
+      this.sketch = new FrequencySketch(
+          (int) Math.min(Integer.MAX_VALUE, maxBytes / AVERAGE_ENTRY_SIZE));
+    }
+
+    synchronized byte[] get(byte[] key) {
+      sketch.increment(key);
+      byte[] value = entries.get(WrappedByteArray.of(key));
+      return value == null ? null : Arrays.copyOf(value, value.length);
+    }
+
+    synchronized long version() {
+      return version;
+    }
+
+    synchronized void fill(byte[] key, byte[] value, long readVersion) {
+      if (readVersion != version || entries.containsKey(WrappedByteArray.of(key))) {
+        return;
+      }
+
+      admit(WrappedByteArray.copyOf(key), Arrays.copyOf(value, value.length));
+    }
+
+    synchronized void clear() {
+      ++version;
+      entries.clear();
+      usedBytes = 0;
+    }
+
+    synchronized int size() {
+      return entries.size();
+    }
+
+    synchronized long usedBytes() {
+      return usedBytes;
+    }
+
+    synchronized void update(WrappedByteArray key, byte[] value) {
+      ++version;
+      byte[] old = value == null ? entries.remove(key) : entries.get(key);
+      if (old == null) {
+        if (value != null) {
+          admit(key, value);
+        }
+        return;
+      }
+
+      if (value == null) {
+        usedBytes -= weigh(key.getBytes(), old);
+        return;
+      }
+
+      entries.put(key, value);
+      usedBytes += value.length - old.length;
+      evict();
+    }
+
+    private void admit(WrappedByteArray key, byte[] value) {
+      long weight = weigh(key.getBytes(), value);
+      if (weight > maxBytes) {
+        rejectCount.increment();
+        return;
+      }
+
+      int frequency = sketch.frequency(key.getBytes());
+      Iterator<Map.Entry<WrappedByteArray, byte[]>> it = entries.entrySet().iterator();
+      long reclaimable = 0;
+      // check the victims before touching them, a rejected candidate must not evict anything
+      while (usedBytes - reclaimable + weight > maxBytes && it.hasNext()) {
+        Map.Entry<WrappedByteArray, byte[]> victim = it.next();
+        if (sketch.frequency(victim.getKey().getBytes()) >= frequency) {
+          rejectCount.increment();
+          return;
+        }
+        reclaimable += weigh(victim.getKey().getBytes(), victim.getValue());
+      }
+
+      entries.put(key, value);
+      usedBytes += weight;
+      evict();
+    }
+
+    private void evict() {
+      Iterator<Map.Entry<WrappedByteArray, byte[]>> it = entries.entrySet().iterator();
+      while (usedBytes > maxBytes && it.hasNext()) {
+        Map.Entry<WrappedByteArray, byte[]> eldest = it.next();
+        usedBytes -= weigh(eldest.getKey().getBytes(), eldest.getValue());
+        it.remove();
+        evictionCount.increment();
+      }
+    }
+  }
+}
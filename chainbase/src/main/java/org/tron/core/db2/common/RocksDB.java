@@ -4,6 +4,7 @@ import com.google.common.collect.Maps;
 import java.util.HashMap;
 import java.util.Map;
 import lombok.Getter;
+import org.rocksdb.WriteBatch;
 import org.tron.common.parameter.CommonParameter;
 import org.tron.common.storage.WriteOptionsWrapper;
 import org.tron.common.storage.rocksdb.RocksDbDataSourceImpl;
@@ -58,10 +59,21 @@ public class RocksDB implements DB<byte[], byte[]>, Flusher {
 
   @Override
   public void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
-    Map<byte[], byte[]> rows = batch.entrySet().stream()
+    db.updateByBatch(toRows(batch), optionsWrapper);
+  }
+
+  /**
+   * Append batch to a WriteBatch of the shared instance this db is a column family of, the
+   * caller writes it along with the other column families.
+   */
+  public void appendTo(WriteBatch to, Map<WrappedByteArray, WrappedByteArray> batch) {
+    db.appendTo(to, toRows(batch));
+  }
+
+  private static Map<byte[], byte[]> toRows(Map<WrappedByteArray, WrappedByteArray> batch) {
+    return batch.entrySet().stream()
         .map(e -> Maps.immutableEntry(e.getKey().getBytes(), e.getValue().getBytes()))
         .collect(HashMap::new, (m, k) -> m.put(k.getKey(), k.getValue()), HashMap::putAll);
-    db.updateByBatch(rows, optionsWrapper);
   }
 
   @Override
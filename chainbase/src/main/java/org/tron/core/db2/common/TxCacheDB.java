@@ -1,17 +1,25 @@
 package org.tron.core.db2.common;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Iterators;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.common.primitives.Longs;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collection;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.iq80.leveldb.WriteOptions;
 import org.tron.common.parameter.CommonParameter;
@@ -20,15 +28,40 @@ import org.tron.common.storage.rocksdb.RocksDbDataSourceImpl;
 import org.tron.common.utils.StorageUtils;
 import org.tron.core.db.common.iterator.DBIterator;
 
+/**
+ * The transaction ids of the last BLOCK_COUNT blocks, used to reject duplicated transactions.
+ * The ids of a block are packed in one bucket of a ring indexed by block number, so dropping
+ * the eldest block is dropping the bucket the next block reuses. An open addressing table of
+ * primitive arrays finds the bucket and offset of an id, without an object per transaction.
+ * A clean shutdown writes the buckets to a snapshot file read back at startup instead of
+ * iterating the persistent store.
+ */
 @Slf4j(topic = "DB")
 public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
 
   // > 65_536(= 2^16) blocks, that is the number of the reference block
-  private final int BLOCK_COUNT = 70_000;
+  private static final int BLOCK_COUNT = 70_000;
 
-  private Map<Key, Long> db = new WeakHashMap<>();
-  private Multimap<Long, Key> blockNumMap = ArrayListMultimap.create();
+  private static final String SNAPSHOT_FILE = "tx-cache.snapshot";
+  private static final int SNAPSHOT_MAGIC = 0x54584348;
+  private static final int SNAPSHOT_VERSION = 2;
+
+  // a reference is the block number and the offset of an id in the bucket of the block
+  private static final int OFFSET_BITS = 24;
+  private static final int OFFSET_MASK = (1 << OFFSET_BITS) - 1;
+  private static final int INITIAL_CAPACITY = 1 << 16;
+  private static final int MAX_KEY_LENGTH = 0xFFFF;
+
+  private final Bucket[] ring = new Bucket[BLOCK_COUNT];
+  // the hash of the id, 0 for an empty slot
+  private long[] hashes = new long[INITIAL_CAPACITY];
+  private long[] refs = new long[INITIAL_CAPACITY];
+  private int count;
+  private long latestBlockNum = -1;
   private String name;
+  private Path snapshotPath;
+  // the files of persistent storage before it is opened, see storeStamp
+  private long storeStamp;
 
   // add a persistent storage, the store name is: trans-cache
   // when fullnode startup, transactionCache initializes transactions from this store
@@ -39,6 +72,12 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
 
     int dbVersion = CommonParameter.getInstance().getStorage().getDbVersion();
     String dbEngine = CommonParameter.getInstance().getStorage().getDbEngine();
+    String parentPath = Paths
+        .get(StorageUtils.getOutputDirectoryByDbName(name), CommonParameter
+            .getInstance().getStorage().getDbDirectory()).toString();
+    // the snapshot lives in the directory of the store, so it goes away with the store
+    this.snapshotPath = Paths.get(parentPath, name, SNAPSHOT_FILE);
+    this.storeStamp = storeStamp();
     if (dbVersion == 2) {
       if ("LEVELDB".equals(dbEngine.toUpperCase())) {
         this.persistentStore = new LevelDB(
@@ -47,10 +86,6 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
                                 new WriteOptions().sync(CommonParameter.getInstance()
                                         .getStorage().isDbSync())));
       } else if ("ROCKSDB".equals(dbEngine.toUpperCase())) {
-        String parentPath = Paths
-                .get(StorageUtils.getOutputDirectoryByDbName(name), CommonParameter
-                        .getInstance().getStorage().getDbDirectory()).toString();
-
         this.persistentStore = new RocksDB(
                         new RocksDbDataSourceImpl(parentPath,
                                 name, CommonParameter.getInstance()
@@ -65,10 +100,71 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
     init();
   }
 
+  private static final class Bucket {
+
+    private long blockNum;
+    private byte[] data = new byte[256];
+    private int length;
+
+    private Bucket(long blockNum) {
+      this.blockNum = blockNum;
+    }
+
+    /**
+     * @return the offset of key, stored as a 2 bytes length and the bytes.
+     */
+    private int append(byte[] key) {
+      int offset = length;
+      if (offset > OFFSET_MASK) {
+        throw new IllegalStateException("too many transactions in block " + blockNum);
+      }
+      if (length + 2 + key.length > data.length) {
+        data = Arrays.copyOf(data, Math.max(data.length * 2, length + 2 + key.length));
+      }
+      data[length++] = (byte) (key.length >>> 8);
+      data[length++] = (byte) key.length;
+      System.arraycopy(key, 0, data, length, key.length);
+      length += key.length;
+      return offset;
+    }
+
+    private int keyLength(int offset) {
+      return (data[offset] & 0xFF) << 8 | data[offset + 1] & 0xFF;
+    }
+
+    private byte[] key(int offset) {
+      return Arrays.copyOfRange(data, offset + 2, offset + 2 + keyLength(offset));
+    }
+
+    private boolean matches(int offset, byte[] key) {
+      int keyLength = keyLength(offset);
+      if (keyLength != key.length) {
+        return false;
+      }
+      for (int i = 0; i < keyLength; i++) {
+        if (data[offset + 2 + i] != key[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int next(int offset) {
+      return offset + 2 + keyLength(offset);
+    }
+  }
+
   /**
-   * this method only used for init, put all data in tran-cache into the two maps.
+   * this method only used for init, load the snapshot of the last clean shutdown or put all
+   * data in tran-cache into the ring.
    */
   private void init() {
+    long start = System.currentTimeMillis();
+    if (loadSnapshot()) {
+      logger.info("load {} transactions from {} in {} ms", count, snapshotPath,
+          System.currentTimeMillis() - start);
+      return;
+    }
     DBIterator iterator = (DBIterator) persistentStore.iterator();
     while (iterator.hasNext()) {
       Entry<byte[], byte[]> entry = iterator.next();
@@ -77,64 +173,358 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
       if (key == null || value == null) {
         return;
       }
-      Key k = Key.copyOf(key);
-      Long v = Longs.fromByteArray(value);
-      blockNumMap.put(v, k);
-      db.put(k, v);
+      // out of the window of the blocks already loaded
+      if (!add(key, Longs.fromByteArray(value))) {
+        persistentStore.remove(key);
+      }
     }
+    logger.info("load {} transactions from {} in {} ms", count, name,
+        System.currentTimeMillis() - start);
   }
 
   @Override
-  public byte[] get(byte[] key) {
-    Long v = db.get(Key.of(key));
-    return v == null ? null : Longs.toByteArray(v);
+  public synchronized byte[] get(byte[] key) {
+    int slot = find(key, hash(key));
+    return slot < 0 ? null : Longs.toByteArray(refs[slot] >>> OFFSET_BITS);
   }
 
   @Override
-  public void put(byte[] key, byte[] value) {
+  public synchronized void put(byte[] key, byte[] value) {
     if (key == null || value == null) {
       return;
     }
+    if (add(key, Longs.fromByteArray(value))) {
+      // put the data into persistent storage
+      persistentStore.put(key, value);
+    }
+  }
+
+  /**
+   * Add key to the bucket of blockNum, dropping the blocks which leave the window.
+   *
+   * @return false if blockNum is out of the window of the last BLOCK_COUNT blocks.
+   */
+  private boolean add(byte[] key, long blockNum) {
+    if (key.length > MAX_KEY_LENGTH) {
+      throw new IllegalArgumentException("key is too long: " + key.length);
+    }
+    if (blockNum <= latestBlockNum - BLOCK_COUNT) {
+      return false;
+    }
+    if (blockNum > latestBlockNum) {
+      removeEldest(latestBlockNum, blockNum);
+      latestBlockNum = blockNum;
+    }
+    int index = (int) (blockNum % BLOCK_COUNT);
+    Bucket bucket = ring[index];
+    if (bucket == null) {
+      bucket = new Bucket(blockNum);
+      ring[index] = bucket;
+    } else if (bucket.blockNum != blockNum) {
+      // the block it held has left the window and is removed already
+      bucket.blockNum = blockNum;
+      bucket.length = 0;
+    }
+
+    long hash = hash(key);
+    int slot = find(key, hash);
+    if (slot >= 0 && refs[slot] >>> OFFSET_BITS == blockNum) {
+      return true;
+    }
+    long ref = blockNum << OFFSET_BITS | bucket.append(key);
+    if (slot >= 0) {
+      refs[slot] = ref;
+      return true;
+    }
+    insert(hash, ref);
+    return true;
+  }
+
+  /**
+   * The latest block moves from from to to, the blocks leaving the window can only be in the
+   * buckets of the blocks after from, so it is O(1) per block.
+   */
+  private void removeEldest(long from, long to) {
+    for (long blockNum = Math.max(from, to - BLOCK_COUNT) + 1; blockNum <= to; blockNum++) {
+      Bucket bucket = ring[(int) (blockNum % BLOCK_COUNT)];
+      if (bucket != null && bucket.length > 0 && bucket.blockNum <= to - BLOCK_COUNT) {
+        removeEldest(bucket);
+      }
+    }
+  }
+
+  /**
+   * Remove the ids of the bucket from the index and from persistent storage, except the ids
+   * put again by a later block.
+   */
+  private void removeEldest(Bucket bucket) {
+    int removed = 0;
+    for (int offset = 0; offset < bucket.length; offset = bucket.next(offset)) {
+      byte[] key = bucket.key(offset);
+      int slot = find(key, hash(key));
+      if (slot >= 0) {
+        if (refs[slot] != (bucket.blockNum << OFFSET_BITS | offset)) {
+          continue;
+        }
+        delete(slot);
+      }
+      // if foreach is inefficient, change remove-foreach to remove-batch
+      persistentStore.remove(key);
+      removed++;
+    }
+    bucket.length = 0;
+    logger.debug("******removeEldest block number:{}, removed:{}", bucket.blockNum, removed);
+  }
+
+  /**
+   * @return the slot of key, or -1.
+   */
+  private int find(byte[] key, long hash) {
+    int mask = hashes.length - 1;
+    for (int slot = (int) hash & mask; hashes[slot] != 0; slot = (slot + 1) & mask) {
+      if (hashes[slot] == hash && matches(refs[slot], key)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private boolean matches(long ref, byte[] key) {
+    long blockNum = ref >>> OFFSET_BITS;
+    Bucket bucket = ring[(int) (blockNum % BLOCK_COUNT)];
+    return bucket != null && bucket.blockNum == blockNum
+        && bucket.matches((int) (ref & OFFSET_MASK), key);
+  }
+
+  private void insert(long hash, long ref) {
+    if (++count > hashes.length / 10 * 7) {
+      resize(hashes.length * 2);
+    }
+    int mask = hashes.length - 1;
+    int slot = (int) hash & mask;
+    while (hashes[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    hashes[slot] = hash;
+    refs[slot] = ref;
+  }
+
+  private void resize(int capacity) {
+    long[] oldHashes = hashes;
+    long[] oldRefs = refs;
+    hashes = new long[capacity];
+    refs = new long[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldHashes.length; i++) {
+      if (oldHashes[i] != 0) {
+        int slot = (int) oldHashes[i] & mask;
+        while (hashes[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        hashes[slot] = oldHashes[i];
+        refs[slot] = oldRefs[i];
+      }
+    }
+  }
+
+  /**
+   * Remove the entry of slot, moving back the entries after it so no probe sequence is broken.
+   */
+  private void delete(int slot) {
+    int mask = hashes.length - 1;
+    int hole = slot;
+    for (int i = (hole + 1) & mask; hashes[i] != 0; i = (i + 1) & mask) {
+      int home = (int) hashes[i] & mask;
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        hashes[hole] = hashes[i];
+        refs[hole] = refs[i];
+        hole = i;
+      }
+    }
+    hashes[hole] = 0;
+    refs[hole] = 0;
+    count--;
+  }
+
+  private static long hash(byte[] key) {
+    long h = 0x9E3779B97F4A7C15L ^ key.length;
+    int i = 0;
+    for (; i + 8 <= key.length; i += 8) {
+      h = Long.rotateLeft(h ^ Longs.fromBytes(key[i], key[i + 1], key[i + 2], key[i + 3],
+          key[i + 4], key[i + 5], key[i + 6], key[i + 7]) * 0xBF58476D1CE4E5B9L, 31);
+    }
+    for (; i < key.length; i++) {
+      h = Long.rotateLeft(h ^ (key[i] & 0xFFL) * 0xBF58476D1CE4E5B9L, 31);
+    }
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h == 0 ? 1 : h;
+  }
+
+  /**
+   * Read the snapshot written by the last clean shutdown, it is deleted once read, so after a
+   * crash the ring is loaded from persistent storage again. The snapshot is only used if the
+   * store was not opened since it was written, e.g. by a version without snapshots, and still
+   * holds the ids of the latest block of the snapshot.
+   *
+   * @return false if there is no usable snapshot.
+   */
+  private boolean loadSnapshot() {
+    if (!Files.exists(snapshotPath)) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshotPath), 1 << 16))) {
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION
+          || in.readInt() != BLOCK_COUNT) {
+        throw new IOException("unknown snapshot format");
+      }
+      if (in.readLong() != storeStamp) {
+        throw new IOException("store was opened after the snapshot");
+      }
+      for (long blockNum = in.readLong(); blockNum >= 0; blockNum = in.readLong()) {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+          byte[] key = new byte[in.readUnsignedShort()];
+          in.readFully(key);
+          add(key, blockNum);
+        }
+      }
+      if (!isLatestBlockStored()) {
+        throw new IOException("latest block " + latestBlockNum + " is not in the store");
+      }
+      return true;
+    } catch (EOFException e) {
+      logger.warn("snapshot {} is truncated", snapshotPath);
+      clear();
+      return false;
+    } catch (IOException e) {
+      logger.warn("read snapshot {} failed, {}", snapshotPath, e.getMessage());
+      clear();
+      return false;
+    } finally {
+      try {
+        Files.deleteIfExists(snapshotPath);
+      } catch (IOException e) {
+        logger.warn("delete snapshot {} failed, {}", snapshotPath, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * @return true if the ids of the latest block are in persistent storage with that block.
+   */
+  private boolean isLatestBlockStored() {
+    if (latestBlockNum < 0) {
+      return true;
+    }
+    Bucket bucket = ring[(int) (latestBlockNum % BLOCK_COUNT)];
+    for (int offset = 0; offset < bucket.length; offset = bucket.next(offset)) {
+      byte[] value = persistentStore.get(bucket.key(offset));
+      if (value == null || Longs.fromByteArray(value) != latestBlockNum) {
+        return false;
+      }
+    }
+    return true;
+  }
 
-    Key k = Key.copyOf(key);
-    Long v = Longs.fromByteArray(value);
-    blockNumMap.put(v, k);
-    db.put(k, v);
-    // put the data into persistent storage
-    persistentStore.put(key, value);
-    removeEldest();
+  /**
+   * Every open of a LevelDB or RocksDB store starts a new log and manifest, so the names and
+   * sizes of its files taken while it is closed tell whether it was opened in between.
+   *
+   * @return hash of the names and sizes of the files of persistent storage.
+   */
+  private long storeStamp() {
+    Path dir = snapshotPath.getParent();
+    if (!Files.isDirectory(dir)) {
+      return 0;
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      return hash(files.map(Path::toFile)
+          .filter(file -> !file.getName().startsWith(SNAPSHOT_FILE))
+          .map(file -> file.getName() + ':' + file.length())
+          .sorted()
+          .collect(Collectors.joining(","))
+          .getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      logger.warn("list {} failed, {}", dir, e.getMessage());
+      return 0;
+    }
   }
 
-  private void removeEldest() {
-    Set<Long> keys = blockNumMap.keySet();
-    if (keys.size() > BLOCK_COUNT) {
-      keys.stream()
-          .min(Long::compareTo)
-          .ifPresent(k -> {
-            Collection<Key> trxHashs = blockNumMap.get(k);
-            // remove transaction from persistentStore,
-            // if foreach is inefficient, change remove-foreach to remove-batch
-            trxHashs.forEach(key -> persistentStore.remove(key.getBytes()));
-            blockNumMap.removeAll(k);
-            logger.debug("******removeEldest block number:{}, block count:{}", k, keys.size());
-          });
+  /**
+   * Write the ring after persistent storage is closed, stamped with the files it left.
+   */
+  private void writeSnapshot() {
+    long start = System.currentTimeMillis();
+    Path tmp = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(BLOCK_COUNT);
+        out.writeLong(storeStamp());
+        for (Bucket bucket : ring) {
+          if (bucket == null || bucket.length == 0) {
+            continue;
+          }
+          int size = 0;
+          for (int offset = 0; offset < bucket.length; offset = bucket.next(offset)) {
+            if (isLive(bucket, offset)) {
+              size++;
+            }
+          }
+          out.writeLong(bucket.blockNum);
+          out.writeInt(size);
+          for (int offset = 0; offset < bucket.length; offset = bucket.next(offset)) {
+            if (isLive(bucket, offset)) {
+              out.write(bucket.data, offset, bucket.next(offset) - offset);
+            }
+          }
+        }
+        out.writeLong(-1);
+      }
+      Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      logger.info("write {} transactions to {} in {} ms", count, snapshotPath,
+          System.currentTimeMillis() - start);
+    } catch (IOException e) {
+      logger.warn("write snapshot {} failed, {}", snapshotPath, e.getMessage());
     }
   }
 
+  /**
+   * @return true if the id at offset is neither removed nor put again by a later block.
+   */
+  private boolean isLive(Bucket bucket, int offset) {
+    byte[] key = bucket.key(offset);
+    int slot = find(key, hash(key));
+    return slot >= 0 && refs[slot] == (bucket.blockNum << OFFSET_BITS | offset);
+  }
+
   @Override
-  public long size() {
-    return db.size();
+  public synchronized long size() {
+    return count;
   }
 
   @Override
-  public boolean isEmpty() {
-    return db.isEmpty();
+  public synchronized boolean isEmpty() {
+    return count == 0;
   }
 
   @Override
-  public void remove(byte[] key) {
+  public synchronized void remove(byte[] key) {
     if (key != null) {
-      db.remove(Key.of(key));
+      int slot = find(key, hash(key));
+      if (slot >= 0) {
+        delete(slot);
+      }
+      // so it stays removed after a restart, with or without the snapshot
+      persistentStore.remove(key);
     }
   }
 
@@ -145,27 +535,56 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
 
   @Override
   public Iterator<Entry<byte[], byte[]>> iterator() {
-    return Iterators.transform(db.entrySet().iterator(),
-        e -> Maps.immutableEntry(e.getKey().getBytes(), Longs.toByteArray(e.getValue())));
+    return new AbstractIterator<Entry<byte[], byte[]>>() {
+      private int index = 0;
+      private int offset = 0;
+
+      @Override
+      protected Entry<byte[], byte[]> computeNext() {
+        synchronized (TxCacheDB.this) {
+          while (index < ring.length) {
+            Bucket bucket = ring[index];
+            if (bucket == null || offset >= bucket.length) {
+              index++;
+              offset = 0;
+              continue;
+            }
+            int current = offset;
+            offset = bucket.next(current);
+            if (isLive(bucket, current)) {
+              return Maps.immutableEntry(bucket.key(current),
+                  Longs.toByteArray(bucket.blockNum));
+            }
+          }
+          return endOfData();
+        }
+      }
+    };
   }
 
   @Override
-  public void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
+  public synchronized void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
     batch.forEach((k, v) -> this.put(k.getBytes(), v.getBytes()));
   }
 
   @Override
-  public void close() {
-    reset();
-    db = null;
-    blockNumMap = null;
+  public synchronized void close() {
     persistentStore.close();
+    writeSnapshot();
+    reset();
   }
 
   @Override
-  public void reset() {
-    db.clear();
-    blockNumMap.clear();
+  public synchronized void reset() {
+    clear();
+  }
+
+  private void clear() {
+    Arrays.fill(ring, null);
+    latestBlockNum = -1;
+    hashes = new long[INITIAL_CAPACITY];
+    refs = new long[INITIAL_CAPACITY];
+    count = 0;
   }
 
   @Override
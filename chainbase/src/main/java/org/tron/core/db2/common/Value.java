@@ -44,6 +44,11 @@ public final class Value {
     return r;
   }
 
+  // the wrapped bytes without a copy, for the DB implementations of this package
+  WrappedByteArray getData() {
+    return data;
+  }
+
   public byte[] getBytes() {
     byte[] value = data.getBytes();
     if (value == null) {
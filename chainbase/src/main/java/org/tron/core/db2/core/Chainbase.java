@@ -1,24 +1,20 @@
 package org.tron.core.db2.core;
 
-import com.google.common.collect.Maps;
 import com.google.common.collect.Streams;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import org.tron.common.utils.ByteUtil;
 import org.tron.core.capsule.utils.MarketUtils;
 import org.tron.core.db2.common.IRevokingDB;
 import org.tron.core.db2.common.LevelDB;
 import org.tron.core.db2.common.RocksDB;
 import org.tron.core.db2.common.Value;
-import org.tron.core.db2.common.Value.Operator;
-import org.tron.core.db2.common.WrappedByteArray;
 import org.tron.core.exception.ItemNotFoundException;
 
 public class Chainbase implements IRevokingDB {
@@ -102,6 +98,14 @@ public class Chainbase implements IRevokingDB {
     this.head = head;
   }
 
+  /**
+   * Set the key order of the db, when it was opened with a custom comparator, so range scans
+   * merge the snapshots in the same order.
+   */
+  public void setKeyComparator(Comparator<byte[]> comparator) {
+    ((SnapshotRoot) head.getRoot()).setKeyComparator(comparator);
+  }
+
   /**
    * close the database.
    */
@@ -163,34 +167,13 @@ public class Chainbase implements IRevokingDB {
       return Collections.emptySet();
     }
 
-    Map<WrappedByteArray, WrappedByteArray> collection = new HashMap<>();
-    if (head.getPrevious() != null) {
-      ((SnapshotImpl) head).collect(collection);
-    }
-
-    Map<WrappedByteArray, WrappedByteArray> levelDBMap = new HashMap<>();
-
-    if (((SnapshotRoot) head.getRoot()).db.getClass() == LevelDB.class) {
-      ((LevelDB) ((SnapshotRoot) head.getRoot()).db).getDb().getNext(key, limit).entrySet().stream()
-          .map(e -> Maps
-              .immutableEntry(WrappedByteArray.of(e.getKey()), WrappedByteArray.of(e.getValue())))
-          .forEach(e -> levelDBMap.put(e.getKey(), e.getValue()));
-    } else if (((SnapshotRoot) head.getRoot()).db.getClass() == RocksDB.class) {
-      ((RocksDB) ((SnapshotRoot) head.getRoot()).db).getDb().getNext(key, limit).entrySet().stream()
-          .map(e -> Maps
-              .immutableEntry(WrappedByteArray.of(e.getKey()), WrappedByteArray.of(e.getValue())))
-          .forEach(e -> levelDBMap.put(e.getKey(), e.getValue()));
+    Set<byte[]> result = new HashSet<>();
+    try (MergeIterator iterator = new MergeIterator(head, key)) {
+      while (result.size() < limit && iterator.hasNext()) {
+        result.add(iterator.next().getValue());
+      }
     }
-
-    levelDBMap.putAll(collection);
-
-    return levelDBMap.entrySet().stream()
-        .sorted((e1, e2) -> ByteUtil.compare(e1.getKey().getBytes(), e2.getKey().getBytes()))
-        .filter(e -> ByteUtil.greaterOrEquals(e.getKey().getBytes(), key))
-        .limit(limit)
-        .map(Map.Entry::getValue)
-        .map(WrappedByteArray::getBytes)
-        .collect(Collectors.toSet());
+    return result;
   }
 
   @Override
@@ -209,56 +192,19 @@ public class Chainbase implements IRevokingDB {
       return Collections.emptyList();
     }
 
-    Map<WrappedByteArray, Operator> collectionList = new HashMap<>();
-    if (head.getPrevious() != null) {
-      ((SnapshotImpl) head).collectUnique(collectionList);
-    }
-
-    // just get the same token pair
-    List<WrappedByteArray> snapshotList = new ArrayList<>();
-    if (!collectionList.isEmpty()) {
-      snapshotList = collectionList.keySet().stream()
-          .filter(e -> MarketUtils.pairKeyIsEqual(e.getBytes(), key))
-          .collect(Collectors.toList());
-    }
-
-    // for delete operation
-    long limitLevelDB = limit + collectionList.size();
-
-    List<WrappedByteArray> levelDBList = new ArrayList<>();
-    if (((SnapshotRoot) head.getRoot()).db.getClass() == LevelDB.class) {
-      ((LevelDB) ((SnapshotRoot) head.getRoot()).db).getDb().getKeysNext(key, limitLevelDB)
-          .forEach(e -> levelDBList.add(WrappedByteArray.of(e)));
-    } else if (((SnapshotRoot) head.getRoot()).db.getClass() == RocksDB.class) {
-      ((RocksDB) ((SnapshotRoot) head.getRoot()).db).getDb().getKeysNext(key, limitLevelDB)
-          .forEach(e -> levelDBList.add(WrappedByteArray.of(e)));
-    }
-
-    // just get the same token pair
-    List<WrappedByteArray> levelDBListFiltered = levelDBList.stream()
-        .filter(e -> MarketUtils.pairKeyIsEqual(e.getBytes(), key))
-        .collect(Collectors.toList());
-
-    List<WrappedByteArray> keyList = new ArrayList<>();
-    keyList.addAll(levelDBListFiltered);
-
-    // snapshot and levelDB will have duplicated key, so need to check it before,
-    // and remove the key which has been deleted
-    snapshotList.forEach(ssKey -> {
-      if (!keyList.contains(ssKey)) {
-        keyList.add(ssKey);
-      }
-      if (collectionList.get(ssKey) == Operator.DELETE) {
-        keyList.remove(ssKey);
+    List<byte[]> result = new ArrayList<>();
+    try (MergeIterator iterator =
+        new MergeIterator(head, key, MarketUtils.PRICE_KEY_COMPARATOR)) {
+      // keys are ordered by token pair first, so just get the same token pair
+      while (result.size() < limit && iterator.hasNext()) {
+        byte[] next = iterator.next().getKey();
+        if (!MarketUtils.pairKeyIsEqual(next, key)) {
+          break;
+        }
+        result.add(next);
       }
-    });
-
-    return keyList.stream()
-        .filter(e -> MarketUtils.greaterOrEquals(e.getBytes(), key))
-        .sorted((e1, e2) -> MarketUtils.comparePriceKey(e1.getBytes(), e2.getBytes()))
-        .limit(limit)
-        .map(WrappedByteArray::getBytes)
-        .collect(Collectors.toList());
+    }
+    return result;
   }
 
   // for blockstore
@@ -309,32 +255,13 @@ public class Chainbase implements IRevokingDB {
       return Collections.emptyMap();
     }
 
-    Map<WrappedByteArray, WrappedByteArray> collection = new HashMap<>();
-    if (head.getPrevious() != null) {
-      ((SnapshotImpl) head).collect(collection);
-    }
-
-    Map<WrappedByteArray, WrappedByteArray> levelDBMap = new HashMap<>();
-
-    if (((SnapshotRoot) head.getRoot()).db.getClass() == LevelDB.class) {
-      ((LevelDB) ((SnapshotRoot) head.getRoot()).db).getDb().getNext(key, limit).entrySet().stream()
-          .map(e -> Maps
-              .immutableEntry(WrappedByteArray.of(e.getKey()), WrappedByteArray.of(e.getValue())))
-          .forEach(e -> levelDBMap.put(e.getKey(), e.getValue()));
-    } else if (((SnapshotRoot) head.getRoot()).db.getClass() == RocksDB.class) {
-      ((RocksDB) ((SnapshotRoot) head.getRoot()).db).getDb().getNext(key, limit).entrySet().stream()
-          .map(e -> Maps
-              .immutableEntry(WrappedByteArray.of(e.getKey()), WrappedByteArray.of(e.getValue())))
-          .forEach(e -> levelDBMap.put(e.getKey(), e.getValue()));
+    Map<byte[], byte[]> result = new LinkedHashMap<>();
+    try (MergeIterator iterator = new MergeIterator(head, key)) {
+      while (result.size() < limit && iterator.hasNext()) {
+        Map.Entry<byte[], byte[]> entry = iterator.next();
+        result.put(entry.getKey(), entry.getValue());
+      }
     }
-
-    levelDBMap.putAll(collection);
-
-    return levelDBMap.entrySet().stream()
-        .map(e -> Maps.immutableEntry(e.getKey().getBytes(), e.getValue().getBytes()))
-        .sorted((e1, e2) -> ByteUtil.compare(e1.getKey(), e2.getKey()))
-        .filter(e -> ByteUtil.greaterOrEquals(e.getKey(), key))
-        .limit(limit)
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    return result;
   }
 }
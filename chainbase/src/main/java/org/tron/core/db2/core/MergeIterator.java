@@ -0,0 +1,196 @@
+package org.tron.core.db2.core;
+
+import com.google.common.collect.Maps;
+import com.google.common.primitives.UnsignedBytes;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.tron.core.db2.common.Value;
+
+/**
+ * Lazy iterator over the rows visible from a snapshot, starting at a seek key, in the key order
+ * of the root db unless another comparator is given.
+ * Every SnapshotImpl layer from the snapshot down to the root provides its sorted keys, the
+ * root provides a seeked native iterator, and they are merged k-way: the newest layer holding
+ * a key shadows the older ones and the root, a deleted key is skipped. A page of n rows costs
+ * O(n log k) plus one binary search per layer, instead of collecting every dirty key.
+ * Keys comparing equal but not identical, like market price keys of the same price, are all
+ * returned.
+ */
+@Slf4j(topic = "DB")
+final class MergeIterator implements Iterator<Map.Entry<byte[], byte[]>>, Closeable {
+
+  static final Comparator<byte[]> BYTES = UnsignedBytes.lexicographicalComparator();
+
+  private final Comparator<byte[]> comparator;
+  private final PriorityQueue<Source> queue;
+  private final Iterator<Map.Entry<byte[], byte[]>> rootIterator;
+  private Map.Entry<byte[], byte[]> next;
+
+  MergeIterator(Snapshot head, byte[] key) {
+    this(head, key, ((SnapshotRoot) head.getRoot()).getKeyComparator());
+  }
+
+  MergeIterator(Snapshot head, byte[] key, Comparator<byte[]> comparator) {
+    this.comparator = comparator;
+    // same key order, then the newest source first
+    this.queue = new PriorityQueue<>((s1, s2) -> {
+      int result = comparator.compare(s1.key, s2.key);
+      return result != 0 ? result : Long.compare(s2.rank, s1.rank);
+    });
+
+    Snapshot snapshot = head;
+    for (; Snapshot.isImpl(snapshot); snapshot = snapshot.getPrevious()) {
+      SnapshotImpl layer = (SnapshotImpl) snapshot;
+      byte[][] keys = layer.sortedKeys(comparator);
+      offer(new LayerSource(layer, keys, lowerBound(keys, key)));
+    }
+    rootIterator = ((SnapshotRoot) head.getRoot()).iterator(key, comparator);
+    offer(new RootSource(rootIterator));
+  }
+
+  private int lowerBound(byte[][] keys, byte[] key) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (comparator.compare(keys[mid], key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void offer(Source source) {
+    if (source.advance()) {
+      queue.offer(source);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null && !queue.isEmpty()) {
+      Source top = queue.poll();
+      byte[] key = top.key;
+      byte[] value = top.value;
+
+      // drop the shadowed copies of key, keep equal but different keys for later polls
+      List<Source> equal = new ArrayList<>();
+      while (!queue.isEmpty() && comparator.compare(queue.peek().key, key) == 0) {
+        Source source = queue.poll();
+        if (Arrays.equals(source.key, key)) {
+          offer(source);
+        } else {
+          equal.add(source);
+        }
+      }
+      queue.addAll(equal);
+      offer(top);
+
+      if (value != null) {
+        next = Maps.immutableEntry(key, value);
+      }
+    }
+
+    if (next == null) {
+      close();
+    }
+    return next != null;
+  }
+
+  @Override
+  public Map.Entry<byte[], byte[]> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Map.Entry<byte[], byte[]> result = next;
+    next = null;
+    return result;
+  }
+
+  @Override
+  public void close() {
+    if (rootIterator instanceof Closeable) {
+      try {
+        ((Closeable) rootIterator).close();
+      } catch (IOException e) {
+        logger.warn("close root iterator failed, {}", e.getMessage());
+      }
+    }
+  }
+
+  private abstract static class Source {
+
+    private final long rank;
+    byte[] key;
+    // null for a deleted key
+    byte[] value;
+
+    Source(long rank) {
+      this.rank = rank;
+    }
+
+    /**
+     * Move to the next row, return false when exhausted.
+     */
+    abstract boolean advance();
+  }
+
+  private static final class LayerSource extends Source {
+
+    private final SnapshotImpl layer;
+    private final byte[][] keys;
+    private int position;
+
+    private LayerSource(SnapshotImpl layer, byte[][] keys, int position) {
+      super(layer.getSequence());
+      this.layer = layer;
+      this.keys = keys;
+      this.position = position;
+    }
+
+    @Override
+    boolean advance() {
+      while (position < keys.length) {
+        key = keys[position++];
+        Value v = layer.getValue(key);
+        if (v != null) {
+          value = v.getBytes();
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class RootSource extends Source {
+
+    private final Iterator<Map.Entry<byte[], byte[]>> iterator;
+
+    private RootSource(Iterator<Map.Entry<byte[], byte[]>> iterator) {
+      super(0);
+      this.iterator = iterator;
+    }
+
+    @Override
+    boolean advance() {
+      if (!iterator.hasNext()) {
+        return false;
+      }
+      Map.Entry<byte[], byte[]> entry = iterator.next();
+      key = entry.getKey();
+      value = entry.getValue();
+      return true;
+    }
+  }
+}
@@ -46,6 +46,4 @@ public interface Snapshot extends Iterable<Map.Entry<byte[], byte[]>>, Instance<
   void updateSolidity();
 
   String getDbName();
-
-  boolean isOptimized();
 }
@@ -1,43 +1,49 @@
 package org.tron.core.db2.core;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Iterators;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Streams;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.Getter;
+import org.tron.common.parameter.CommonParameter;
+import org.tron.core.config.args.Storage;
+import org.tron.core.db2.common.ArenaHashDB;
+import org.tron.core.db2.common.DB;
 import org.tron.core.db2.common.HashDB;
 import org.tron.core.db2.common.Key;
 import org.tron.core.db2.common.Value;
-import org.tron.core.db2.common.Value.Operator;
-import org.tron.core.db2.common.WrappedByteArray;
 
 public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
 
   @Getter
   protected Snapshot root;
 
+  // position above the root, the first layer is 1
+  @Getter
+  private final long sequence;
+
+  private final SnapshotIndex index;
+
+  // bumped on every write, invalidates sortedKeys
+  private final AtomicLong writes = new AtomicLong();
+  private volatile SortedKeys sortedKeys;
+
   SnapshotImpl(Snapshot snapshot) {
     root = snapshot.getRoot();
     synchronized (this) {
-      db = new HashDB(SnapshotImpl.class.getSimpleName() + ":" + root.getDbName());
+      db = newDb(SnapshotImpl.class.getSimpleName() + ":" + root.getDbName());
     }
     previous = snapshot;
     snapshot.setNext(this);
-    // inherit
-    isOptimized = snapshot.isOptimized();
-    // merge for DynamicPropertiesStore，about 100 keys
-    if (isOptimized) {
-      if (root == previous ){
-        Streams.stream(root.iterator()).forEach( e -> put(e.getKey(),e.getValue()));
-      }else {
-        merge(previous);
-      }
-    }
+    sequence = Snapshot.isImpl(snapshot) ? ((SnapshotImpl) snapshot).sequence + 1 : 1;
+    index = ((SnapshotRoot) root).getIndex();
+  }
+
+  private static DB<Key, Value> newDb(String name) {
+    Storage storage = CommonParameter.getInstance().getStorage();
+    return storage != null && storage.isSnapshotArena() ? new ArenaHashDB(name) : new HashDB(name);
   }
 
   @Override
@@ -46,12 +52,17 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
   }
 
   private byte[] get(Snapshot head, byte[] key) {
-    Snapshot snapshot = head;
+    SnapshotImpl layer = index.find(key, this);
     Value value;
-    if (isOptimized) {
-      value = db.get(Key.of(key));
-      return value == null ? null: value.getBytes();
+    if (layer != null && (value = layer.db.get(Key.of(key))) != null) {
+      return value.getBytes();
     }
+    if (layer == null) {
+      return root.get(key);
+    }
+
+    // the layer was dropped from the index concurrently, walk the layers as a fallback
+    Snapshot snapshot = head;
     while (Snapshot.isImpl(snapshot)) {
       if ((value = ((SnapshotImpl) snapshot).db.get(Key.of(key))) != null) {
         return value.getBytes();
@@ -68,13 +79,22 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
     Preconditions.checkNotNull(key, "key in db is not null.");
     Preconditions.checkNotNull(value, "value in db is not null.");
 
-    db.put(Key.copyOf(key), Value.copyOf(Value.Operator.PUT, value));
+    if (db instanceof ArenaHashDB) {
+      // the arena copies the bytes into its slab
+      db.put(Key.of(key), Value.of(Value.Operator.PUT, value));
+    } else {
+      db.put(Key.copyOf(key), Value.copyOf(Value.Operator.PUT, value));
+    }
+    writes.incrementAndGet();
+    index.add(key, this);
   }
 
   @Override
   public void remove(byte[] key) {
     Preconditions.checkNotNull(key, "key in db is not null.");
     db.put(Key.of(key), Value.of(Value.Operator.DELETE, null));
+    writes.incrementAndGet();
+    index.add(key, this);
   }
 
   // we have a 3x3 matrix of all possibilities when merging previous snapshot and current snapshot :
@@ -92,11 +112,52 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
   @Override
   public void merge(Snapshot from) {
     SnapshotImpl fromImpl = (SnapshotImpl) from;
-    Streams.stream(fromImpl.db).forEach(e -> db.put(e.getKey(), e.getValue()));
+    Streams.stream(fromImpl.db).forEach(e -> {
+      db.put(e.getKey(), e.getValue());
+      index.add(e.getKey().getBytes(), this);
+    });
+    writes.incrementAndGet();
+  }
+
+  Value getValue(byte[] key) {
+    return db.get(Key.of(key));
+  }
+
+  /**
+   * @return the keys written to this layer sorted by comparator, cached until the next write,
+   *     so range scans over the layers below the head do not sort them again.
+   */
+  byte[][] sortedKeys(Comparator<byte[]> comparator) {
+    long version = writes.get();
+    SortedKeys sorted = sortedKeys;
+    if (sorted != null && sorted.version == version && sorted.comparator == comparator) {
+      return sorted.keys;
+    }
+
+    byte[][] keys = Streams.stream(db)
+        .map(e -> e.getKey().getBytes())
+        .sorted(comparator)
+        .toArray(byte[][]::new);
+    sortedKeys = new SortedKeys(version, comparator, keys);
+    return keys;
+  }
+
+  private static final class SortedKeys {
+
+    private final long version;
+    private final Comparator<byte[]> comparator;
+    private final byte[][] keys;
+
+    private SortedKeys(long version, Comparator<byte[]> comparator, byte[][] keys) {
+      this.version = version;
+      this.comparator = comparator;
+      this.keys = keys;
+    }
   }
 
   @Override
   public Snapshot retreat() {
+    index.remove(this);
     return previous;
   }
 
@@ -105,50 +166,14 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
     return root.getSolidity();
   }
 
+  /**
+   * Rows visible from this snapshot in key order, merged lazily from the layers and the root.
+   */
   @Override
   public Iterator<Map.Entry<byte[], byte[]>> iterator() {
-    Map<WrappedByteArray, WrappedByteArray> all = new HashMap<>();
-    collect(all);
-    Set<WrappedByteArray> keys = new HashSet<>(all.keySet());
-    all.entrySet()
-        .removeIf(entry -> entry.getValue() == null || entry.getValue().getBytes() == null);
-    return Iterators.concat(
-        Iterators.transform(all.entrySet().iterator(),
-            e -> Maps.immutableEntry(e.getKey().getBytes(), e.getValue().getBytes())),
-        Iterators.filter(getRoot().iterator(),
-            e -> !keys.contains(WrappedByteArray.of(e.getKey()))));
-  }
-
-  synchronized void collect(Map<WrappedByteArray, WrappedByteArray> all) {
-    Snapshot next = getRoot().getNext();
-    while (next != null) {
-      Streams.stream(((SnapshotImpl) next).db)
-          .forEach(e -> all.put(WrappedByteArray.of(e.getKey().getBytes()),
-              WrappedByteArray.of(e.getValue().getBytes())));
-      next = next.getNext();
-    }
-  }
-
-  /**
-   * Note: old --> new
-   * In the snapshot, there may be same keys.
-   * If we use Map to get all the data, the later will overwrite the previous value.
-   * So, if we use list, we need to exclude duplicate keys.
-   * More than that, there will be some item which has been deleted, but just assigned in Operator,
-   * so we need Operator value to determine next step.
-   * */
-  synchronized void collectUnique(Map<WrappedByteArray, Operator> all) {
-    Snapshot next = getRoot().getNext();
-    while (next != null) {
-      Streams.stream(((SnapshotImpl) next).db)
-          .forEach(e -> all.put(WrappedByteArray.of(e.getKey().getBytes()),
-              e.getValue().getOperator()));
-      next = next.getNext();
-    }
+    return new MergeIterator(this, new byte[0]);
   }
 
-
-
   @Override
   public void close() {
     getRoot().close();
@@ -0,0 +1,103 @@
+package org.tron.core.db2.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.Value;
+import org.tron.core.db2.common.WrappedByteArray;
+
+/**
+ * Index of the SnapshotImpl layers above a SnapshotRoot which contain a key, so a read
+ * does not need to walk the previous pointers of every layer.
+ * For each key the layers are kept ordered from old to new, a read from a layer picks the
+ * newest one that is not newer than itself, so solidity and pbft cursors stay correct.
+ * A layer must be removed once it is retreated or merged into the root.
+ */
+final class SnapshotIndex {
+
+  private static final SnapshotImpl[] EMPTY = new SnapshotImpl[0];
+
+  private final Map<WrappedByteArray, SnapshotImpl[]> index = new ConcurrentHashMap<>();
+
+  /**
+   * Record that layer contains key, call after the key is written to the layer.
+   */
+  void add(byte[] key, SnapshotImpl layer) {
+    WrappedByteArray k = WrappedByteArray.of(key);
+    SnapshotImpl[] layers = index.get(k);
+    if (layers != null && layers[layers.length - 1] == layer) {
+      return;
+    }
+
+    index.compute(layers == null ? WrappedByteArray.copyOf(key) : k,
+        (wrapped, old) -> insert(old == null ? EMPTY : old, layer));
+  }
+
+  /**
+   * Drop every key of the layer, call after the layer is unlinked or its data has been
+   * persisted to the root.
+   */
+  void remove(SnapshotImpl layer) {
+    for (Map.Entry<Key, Value> e : layer.getDb()) {
+      index.computeIfPresent(WrappedByteArray.of(e.getKey().getBytes()),
+          (wrapped, old) -> delete(old, layer));
+    }
+  }
+
+  /**
+   * @return the newest layer not newer than from which contains key, or null if the key
+   *     has to be read from the root.
+   */
+  SnapshotImpl find(byte[] key, SnapshotImpl from) {
+    SnapshotImpl[] layers = index.get(WrappedByteArray.of(key));
+    if (layers == null) {
+      return null;
+    }
+
+    for (int i = layers.length - 1; i >= 0; i--) {
+      if (layers[i].getSequence() <= from.getSequence()) {
+        return layers[i];
+      }
+    }
+    return null;
+  }
+
+  int size() {
+    return index.size();
+  }
+
+  void clear() {
+    index.clear();
+  }
+
+  private static SnapshotImpl[] insert(SnapshotImpl[] layers, SnapshotImpl layer) {
+    int pos = layers.length;
+    while (pos > 0 && layers[pos - 1].getSequence() >= layer.getSequence()) {
+      if (layers[pos - 1] == layer) {
+        return layers;
+      }
+      pos--;
+    }
+
+    SnapshotImpl[] result = new SnapshotImpl[layers.length + 1];
+    System.arraycopy(layers, 0, result, 0, pos);
+    result[pos] = layer;
+    System.arraycopy(layers, pos, result, pos + 1, layers.length - pos);
+    return result;
+  }
+
+  private static SnapshotImpl[] delete(SnapshotImpl[] layers, SnapshotImpl layer) {
+    for (int i = 0; i < layers.length; i++) {
+      if (layers[i] == layer) {
+        if (layers.length == 1) {
+          return null;
+        }
+        SnapshotImpl[] result = Arrays.copyOf(layers, layers.length - 1);
+        System.arraycopy(layers, i + 1, result, i, layers.length - i - 1);
+        return result;
+      }
+    }
+    return layers;
+  }
+}
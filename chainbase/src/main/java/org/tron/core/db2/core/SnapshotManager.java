@@ -3,31 +3,49 @@ package org.tron.core.db2.core;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Bytes;
 import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.tron.common.parameter.CommonParameter;
+import org.tron.common.storage.WriteBatchWrapper;
 import org.tron.common.storage.WriteOptionsWrapper;
+import org.tron.common.storage.rocksdb.SharedRocksDb;
 import org.tron.core.db.RevokingDatabase;
+import org.tron.core.db.common.DbSourceInter;
+import org.tron.core.db.common.iterator.DBIterator;
 import org.tron.core.db2.ISession;
+import org.tron.core.db2.common.AtomicBatch;
 import org.tron.core.db2.common.DB;
 import org.tron.core.db2.common.IRevokingDB;
 import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.ReadCache;
 import org.tron.core.db2.common.Value;
 import org.tron.core.db2.common.WrappedByteArray;
 import org.tron.core.exception.RevokingStoreIllegalStateException;
@@ -39,6 +57,8 @@ public class SnapshotManager implements RevokingDatabase {
   public static final int DEFAULT_MAX_FLUSH_COUNT = 500;
   public static final int DEFAULT_MIN_FLUSH_COUNT = 1;
   private static final int DEFAULT_STACK_MAX_SIZE = 256;
+  private static final int CHECKPOINT_DELETE_CHUNK = 10_000;
+  public static final byte[] CHECKPOINT_EPOCH_KEY = simpleEncode("checkpoint-epoch");
   @Getter
   private List<Chainbase> dbs = new ArrayList<>();
   @Getter
@@ -65,6 +85,21 @@ public class SnapshotManager implements RevokingDatabase {
   @Setter
   private volatile int maxFlushCount = DEFAULT_MIN_FLUSH_COUNT;
 
+  // epoch of the latest complete checkpoint in checkTmpStore
+  private volatile long checkpointEpoch = 0;
+
+  private ExecutorService checkpointCleaner = Executors.newSingleThreadExecutor(
+      r -> new Thread(r, "checkpoint-cleaner"));
+
+  // checkpoint bytes and cost since they were last read by the block metrics
+  private final LongAdder checkpointBytes = new LongAdder();
+  private final LongAdder checkpointTime = new LongAdder();
+
+  // background flushes in submit order, only used when storage.flush.async is on
+  private final Deque<FlushTask> flushBacklog = new ArrayDeque<>();
+
+  private ExecutorService flusher = Executors.newSingleThreadExecutor();
+
   public SnapshotManager(String checkpointPath) {
   }
 
@@ -95,6 +130,7 @@ public class SnapshotManager implements RevokingDatabase {
       size = maxSize.get();
       flush();
     }
+    relinkFlushed(false);
 
     advance();
     ++activeSession;
@@ -127,6 +163,10 @@ public class SnapshotManager implements RevokingDatabase {
   private void retreat() {
     dbs.forEach(db -> db.setHead(db.getHead().retreat()));
     --size;
+    // the head must not stay on a snapshot which is being flushed in the background
+    if (size == 0) {
+      relinkFlushed(true);
+    }
   }
 
   public void merge() {
@@ -197,6 +237,47 @@ public class SnapshotManager implements RevokingDatabase {
     pop();
   }
 
+  /**
+   * Pop the head like pop(), keeping the layer it held in every database. The layer of a
+   * block is the same whenever the block is applied on the same parent, see graft.
+   *
+   * @return the popped layers by database name.
+   */
+  public synchronized Map<String, DB<Key, Value>> popDetached() {
+    Map<String, DB<Key, Value>> detached = new HashMap<>();
+    if (size > 0) {
+      dbs.stream()
+          .filter(db -> Snapshot.isImpl(db.getHead()))
+          .forEach(db -> detached.put(db.getDbName(), ((SnapshotImpl) db.getHead()).getDb()));
+    }
+    pop();
+    return detached;
+  }
+
+  /**
+   * Write the layers returned by popDetached to the head of every database, in place of
+   * executing the block they were popped with again.
+   */
+  public synchronized void graft(Map<String, DB<Key, Value>> detached) {
+    if (activeSession <= 0) {
+      throw new RevokingStoreIllegalStateException("activeSession has to be greater than 0");
+    }
+
+    for (Chainbase db : dbs) {
+      DB<Key, Value> layer = detached.get(db.getDbName());
+      if (layer == null) {
+        continue;
+      }
+      for (Map.Entry<Key, Value> entry : layer) {
+        if (entry.getValue().getOperator() == Value.Operator.DELETE) {
+          db.delete(entry.getKey().getBytes());
+        } else {
+          db.put(entry.getKey().getBytes(), entry.getValue().getBytes());
+        }
+      }
+    }
+  }
+
   public synchronized void enable() {
     disabled = false;
   }
@@ -223,6 +304,14 @@ public class SnapshotManager implements RevokingDatabase {
   public void shutdown() {
     System.err.println("******** begin to pop revokingDb ********");
     System.err.println("******** before revokingDb size:" + size);
+    relinkFlushed(true);
+    flusher.shutdown();
+    checkpointCleaner.shutdown();
+    try {
+      checkpointCleaner.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
     checkTmpStore.close();
     System.err.println("******** end to pop revokingDb ********");
   }
@@ -239,44 +328,172 @@ public class SnapshotManager implements RevokingDatabase {
     return flushCount >= maxFlushCount;
   }
 
-  private void refresh() {
-    List<ListenableFuture<?>> futures = new ArrayList<>(dbs.size());
+  private boolean isAsyncFlush() {
+    return CommonParameter.getInstance().getStorage().isAsyncFlush();
+  }
+
+  /**
+   * Collect the flushCount snapshots above the root, or above the snapshots already handed
+   * to the background flusher, of every db.
+   */
+  private Map<Chainbase, List<Snapshot>> freeze() {
+    Map<Chainbase, List<Snapshot>> frozen = new LinkedHashMap<>();
     for (Chainbase db : dbs) {
-      futures.add(flushServices.get(db.getDbName()).submit(() -> refreshOne(db)));
+      if (Snapshot.isRoot(db.getHead())) {
+        continue;
+      }
+
+      List<Snapshot> snapshots = new ArrayList<>(flushCount);
+      Snapshot next = lastFrozen(db);
+      for (int i = 0; i < flushCount; ++i) {
+        next = next.getNext();
+        snapshots.add(next);
+      }
+      frozen.put(db, snapshots);
     }
-    Future<?> future = Futures.allAsList(futures);
+    return frozen;
+  }
+
+  private Snapshot lastFrozen(Chainbase db) {
+    Iterator<FlushTask> it = flushBacklog.descendingIterator();
+    while (it.hasNext()) {
+      List<Snapshot> snapshots = it.next().snapshots.get(db);
+      if (snapshots != null && !snapshots.isEmpty()) {
+        return snapshots.get(snapshots.size() - 1);
+      }
+    }
+    return db.getHead().getRoot();
+  }
+
+  /**
+   * Merge the frozen snapshots into their roots, one task per db.
+   *
+   * @return the part of frozen whose merge succeeded.
+   */
+  private Map<Chainbase, List<Snapshot>> refresh(Map<Chainbase, List<Snapshot>> frozen) {
+    List<ListenableFuture<Chainbase>> futures = new ArrayList<>(frozen.size());
+    Map<SharedRocksDb, Map<Chainbase, List<Snapshot>>> families = new LinkedHashMap<>();
+    frozen.forEach((db, snapshots) -> {
+      SharedRocksDb shared = sharedOf(db);
+      if (shared != null && !snapshots.isEmpty()) {
+        families.computeIfAbsent(shared, k -> new LinkedHashMap<>()).put(db, snapshots);
+      } else {
+        futures.add(flushServices.get(db.getDbName()).submit(() -> refreshOne(db, snapshots)));
+      }
+    });
+
+    Map<Chainbase, List<Snapshot>> merged = new LinkedHashMap<>();
+    families.forEach((shared, group) -> {
+      try {
+        refreshFamilies(shared, group);
+        merged.putAll(group);
+      } catch (RuntimeException e) {
+        logger.error("refresh column families of {} failed", shared.getPath(), e);
+      }
+    });
     try {
-      future.get();
+      for (Chainbase db : Futures.successfulAsList(futures).get()) {
+        if (db != null) {
+          merged.put(db, frozen.get(db));
+        }
+      }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
     } catch (ExecutionException e) {
       logger.error(e.getMessage(), e);
     }
+    if (merged.size() != frozen.size()) {
+      logger.error("refresh failed, {} of {} dbs merged", merged.size(), frozen.size());
+    }
+    return merged;
   }
 
-  private void refreshOne(Chainbase db) {
-    if (Snapshot.isRoot(db.getHead())) {
-      return;
+  private Chainbase refreshOne(Chainbase db, List<Snapshot> snapshots) {
+    if (!snapshots.isEmpty()) {
+      ((SnapshotRoot) snapshots.get(0).getRoot()).merge(snapshots);
     }
+    return db;
+  }
 
-    List<Snapshot> snapshots = new ArrayList<>();
+  private static SharedRocksDb sharedOf(Chainbase db) {
+    return AtomicBatch.sharedOf(((SnapshotRoot) db.getHead().getRoot()).getDb());
+  }
 
-    SnapshotRoot root = (SnapshotRoot) db.getHead().getRoot();
-    Snapshot next = root;
-    for (int i = 0; i < flushCount; ++i) {
-      next = next.getNext();
-      snapshots.add(next);
+  /**
+   * Merge the frozen snapshots of dbs which are column families of one instance in a single
+   * batch, so either all of them reach the disk or none.
+   */
+  private void refreshFamilies(SharedRocksDb shared, Map<Chainbase, List<Snapshot>> group) {
+    try (AtomicBatch batch = new AtomicBatch(shared)) {
+      Map<Chainbase, Map<WrappedByteArray, WrappedByteArray>> rows = collect(batch, group);
+      batch.commit(CommonParameter.getInstance().getStorage().isDbSync());
+      merged(group, rows);
     }
+  }
 
-    root.merge(snapshots);
+  private static Map<Chainbase, Map<WrappedByteArray, WrappedByteArray>> collect(
+      AtomicBatch batch, Map<Chainbase, List<Snapshot>> group) {
+    Map<Chainbase, Map<WrappedByteArray, WrappedByteArray>> rows = new LinkedHashMap<>();
+    group.forEach((db, snapshots) -> {
+      SnapshotRoot root = (SnapshotRoot) snapshots.get(0).getRoot();
+      Map<WrappedByteArray, WrappedByteArray> batchOfDb = root.collect(snapshots);
+      batch.put(root.getDb(), batchOfDb);
+      rows.put(db, batchOfDb);
+    });
+    return rows;
+  }
 
-    root.resetSolidity();
-    if (db.getHead() == next) {
-      db.setHead(root);
-    } else {
-      next.getNext().setPrevious(root);
-      root.setNext(next.getNext());
-    }
+  private static void merged(Map<Chainbase, List<Snapshot>> group,
+      Map<Chainbase, Map<WrappedByteArray, WrappedByteArray>> rows) {
+    group.forEach((db, snapshots) -> ((SnapshotRoot) snapshots.get(0).getRoot())
+        .merged(rows.get(db), snapshots));
+  }
+
+  /**
+   * Unlink the merged snapshots from the chain, must hold the lock of this manager.
+   */
+  private void relink(Map<Chainbase, List<Snapshot>> merged) {
+    merged.forEach((db, snapshots) -> {
+      if (snapshots.isEmpty()) {
+        return;
+      }
+
+      SnapshotRoot root = (SnapshotRoot) snapshots.get(0).getRoot();
+      Snapshot last = snapshots.get(snapshots.size() - 1);
+      if (snapshots.contains(root.getSolidity())) {
+        root.resetSolidity();
+      }
+      if (db.getHead() == last) {
+        db.setHead(root);
+      } else {
+        last.getNext().setPrevious(root);
+        root.setNext(last.getNext());
+      }
+    });
+  }
+
+  /**
+   * @return bytes written to the checkpoint since the last call.
+   */
+  public long resetCheckpointBytes() {
+    return checkpointBytes.sumThenReset();
+  }
+
+  /**
+   * @return milliseconds spent creating checkpoints since the last call.
+   */
+  public long resetCheckpointTime() {
+    return checkpointTime.sumThenReset();
+  }
+
+  /**
+   * @return the read caches of the databases which have one, see storage.cache.
+   */
+  public List<ReadCache> getReadCaches() {
+    return dbs.stream()
+        .map(db -> ((SnapshotRoot) db.getHead().getRoot()).getCache())
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
   }
 
   public void flush() {
@@ -285,59 +502,189 @@ public class SnapshotManager implements RevokingDatabase {
     }
 
     if (shouldBeRefreshed()) {
-      long start = System.currentTimeMillis();
-      deleteCheckpoint();
-      createCheckpoint();
-      long checkPointEnd = System.currentTimeMillis();
-      refresh();
+      Map<Chainbase, List<Snapshot>> frozen = freeze();
       flushCount = 0;
-      logger.info("flush cost:{}, create checkpoint cost:{}, refresh cost:{}",
-          System.currentTimeMillis() - start,
-          checkPointEnd - start,
-          System.currentTimeMillis() - checkPointEnd
-      );
+      if (isAsyncFlush()) {
+        submitFlush(frozen);
+        return;
+      }
+
+      relink(flushFrozen(frozen));
     }
   }
 
-  private void createCheckpoint() {
-    Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
-    for (Chainbase db : dbs) {
-      Snapshot head = db.getHead();
-      if (Snapshot.isRoot(head)) {
-        return;
-      }
+  private Map<Chainbase, List<Snapshot>> flushFrozen(Map<Chainbase, List<Snapshot>> frozen) {
+    long start = System.currentTimeMillis();
+    SharedRocksDb shared = AtomicBatch.sharedOf(checkTmpStore.getDbSource());
+    Map<Chainbase, List<Snapshot>> merged = new LinkedHashMap<>();
+    Map<Chainbase, List<Snapshot>> rest = frozen;
+    long checkpointBytes;
+    if (shared == null) {
+      checkpointBytes = createCheckpoint(frozen);
+    } else {
+      rest = new LinkedHashMap<>();
+      checkpointBytes = commitWithCheckpoint(shared, frozen, merged, rest);
+    }
+    long checkPointEnd = System.currentTimeMillis();
+    this.checkpointBytes.add(checkpointBytes);
+    checkpointTime.add(checkPointEnd - start);
+    merged.putAll(refresh(rest));
+    logger.info("flush cost:{}, create checkpoint cost:{}, checkpoint bytes:{}, refresh cost:{}",
+        System.currentTimeMillis() - start,
+        checkPointEnd - start,
+        checkpointBytes,
+        System.currentTimeMillis() - checkPointEnd
+    );
+    if (logger.isDebugEnabled()) {
+      frozen.values().stream()
+          .filter(snapshots -> !snapshots.isEmpty())
+          .map(snapshots -> ((SnapshotRoot) snapshots.get(0).getRoot()).getCache())
+          .filter(Objects::nonNull)
+          .forEach(cache -> logger.debug("read cache {}", cache));
+    }
+    return merged;
+  }
 
-      String dbName = db.getDbName();
-      Snapshot next = head.getRoot();
-      for (int i = 0; i < flushCount; ++i) {
-        next = next.getNext();
-        SnapshotImpl snapshot = (SnapshotImpl) next;
-        DB<Key, Value> keyValueDB = snapshot.getDb();
-        for (Map.Entry<Key, Value> e : keyValueDB) {
-          Key k = e.getKey();
-          Value v = e.getValue();
-          batch.put(WrappedByteArray.of(Bytes.concat(simpleEncode(dbName), k.getBytes())),
-              WrappedByteArray.of(v.encode()));
+  /**
+   * Hand the frozen snapshots to the background flusher. They stay linked, so reads keep
+   * finding their rows until relinkFlushed() unlinks them on a later session. When the
+   * backlog is full, block until the oldest flush is done.
+   */
+  private void submitFlush(Map<Chainbase, List<Snapshot>> frozen) {
+    relinkFlushed(false);
+    while (flushBacklog.size() >= CommonParameter.getInstance().getStorage()
+        .getMaxFlushBacklog()) {
+      long start = System.currentTimeMillis();
+      relinkOldest();
+      logger.info("wait for background flush cost:{}", System.currentTimeMillis() - start);
+    }
+
+    flushBacklog.addLast(new FlushTask(frozen, flusher.submit(() -> flushFrozen(frozen))));
+  }
+
+  /**
+   * Unlink the snapshots of finished background flushes, wait for all of them if drain.
+   */
+  private synchronized void relinkFlushed(boolean drain) {
+    while (!flushBacklog.isEmpty() && (drain || flushBacklog.peekFirst().future.isDone())) {
+      relinkOldest();
+    }
+  }
+
+  private void relinkOldest() {
+    FlushTask task = flushBacklog.pollFirst();
+    try {
+      relink(task.future.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      logger.error(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Stream the snapshots to be flushed into the checkpoint under a new epoch, one native
+   * batch per db, then publish the epoch. Rows of older epochs are ignored by check(),
+   * so they are deleted in the background instead of before every flush.
+   *
+   * @return bytes written to the checkpoint.
+   */
+  private long createCheckpoint(Map<Chainbase, List<Snapshot>> frozen) {
+    long epoch = checkpointEpoch + 1;
+    DbSourceInter<byte[]> source = checkTmpStore.getDbSource();
+    WriteOptionsWrapper options = WriteOptionsWrapper.getInstance()
+        .sync(CommonParameter.getInstance().getStorage().isDbSync());
+    long bytes = 0;
+    for (Map.Entry<Chainbase, List<Snapshot>> entry : frozen.entrySet()) {
+      try (WriteBatchWrapper batch = source.createWriteBatch()) {
+        appendCheckpoint(batch, epoch, entry.getKey(), entry.getValue());
+        if (!batch.isEmpty()) {
+          source.updateByBatch(batch, options);
         }
+        bytes += batch.getBytes();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
       }
     }
 
-    checkTmpStore.getDbSource().updateByBatch(batch.entrySet().stream()
-            .map(e -> Maps.immutableEntry(e.getKey().getBytes(), e.getValue().getBytes()))
-            .collect(HashMap::new, (m, k) -> m.put(k.getKey(), k.getValue()), HashMap::putAll),
-        WriteOptionsWrapper.getInstance().sync(CommonParameter
-            .getInstance().getStorage().isDbSync()));
+    source.updateByBatch(Collections.singletonMap(CHECKPOINT_EPOCH_KEY, Longs.toByteArray(epoch)),
+        options);
+    publishCheckpoint(epoch);
+    return bytes;
+  }
+
+  /**
+   * When the checkpoint is a column family of a shared instance, write the frozen snapshots of
+   * the dbs in that instance and the checkpoint of the other dbs in one atomic batch. Rows of
+   * the former are written once instead of twice, the latter are refreshed by the caller and
+   * replayed by check() if the process stops before.
+   *
+   * @param merged receives the dbs committed here.
+   * @param rest receives the dbs left to refresh.
+   * @return bytes written to the checkpoint.
+   */
+  private long commitWithCheckpoint(SharedRocksDb shared, Map<Chainbase, List<Snapshot>> frozen,
+      Map<Chainbase, List<Snapshot>> merged, Map<Chainbase, List<Snapshot>> rest) {
+    Map<Chainbase, List<Snapshot>> atomic = new LinkedHashMap<>();
+    frozen.forEach((db, snapshots) ->
+        (sharedOf(db) == shared && !snapshots.isEmpty() ? atomic : rest).put(db, snapshots));
+
+    long epoch = checkpointEpoch + 1;
+    long bytes;
+    try (AtomicBatch batch = new AtomicBatch(shared)) {
+      Map<Chainbase, Map<WrappedByteArray, WrappedByteArray>> rows = collect(batch, atomic);
+      WriteBatchWrapper checkpoint = batch.writerOf(checkTmpStore.getDbSource());
+      rest.forEach((db, snapshots) -> appendCheckpoint(checkpoint, epoch, db, snapshots));
+      checkpoint.put(CHECKPOINT_EPOCH_KEY, Longs.toByteArray(epoch));
+      bytes = checkpoint.getBytes();
+      batch.commit(CommonParameter.getInstance().getStorage().isDbSync());
+      merged(atomic, rows);
+    }
+    merged.putAll(atomic);
+    publishCheckpoint(epoch);
+    return bytes;
   }
 
-  private void deleteCheckpoint() {
-    Map<byte[], byte[]> hmap = new HashMap<byte[], byte[]>();
-    if (!checkTmpStore.getDbSource().allKeys().isEmpty()) {
-      for (Map.Entry<byte[], byte[]> e : checkTmpStore.getDbSource()) {
-        hmap.put(e.getKey(), null);
+  private static void appendCheckpoint(WriteBatchWrapper batch, long epoch, Chainbase db,
+      List<Snapshot> snapshots) {
+    byte[] dbPrefix = Bytes.concat(checkpointPrefix(epoch), simpleEncode(db.getDbName()));
+    for (Snapshot snapshot : snapshots) {
+      DB<Key, Value> keyValueDB = ((SnapshotImpl) snapshot).getDb();
+      for (Map.Entry<Key, Value> e : keyValueDB) {
+        batch.put(Bytes.concat(dbPrefix, e.getKey().getBytes()), e.getValue().encode());
       }
     }
+  }
 
-    checkTmpStore.getDbSource().updateByBatch(hmap);
+  private void publishCheckpoint(long epoch) {
+    long obsolete = checkpointEpoch;
+    checkpointEpoch = epoch;
+    checkpointCleaner.submit(() -> deleteCheckpoint(obsolete));
+  }
+
+  private void deleteCheckpoint(long epoch) {
+    if (epoch <= 0) {
+      return;
+    }
+
+    byte[] prefix = checkpointPrefix(epoch);
+    DbSourceInter<byte[]> source = checkTmpStore.getDbSource();
+    try {
+      List<byte[]> keys;
+      do {
+        keys = source.getKeysNext(prefix, CHECKPOINT_DELETE_CHUNK).stream()
+            .filter(key -> startsWith(key, prefix))
+            .collect(Collectors.toList());
+        if (!keys.isEmpty()) {
+          try (WriteBatchWrapper batch = source.createWriteBatch()) {
+            keys.forEach(batch::delete);
+            source.updateByBatch(batch, WriteOptionsWrapper.getInstance());
+          }
+        }
+      } while (!keys.isEmpty());
+    } catch (Exception e) {
+      logger.warn("delete checkpoint of epoch {} failed, {}", epoch, e.getMessage());
+    }
   }
 
   // ensure run this method first after process start.
@@ -349,37 +696,65 @@ public class SnapshotManager implements RevokingDatabase {
       }
     }
 
-    if (!checkTmpStore.getDbSource().allKeys().isEmpty()) {
-      Map<String, Chainbase> dbMap = dbs.stream()
-          .map(db -> Maps.immutableEntry(db.getDbName(), db))
-          .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-      advance();
-      for (Map.Entry<byte[], byte[]> e : checkTmpStore.getDbSource()) {
-        byte[] key = e.getKey();
-        byte[] value = e.getValue();
-        String db = simpleDecode(key);
-        if (dbMap.get(db) == null) {
-          continue;
-        }
-        byte[] realKey = Arrays.copyOfRange(key, db.getBytes().length + 4, key.length);
-
-        byte[] realValue = value.length == 1 ? null : Arrays.copyOfRange(value, 1, value.length);
-        if (realValue != null) {
-          dbMap.get(db).getHead().put(realKey, realValue);
-        } else {
-          dbMap.get(db).getHead().remove(realKey);
-        }
+    DbSourceInter<byte[]> source = checkTmpStore.getDbSource();
+    byte[] epoch = source.getData(CHECKPOINT_EPOCH_KEY);
+    // without an epoch the checkpoint was written by an old version, replay every row
+    byte[] prefix = epoch == null ? new byte[0] : checkpointPrefix(Longs.fromByteArray(epoch));
+    Map<String, Chainbase> dbMap = dbs.stream()
+        .map(db -> Maps.immutableEntry(db.getDbName(), db))
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    boolean dirty = epoch != null;
+    boolean replayed = false;
+    advance();
+    DBIterator iterator = (DBIterator) source.iterator();
+    // rows of an epoch are contiguous, older epochs are skipped by the seek
+    iterator.seek(prefix);
+    while (iterator.hasNext()) {
+      Map.Entry<byte[], byte[]> e = iterator.next();
+      dirty = true;
+      byte[] key = e.getKey();
+      byte[] value = e.getValue();
+      if (!startsWith(key, prefix)) {
+        break;
+      }
+      if (Arrays.equals(key, CHECKPOINT_EPOCH_KEY)) {
+        continue;
+      }
+      key = Arrays.copyOfRange(key, prefix.length, key.length);
+      String db = simpleDecode(key);
+      if (dbMap.get(db) == null) {
+        continue;
+      }
+      byte[] realKey = Arrays.copyOfRange(key, db.getBytes().length + 4, key.length);
 
+      byte[] realValue = value.length == 1 ? null : Arrays.copyOfRange(value, 1, value.length);
+      if (realValue != null) {
+        dbMap.get(db).getHead().put(realKey, realValue);
+      } else {
+        dbMap.get(db).getHead().remove(realKey);
       }
+      replayed = true;
+    }
+    try {
+      iterator.close();
+    } catch (IOException e) {
+      logger.warn("close checkpoint iterator failed, {}", e.getMessage());
+    }
 
+    if (replayed) {
       dbs.forEach(db -> db.getHead().getRoot().merge(db.getHead()));
-      retreat();
     }
+    retreat();
 
+    // every store is consistent now, start over with an empty checkpoint
+    if (dirty) {
+      checkTmpStore.reset();
+    }
+    checkpointEpoch = 0;
     unChecked = false;
   }
 
-  private byte[] simpleEncode(String s) {
+  public static byte[] simpleEncode(String s) {
     byte[] bytes = s.getBytes();
     byte[] length = Ints.toByteArray(bytes.length);
     byte[] r = new byte[4 + bytes.length];
@@ -388,6 +763,38 @@ public class SnapshotManager implements RevokingDatabase {
     return r;
   }
 
+  /**
+   * Rows of a checkpoint are keyed by epoch + simpleEncode(dbName) + key, the epoch is stored
+   * in 8 bytes, so they never collide with the epoch marker or rows of old versions whose keys
+   * start with a positive name length.
+   */
+  public static byte[] checkpointPrefix(long epoch) {
+    return Longs.toByteArray(epoch);
+  }
+
+  static byte[] checkpointKey(long epoch, String dbName, byte[] key) {
+    return Bytes.concat(checkpointPrefix(epoch), simpleEncode(dbName), key);
+  }
+
+  private static boolean startsWith(byte[] bytes, byte[] prefix) {
+    if (bytes.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @AllArgsConstructor
+  private static class FlushTask {
+
+    private final Map<Chainbase, List<Snapshot>> snapshots;
+    private final Future<Map<Chainbase, List<Snapshot>>> future;
+  }
+
   @Slf4j(topic = "DB")
   @Getter // only for unit test
   public static class Session implements ISession {
@@ -2,14 +2,22 @@ package org.tron.core.db2.core;
 
 import com.google.common.collect.Maps;
 import com.google.common.collect.Streams;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.Getter;
+import lombok.Setter;
+import org.tron.common.parameter.CommonParameter;
+import org.tron.core.config.args.Storage;
+import org.tron.core.db.common.iterator.DBIterator;
 import org.tron.core.db2.common.DB;
 import org.tron.core.db2.common.Flusher;
+import org.tron.core.db2.common.LevelDB;
+import org.tron.core.db2.common.ReadCache;
+import org.tron.core.db2.common.RocksDB;
 import org.tron.core.db2.common.WrappedByteArray;
 
 public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
@@ -17,25 +25,65 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
   @Getter
   private Snapshot solidity;
 
+  @Getter
+  private ReadCache cache;
+
+  private final SnapshotIndex index = new SnapshotIndex();
+
+  // key order of db, must match the comparator the db is opened with
+  @Getter
+  @Setter
+  private Comparator<byte[]> keyComparator = MergeIterator.BYTES;
+
   public SnapshotRoot(DB<byte[], byte[]> db) {
     this.db = db;
     solidity = this;
-    isOptimized = "properties".equalsIgnoreCase(db.getDbName());
+    cache = newCache(db.getDbName());
+  }
+
+  SnapshotIndex getIndex() {
+    return index;
+  }
+
+  private static ReadCache newCache(String dbName) {
+    Storage storage = CommonParameter.getInstance().getStorage();
+    long cacheSize = storage == null || dbName == null ? 0 : storage.getCacheSize(dbName);
+    return cacheSize > 0 ? new ReadCache(dbName, cacheSize) : null;
   }
 
   @Override
   public byte[] get(byte[] key) {
-    return db.get(key);
+    if (cache == null) {
+      return db.get(key);
+    }
+
+    byte[] value = cache.get(key);
+    if (value != null) {
+      return value;
+    }
+
+    long version = cache.version(key);
+    value = db.get(key);
+    if (value != null) {
+      cache.fill(key, value, version);
+    }
+    return value;
   }
 
   @Override
   public void put(byte[] key, byte[] value) {
     db.put(key, value);
+    if (cache != null) {
+      cache.put(key, value);
+    }
   }
 
   @Override
   public void remove(byte[] key) {
     db.remove(key);
+    if (cache != null) {
+      cache.remove(key);
+    }
   }
 
   @Override
@@ -46,9 +94,22 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
             WrappedByteArray.of(e.getValue().getBytes())))
         .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     ((Flusher) db).flush(batch);
+    if (cache != null) {
+      cache.putAll(batch);
+    }
   }
 
   public void merge(List<Snapshot> snapshots) {
+    Map<WrappedByteArray, WrappedByteArray> batch = collect(snapshots);
+    ((Flusher) db).flush(batch);
+    merged(batch, snapshots);
+  }
+
+  /**
+   * @return the latest row of every key of snapshots, ordered from old to new, a deleted key
+   *     has a null value.
+   */
+  Map<WrappedByteArray, WrappedByteArray> collect(List<Snapshot> snapshots) {
     Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
     for (Snapshot snapshot : snapshots) {
       SnapshotImpl from = (SnapshotImpl) snapshot;
@@ -57,8 +118,18 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
               WrappedByteArray.of(e.getValue().getBytes())))
           .forEach(e -> batch.put(e.getKey(), e.getValue()));
     }
+    return batch;
+  }
 
-    ((Flusher) db).flush(batch);
+  /**
+   * Call after the batch collected from snapshots is written to the db.
+   */
+  void merged(Map<WrappedByteArray, WrappedByteArray> batch, List<Snapshot> snapshots) {
+    if (cache != null) {
+      cache.putAll(batch);
+    }
+    // the flushed layers are unlinked by the caller, their keys are served by the root now
+    snapshots.forEach(snapshot -> index.remove((SnapshotImpl) snapshot));
   }
 
   @Override
@@ -76,14 +147,39 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
     return db.iterator();
   }
 
+  /**
+   * @return the rows from the first key not less than key on, in the order of comparator,
+   *     which must be the order of the db. LevelDB and RocksDB seek natively, other dbs are
+   *     read fully and sorted.
+   */
+  Iterator<Map.Entry<byte[], byte[]>> iterator(byte[] key, Comparator<byte[]> comparator) {
+    if (db instanceof LevelDB || db instanceof RocksDB) {
+      DBIterator iterator = (DBIterator) db.iterator();
+      iterator.seek(key);
+      return iterator;
+    }
+
+    return Streams.stream(db)
+        .filter(e -> comparator.compare(e.getKey(), key) >= 0)
+        .sorted((e1, e2) -> comparator.compare(e1.getKey(), e2.getKey()))
+        .iterator();
+  }
+
   @Override
   public void close() {
     ((Flusher) db).close();
+    if (cache != null) {
+      cache.clear();
+    }
   }
 
   @Override
   public void reset() {
     ((Flusher) db).reset();
+    if (cache != null) {
+      cache.clear();
+    }
+    index.clear();
   }
 
   @Override
@@ -103,6 +199,8 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
 
   @Override
   public Snapshot newInstance() {
-    return new SnapshotRoot(db.newInstance());
+    SnapshotRoot root = new SnapshotRoot(db.newInstance());
+    root.setKeyComparator(keyComparator);
+    return root;
   }
 }
@@ -16,6 +16,7 @@ import org.tron.common.utils.StorageUtils;
 import org.tron.core.capsule.MarketOrderIdListCapsule;
 import org.tron.core.capsule.utils.MarketUtils;
 import org.tron.core.db.TronStoreWithRevoking;
+import org.tron.core.db2.core.Chainbase;
 import org.tron.core.exception.ItemNotFoundException;
 
 @Component
@@ -24,6 +25,10 @@ public class MarketPairPriceToOrderStore extends TronStoreWithRevoking<MarketOrd
   @Autowired
   protected MarketPairPriceToOrderStore(@Value("market_pair_price_to_order") String dbName) {
     super(dbName);
+    if (revokingDB instanceof Chainbase) {
+      // the db is ordered by price, so must be the range scans over its snapshots
+      ((Chainbase) revokingDB).setKeyComparator(MarketUtils.PRICE_KEY_COMPARATOR);
+    }
   }
 
   @Override
@@ -1,6 +1,7 @@
 package org.tron.core.store;
 
 import com.google.protobuf.ByteString;
+import java.io.IOException;
 import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.BooleanUtils;
@@ -11,10 +12,12 @@ import org.tron.common.parameter.CommonParameter;
 import org.tron.common.utils.ByteArray;
 import org.tron.core.capsule.TransactionInfoCapsule;
 import org.tron.core.capsule.TransactionRetCapsule;
+import org.tron.core.capsule.utils.ProtoUtil;
 import org.tron.core.db.TransactionStore;
 import org.tron.core.db.TronStoreWithRevoking;
 import org.tron.core.exception.BadItemException;
 import org.tron.protos.Protocol.TransactionInfo;
+import org.tron.protos.Protocol.TransactionRet;
 
 @Slf4j(topic = "DB")
 @Component
@@ -46,12 +49,31 @@ public class TransactionRetStore extends TronStoreWithRevoking<TransactionRetCap
       return null;
     }
 
+    ByteString id = ByteString.copyFrom(key);
+    // infos are kept in the order of the transactions of the block, try the one at the index
+    // of the transaction before parsing all of them
+    int index = transactionStore.getIndexInBlock(key);
+    if (index >= 0) {
+      try {
+        ByteString info = ProtoUtil.readRepeated(value,
+            TransactionRet.TRANSACTIONINFO_FIELD_NUMBER, index);
+        if (info != null) {
+          TransactionInfo transactionInfo = TransactionInfo.parseFrom(info);
+          if (transactionInfo.getId().equals(id)) {
+            return new TransactionInfoCapsule(transactionInfo);
+          }
+        }
+      } catch (IOException e) {
+        logger.warn("decode transaction info {} of block {} failed, {}", index, blockNumber,
+            e.getMessage());
+      }
+    }
+
     TransactionRetCapsule result = new TransactionRetCapsule(value);
     if (Objects.isNull(result.getInstance())) {
       return null;
     }
 
-    ByteString id = ByteString.copyFrom(key);
     for (TransactionInfo transactionResultInfo : result.getInstance().getTransactioninfoList()) {
       if (transactionResultInfo.getId().equals(id)) {
         return new TransactionInfoCapsule(transactionResultInfo);
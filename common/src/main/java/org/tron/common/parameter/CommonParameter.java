@@ -219,6 +219,9 @@ public class CommonParameter {
   public int validateSignThreadNum;
   @Getter
   @Setter
+  public boolean prefetchState;
+  @Getter
+  @Setter
   public long maintenanceTimeInterval; // (ms)
   @Getter
   @Setter
@@ -421,6 +424,30 @@ public class CommonParameter {
   public long pendingTransactionTimeout;
   @Getter
   @Setter
+  public long maxTransactionPendingBytes;
+  @Getter
+  @Setter
+  public int maxTransactionPendingPerSender;
+  @Getter
+  @Setter
+  public boolean incrementalRevalidation;
+  @Getter
+  @Setter
+  public int syncSignatureAheadBlocks;
+  @Getter
+  @Setter
+  public long signerCacheSize;
+  @Getter
+  @Setter
+  public int forkSwitchDetachedBlocks;
+  @Getter
+  @Setter
+  public long codeCacheSize;
+  @Getter
+  @Setter
+  public boolean vmChargeRuns;
+  @Getter
+  @Setter
   public boolean nodeMetricsEnable = false;
 
   @Getter
@@ -298,26 +298,35 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    bnot();
-    add(DataWord.ONE());
+    byte[] a = word(data);
+    byte[] result = new byte[WORD_SIZE];
+    for (int i = 31, carry = 1; i >= 0; i--) {
+      int v = (~a[i] & 0xff) + carry;
+      result[i] = (byte) v;
+      carry = v >>> 8;
+    }
+    this.data = result;
   }
 
   public void bnot() {
-    if (this.isZero()) {
-      this.data = ByteUtil.copyToArray(MAX_VALUE);
-      return;
+    byte[] a = word(data);
+    byte[] result = new byte[WORD_SIZE];
+    for (int i = 0; i < WORD_SIZE; i++) {
+      result[i] = (byte) ~a[i];
     }
-    this.data = ByteUtil.copyToArray(MAX_VALUE.subtract(this.value()));
+    this.data = result;
   }
 
-  // By   : Holger
-  // From : http://stackoverflow.com/a/24023466/459349
   public void add(DataWord word) {
+    byte[] a = word(data);
+    byte[] b = word(word.data);
     byte[] result = new byte[WORD_SIZE];
-    for (int i = 31, overflow = 0; i >= 0; i--) {
-      int v = (this.data[i] & 0xff) + (word.data[i] & 0xff) + overflow;
-      result[i] = (byte) v;
-      overflow = v >>> 8;
+    long carry = 0;
+    for (int off = 24; off >= 0; off -= 8) {
+      long x = getLong(a, off);
+      long sum = x + getLong(b, off) + carry;
+      carry = Long.compareUnsigned(sum, x) < 0 || (carry == 1 && sum == x) ? 1 : 0;
+      putLong(result, off, sum);
     }
     this.data = result;
   }
@@ -328,15 +337,10 @@ public class DataWord implements Comparable<DataWord> {
     this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
   }
 
-  // TODO: mul can be done in more efficient way
-  // TODO:     with shift left shift right trick
-  // TODO      without BigInteger quick hack
   public void mul(DataWord word) {
-    BigInteger result = value().multiply(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    this.data = toBytes(multiply(digits(data), digits(word.data), new int[DIGITS]));
   }
 
-  // TODO: improve with no BigInteger
   public void div(DataWord word) {
 
     if (word.isZero()) {
@@ -344,11 +348,9 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().divide(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    this.data = toBytes(divide(digits(data), digits(word.data), false));
   }
 
-  // TODO: improve with no BigInteger
   public void sDiv(DataWord word) {
 
     if (word.isZero()) {
@@ -356,23 +358,51 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = sValue().divide(word.sValue());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    boolean negative = this.isNegative() != word.isNegative();
+    int[] result = divide(absDigits(this), absDigits(word), false);
+    this.data = toBytes(negative ? negate(result) : result);
   }
 
-  // TODO: improve with no BigInteger
   public void sub(DataWord word) {
-    BigInteger result = value().subtract(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    byte[] a = word(data);
+    byte[] b = word(word.data);
+    byte[] result = new byte[WORD_SIZE];
+    long borrow = 0;
+    for (int off = 24; off >= 0; off -= 8) {
+      long x = getLong(a, off);
+      long y = getLong(b, off);
+      putLong(result, off, x - y - borrow);
+      borrow = Long.compareUnsigned(x, y) < 0 || (borrow == 1 && x == y) ? 1 : 0;
+    }
+    this.data = result;
   }
 
-  // TODO: improve with no BigInteger
   public void exp(DataWord word) {
-    BigInteger result = value().modPow(word.value(), _2_256);
-    this.data = ByteUtil.copyToArray(result);
+    byte[] power = word(word.data);
+    int first = ByteUtil.firstNonZeroByte(power);
+    if (first < 0) {
+      this.data = toBytes(new int[] {1, 0, 0, 0, 0, 0, 0, 0});
+      return;
+    }
+
+    // square and multiply from the bit below the highest one
+    int[] base = digits(data);
+    int[] result = base.clone();
+    int[] tmp = new int[DIGITS];
+    for (int i = first * 8 + Integer.numberOfLeadingZeros(power[first] & 0xff) - 23;
+        i < MAX_POW; i++) {
+      int[] square = multiply(result, result, tmp);
+      tmp = result;
+      result = square;
+      if ((power[i >>> 3] & (0x80 >>> (i & 7))) != 0) {
+        int[] product = multiply(result, base, tmp);
+        tmp = result;
+        result = product;
+      }
+    }
+    this.data = toBytes(result);
   }
 
-  // TODO: improve with no BigInteger
   public void mod(DataWord word) {
 
     if (word.isZero()) {
@@ -380,8 +410,7 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().mod(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    this.data = toBytes(divide(digits(data), digits(word.data), true));
   }
 
   public void sMod(DataWord word) {
@@ -391,10 +420,8 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = sValue().abs().mod(word.sValue().abs());
-    result = (sValue().signum() == -1) ? result.negate() : result;
-
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    int[] result = divide(absDigits(this), absDigits(word), true);
+    this.data = toBytes(this.isNegative() ? negate(result) : result);
   }
 
   public void addmod(DataWord word1, DataWord word2) {
@@ -403,8 +430,18 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().add(word1.value()).mod(word2.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    // the sum takes one more digit
+    int[] a = digits(data);
+    int[] b = digits(word1.data);
+    int[] sum = new int[DIGITS + 1];
+    long carry = 0;
+    for (int i = 0; i < DIGITS; i++) {
+      long v = (a[i] & DIGIT_MASK) + (b[i] & DIGIT_MASK) + carry;
+      sum[i] = (int) v;
+      carry = v >>> 32;
+    }
+    sum[DIGITS] = (int) carry;
+    this.data = toBytes(divide(sum, digits(word2.data), true));
   }
 
   public void mulmod(DataWord word1, DataWord word2) {
@@ -414,8 +451,8 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().multiply(word1.value()).mod(word2.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    int[] product = multiply(digits(data), digits(word1.data), new int[DIGITS * 2]);
+    this.data = toBytes(divide(product, digits(word2.data), true));
   }
 
   @JsonValue
@@ -483,7 +520,7 @@ public class DataWord implements Comparable<DataWord> {
     if (0 > k || k > 31) {
       throw new IndexOutOfBoundsException();
     }
-    byte mask = this.sValue().testBit((k * 8) + 7) ? (byte) 0xff : 0;
+    byte mask = (this.data[31 - k] & 0x80) != 0 ? (byte) 0xff : 0;
     for (int i = 31; i > k; i--) {
       this.data[31 - i] = mask;
     }
@@ -515,12 +552,23 @@ public class DataWord implements Comparable<DataWord> {
    * @return this << arg
    */
   public DataWord shiftLeft(DataWord arg) {
-    if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+    if (arg.bytesOccupied() > 1) {
       return DataWord.ZERO();
     }
 
-    BigInteger result = value().shiftLeft(arg.intValueSafe());
-    return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+    int shift = arg.intValue();
+    byte[] a = word(data);
+    byte[] result = new byte[WORD_SIZE];
+    int bytes = shift >>> 3;
+    int bits = shift & 7;
+    for (int i = 0; i + bytes < WORD_SIZE; i++) {
+      int v = (a[i + bytes] & 0xff) << bits;
+      if (i + bytes + 1 < WORD_SIZE) {
+        v |= (a[i + bytes + 1] & 0xff) >>> (8 - bits);
+      }
+      result[i] = (byte) v;
+    }
+    return new DataWord(result);
   }
 
   /**
@@ -529,12 +577,11 @@ public class DataWord implements Comparable<DataWord> {
    * @return this >> arg
    */
   public DataWord shiftRight(DataWord arg) {
-    if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+    if (arg.bytesOccupied() > 1) {
       return DataWord.ZERO();
     }
 
-    BigInteger result = value().shiftRight(arg.intValueSafe());
-    return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+    return new DataWord(shiftRight(word(data), arg.intValue(), 0));
   }
 
   /**
@@ -543,7 +590,7 @@ public class DataWord implements Comparable<DataWord> {
    * @return this >> arg
    */
   public DataWord shiftRightSigned(DataWord arg) {
-    if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+    if (arg.bytesOccupied() > 1) {
       if (this.isNegative()) {
         DataWord result = ONE();
         result.negate();
@@ -553,7 +600,226 @@ public class DataWord implements Comparable<DataWord> {
       }
     }
 
-    BigInteger result = sValue().shiftRight(arg.intValueSafe());
-    return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+    byte[] a = word(data);
+    return new DataWord(shiftRight(a, arg.intValue(), (a[0] & 0x80) != 0 ? 0xff : 0));
+  }
+
+  // 256-bit arithmetic without BigInteger. add and sub work on four big-endian longs of the
+  // word, the other operations on eight 32-bit digits, least significant first, so that every
+  // digit product and every two-digit dividend fits in a long.
+
+  private static final int DIGITS = WORD_SIZE / 4;
+  private static final long DIGIT_MASK = 0xffffffffL;
+
+  // data is shorter than a word when the DataWord was created from null
+  private static byte[] word(byte[] data) {
+    if (data.length == WORD_SIZE) {
+      return data;
+    }
+    byte[] word = new byte[WORD_SIZE];
+    System.arraycopy(data, 0, word, WORD_SIZE - data.length, data.length);
+    return word;
+  }
+
+  private static long getLong(byte[] b, int off) {
+    long v = 0;
+    for (int i = off; i < off + 8; i++) {
+      v = (v << 8) | (b[i] & 0xff);
+    }
+    return v;
+  }
+
+  private static void putLong(byte[] b, int off, long v) {
+    for (int i = off + 7; i >= off; i--) {
+      b[i] = (byte) v;
+      v >>>= 8;
+    }
+  }
+
+  private static int[] digits(byte[] data) {
+    byte[] b = word(data);
+    int[] x = new int[DIGITS];
+    for (int i = 0, off = WORD_SIZE - 4; i < DIGITS; i++, off -= 4) {
+      x[i] = (b[off] & 0xff) << 24 | (b[off + 1] & 0xff) << 16 | (b[off + 2] & 0xff) << 8
+          | (b[off + 3] & 0xff);
+    }
+    return x;
+  }
+
+  // the word of the lowest DIGITS digits of x, which is x mod 2^256
+  private static byte[] toBytes(int[] x) {
+    byte[] b = new byte[WORD_SIZE];
+    for (int i = 0, off = WORD_SIZE - 4; i < DIGITS; i++, off -= 4) {
+      b[off] = (byte) (x[i] >>> 24);
+      b[off + 1] = (byte) (x[i] >>> 16);
+      b[off + 2] = (byte) (x[i] >>> 8);
+      b[off + 3] = (byte) x[i];
+    }
+    return b;
+  }
+
+  // in place, x is a word
+  private static int[] negate(int[] x) {
+    long carry = 1;
+    for (int i = 0; i < DIGITS; i++) {
+      long v = (~x[i] & DIGIT_MASK) + carry;
+      x[i] = (int) v;
+      carry = v >>> 32;
+    }
+    return x;
+  }
+
+  // the absolute value of a signed word, 2^255 for the minimum is right as an unsigned value
+  private static int[] absDigits(DataWord word) {
+    int[] x = digits(word.data);
+    return word.isNegative() ? negate(x) : x;
+  }
+
+  // the lowest r.length digits of x * y, into r
+  private static int[] multiply(int[] x, int[] y, int[] r) {
+    int size = r.length;
+    java.util.Arrays.fill(r, 0);
+    for (int i = 0; i < x.length && i < size; i++) {
+      long xi = x[i] & DIGIT_MASK;
+      if (xi == 0) {
+        continue;
+      }
+      long carry = 0;
+      int j = 0;
+      for (; j < y.length && i + j < size; j++) {
+        long v = xi * (y[j] & DIGIT_MASK) + (r[i + j] & DIGIT_MASK) + carry;
+        r[i + j] = (int) v;
+        carry = v >>> 32;
+      }
+      if (i + j < size) {
+        r[i + j] = (int) carry;
+      }
+    }
+    return r;
+  }
+
+  private static int length(int[] x) {
+    int n = x.length;
+    while (n > 0 && x[n - 1] == 0) {
+      n--;
+    }
+    return n;
+  }
+
+  /**
+   * Knuth's algorithm D, see Hacker's Delight 9-2.
+   *
+   * @param u the dividend, may be longer than a word.
+   * @param v the divisor, a nonzero word.
+   * @return the quotient, or the remainder, as a word.
+   */
+  private static int[] divide(int[] u, int[] v, boolean remainder) {
+    int m = length(u);
+    int n = length(v);
+    int[] q = new int[Math.max(m, DIGITS)];
+    int[] r = new int[DIGITS];
+    if (m < n) {
+      System.arraycopy(u, 0, r, 0, m);
+      return remainder ? r : q;
+    }
+
+    if (n == 1) {
+      long divisor = v[0] & DIGIT_MASK;
+      long rem = 0;
+      for (int i = m - 1; i >= 0; i--) {
+        long dividend = rem << 32 | (u[i] & DIGIT_MASK);
+        long quotient = divideUnsigned(dividend, divisor);
+        q[i] = (int) quotient;
+        rem = dividend - quotient * divisor;
+      }
+      r[0] = (int) rem;
+      return remainder ? r : q;
+    }
+
+    // normalize so that the top digit of the divisor has its high bit set
+    int s = Integer.numberOfLeadingZeros(v[n - 1]);
+    int[] vn = new int[n];
+    for (int i = n - 1; i > 0; i--) {
+      vn[i] = s == 0 ? v[i] : v[i] << s | v[i - 1] >>> (32 - s);
+    }
+    vn[0] = v[0] << s;
+    int[] un = new int[m + 1];
+    un[m] = s == 0 ? 0 : u[m - 1] >>> (32 - s);
+    for (int i = m - 1; i > 0; i--) {
+      un[i] = s == 0 ? u[i] : u[i] << s | u[i - 1] >>> (32 - s);
+    }
+    un[0] = u[0] << s;
+
+    long top = vn[n - 1] & DIGIT_MASK;
+    long next = vn[n - 2] & DIGIT_MASK;
+    for (int j = m - n; j >= 0; j--) {
+      long dividend = (un[j + n] & DIGIT_MASK) << 32 | (un[j + n - 1] & DIGIT_MASK);
+      long qhat = divideUnsigned(dividend, top);
+      long rhat = dividend - qhat * top;
+      while (qhat > DIGIT_MASK
+          || Long.compareUnsigned(qhat * next, rhat << 32 | (un[j + n - 2] & DIGIT_MASK)) > 0) {
+        qhat--;
+        rhat += top;
+        if (rhat > DIGIT_MASK) {
+          break;
+        }
+      }
+
+      // multiply and subtract
+      long borrow = 0;
+      long t;
+      for (int i = 0; i < n; i++) {
+        long p = qhat * (vn[i] & DIGIT_MASK);
+        t = (un[i + j] & DIGIT_MASK) - borrow - (p & DIGIT_MASK);
+        un[i + j] = (int) t;
+        borrow = (p >>> 32) - (t >> 32);
+      }
+      t = (un[j + n] & DIGIT_MASK) - borrow;
+      un[j + n] = (int) t;
+
+      q[j] = (int) qhat;
+      if (t < 0) {
+        // qhat was one too large, add the divisor back
+        q[j]--;
+        long carry = 0;
+        for (int i = 0; i < n; i++) {
+          t = (un[i + j] & DIGIT_MASK) + (vn[i] & DIGIT_MASK) + carry;
+          un[i + j] = (int) t;
+          carry = t >>> 32;
+        }
+        un[j + n] += (int) carry;
+      }
+    }
+    if (!remainder) {
+      return q;
+    }
+
+    for (int i = 0; i < n; i++) {
+      r[i] = s == 0 ? un[i] : un[i] >>> s | un[i + 1] << (32 - s);
+    }
+    return r;
+  }
+
+  // Long.divideUnsigned goes through BigInteger for a negative dividend before java 9
+  private static long divideUnsigned(long dividend, long divisor) {
+    if (dividend >= 0) {
+      return dividend / divisor;
+    }
+    long q = ((dividend >>> 1) / divisor) << 1;
+    long r = dividend - q * divisor;
+    return Long.compareUnsigned(r, divisor) >= 0 ? q + 1 : q;
+  }
+
+  // a word shifted right by less than 256 bits, filling with fill bytes
+  private static byte[] shiftRight(byte[] a, int shift, int fill) {
+    byte[] result = new byte[WORD_SIZE];
+    int bytes = shift >>> 3;
+    int bits = shift & 7;
+    for (int i = WORD_SIZE - 1; i >= 0; i--) {
+      int hi = i - bytes - 1 >= 0 ? a[i - bytes - 1] & 0xff : fill;
+      int lo = i - bytes >= 0 ? a[i - bytes] & 0xff : fill;
+      result[i] = (byte) ((lo >>> bits) | (hi << (8 - bits)));
+    }
+    return result;
   }
 }
@@ -33,6 +33,8 @@ public class RocksDbSettings {
   private int targetFileSizeMultiplier;
   @Getter
   private boolean enableStatistics;
+  @Getter
+  private long writeBufferSize;
 
   static {
     RocksDB.loadLibrary();
@@ -49,7 +51,8 @@ public class RocksDbSettings {
     return defaultSettings.withLevelNumber(7).withBlockSize(64).withCompactThreads(32)
         .withTargetFileSizeBase(256).withMaxBytesForLevelMultiplier(10)
         .withTargetFileSizeMultiplier(1)
-        .withMaxBytesForLevelBase(256).withMaxOpenFiles(5000).withEnableStatistics(false);
+        .withMaxBytesForLevelBase(256).withMaxOpenFiles(5000).withEnableStatistics(false)
+        .withWriteBufferSize(512);
   }
 
   public static RocksDbSettings getSettings() {
@@ -71,7 +74,8 @@ public class RocksDbSettings {
         .withMaxBytesForLevelMultiplier(maxBytesForLevelMultiplier)
         .withLevel0FileNumCompactionTrigger(level0FileNumCompactionTrigger)
         .withTargetFileSizeBase(targetFileSizeBase)
-        .withTargetFileSizeMultiplier(targetFileSizeMultiplier);
+        .withTargetFileSizeMultiplier(targetFileSizeMultiplier)
+        .withWriteBufferSize(512);
     return rocksDbSettings;
   }
 
@@ -79,13 +83,14 @@ public class RocksDbSettings {
     logger.info(String.format(
         "level number: %d, CompactThreads: %d, Blocksize: %d, maxBytesForLevelBase: %d,"
             + " withMaxBytesForLevelMultiplier: %f, level0FileNumCompactionTrigger: %d, "
-            + "withTargetFileSizeBase: %d, withTargetFileSizeMultiplier: %d",
+            + "withTargetFileSizeBase: %d, withTargetFileSizeMultiplier: %d, writeBufferSize: %d",
         rocksDbSettings.getLevelNumber(),
         rocksDbSettings.getCompactThreads(), rocksDbSettings.getBlockSize(),
         rocksDbSettings.getMaxBytesForLevelBase(),
         rocksDbSettings.getMaxBytesForLevelMultiplier(),
         rocksDbSettings.getLevel0FileNumCompactionTrigger(),
-        rocksDbSettings.getTargetFileSizeBase(), rocksDbSettings.getTargetFileSizeMultiplier()));
+        rocksDbSettings.getTargetFileSizeBase(), rocksDbSettings.getTargetFileSizeMultiplier(),
+        rocksDbSettings.getWriteBufferSize()));
   }
 
   public RocksDbSettings withMaxOpenFiles(int maxOpenFiles) {
@@ -137,6 +142,12 @@ public class RocksDbSettings {
     this.targetFileSizeMultiplier = targetFileSizeMultiplier;
     return this;
   }
+
+  public RocksDbSettings withWriteBufferSize(long writeBufferSize) {
+    this.writeBufferSize = writeBufferSize * 1024 * 1024;
+    return this;
+  }
+
   public static LRUCache getCache() {
     return cache;
   }
@@ -0,0 +1,75 @@
+package org.tron.common.utils;
+
+import static org.tron.common.utils.DbOptionalsUtils.DEFAULT_BLOCK_SIZE;
+import static org.tron.common.utils.DbOptionalsUtils.DEFAULT_CACHE_SIZE;
+import static org.tron.common.utils.DbOptionalsUtils.DEFAULT_MAX_OPEN_FILES;
+import static org.tron.common.utils.DbOptionalsUtils.DEFAULT_WRITE_BUFFER_SIZE;
+
+import lombok.Getter;
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.Options;
+
+/**
+ * Named LevelDB tuning profiles, bound to databases by storage.profile in config.conf.
+ * The cache size of DEFAULT is per database, the cache size of the other profiles is a budget
+ * split evenly among the databases bound to them.
+ */
+public enum DbProfile {
+
+  // what every database got before profiles existed
+  DEFAULT("default", DEFAULT_BLOCK_SIZE, DEFAULT_WRITE_BUFFER_SIZE, DEFAULT_CACHE_SIZE,
+      DEFAULT_MAX_OPEN_FILES),
+  // random reads of small rows, e.g. account, storage-row: small blocks, large cache
+  POINT("point", 4 * 1024, 64 * 1024 * 1024, 512 * 1024 * 1024L, 5000),
+  // append only and mostly cold rows, e.g. block, trans: large blocks and write buffer
+  HISTORY("history", 32 * 1024, 256 * 1024 * 1024, 128 * 1024 * 1024L, 5000),
+  // ordered range reads, e.g. market orders, proposals: medium blocks
+  SCAN("scan", 16 * 1024, 64 * 1024 * 1024, 128 * 1024 * 1024L, 1000);
+
+  @Getter
+  private final String name;
+  @Getter
+  private final int blockSize;
+  @Getter
+  private final int writeBufferSize;
+  @Getter
+  private final long cacheSize;
+  @Getter
+  private final int maxOpenFiles;
+
+  DbProfile(String name, int blockSize, int writeBufferSize, long cacheSize, int maxOpenFiles) {
+    this.name = name;
+    this.blockSize = blockSize;
+    this.writeBufferSize = writeBufferSize;
+    this.cacheSize = cacheSize;
+    this.maxOpenFiles = maxOpenFiles;
+  }
+
+  public static DbProfile of(String name) {
+    for (DbProfile profile : values()) {
+      if (profile.name.equalsIgnoreCase(name)) {
+        return profile;
+      }
+    }
+    throw new IllegalArgumentException("[storage.profile] unknown profile " + name);
+  }
+
+  /**
+   * @param cacheSize block cache of the database, already split from the profile budget.
+   */
+  public Options createOptions(long cacheSize, CompressionType compressionType) {
+    Options options = DbOptionalsUtils.createDefaultDbOptions();
+    options.blockSize(blockSize);
+    options.writeBufferSize(writeBufferSize);
+    options.cacheSize(cacheSize);
+    options.maxOpenFiles(maxOpenFiles);
+    options.compressionType(compressionType);
+    return options;
+  }
+
+  public static String toString(Options options) {
+    return String.format("blockSize=%d, writeBufferSize=%d, cacheSize=%d, maxOpenFiles=%d, "
+            + "compression=%s", options.blockSize(), options.writeBufferSize(),
+        options.cacheSize(), options.maxOpenFiles(), options.compressionType());
+  }
+}
@@ -64,6 +64,8 @@ public class Constant {
   public static final String VM_MIN_TIME_RATIO = "vm.minTimeRatio";
   public static final String VM_MAX_TIME_RATIO = "vm.maxTimeRatio";
   public static final String VM_LONG_RUNNING_TIME = "vm.longRunningTime";
+  public static final String VM_CODE_CACHE_SIZE = "vm.codeCacheSize";
+  public static final String VM_CHARGE_RUNS = "vm.chargeRuns";
 
   public static final String ROCKSDB = "ROCKSDB";
 
@@ -153,6 +155,8 @@ public class Constant {
 
   public static final String NODE_VALIDATE_SIGN_THREAD_NUM = "node.validateSignThreadNum";
 
+  public static final String NODE_PREFETCH_STATE = "node.prefetchState";
+
   public static final String NODE_WALLET_EXTENSION_API = "node.walletExtensionApi";
 
   public static final String NODE_CONNECT_FACTOR = "node.connectFactor";
@@ -171,6 +175,22 @@ public class Constant {
 
   public static final String NODE_PENDING_TRANSACTION_TIMEOUT = "node.pendingTransactionTimeout";
 
+  public static final String NODE_MAX_TRANSACTION_PENDING_BYTES =
+      "node.maxTransactionPendingBytes";
+
+  public static final String NODE_MAX_TRANSACTION_PENDING_PER_SENDER =
+      "node.maxTransactionPendingPerSender";
+
+  public static final String NODE_INCREMENTAL_REVALIDATION = "node.incrementalRevalidation";
+
+  public static final String NODE_SYNC_SIGNATURE_AHEAD_BLOCKS =
+      "node.syncSignatureAheadBlocks";
+
+  public static final String NODE_SIGNER_CACHE_SIZE = "node.signerCacheSize";
+
+  public static final String NODE_FORK_SWITCH_DETACHED_BLOCKS =
+      "node.forkSwitchDetachedBlocks";
+
   public static final String STORAGE_NEEDTO_UPDATE_ASSET = "storage.needToUpdateAsset";
 
   public static final String TRX_REFERENCE_BLOCK = "trx.reference.block";
@@ -17,7 +17,9 @@ package org.tron.core.config.args;
 
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigUtil;
 import java.io.File;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.Getter;
@@ -26,6 +28,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.Options;
 import org.tron.common.utils.DbOptionalsUtils;
+import org.tron.common.utils.DbProfile;
 import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.Property;
 
@@ -46,10 +49,18 @@ public class Storage {
   private static final String DB_VERSION_CONFIG_KEY = "storage.db.version";
   private static final String DB_ENGINE_CONFIG_KEY = "storage.db.engine";
   private static final String DB_SYNC_CONFIG_KEY = "storage.db.sync";
+  private static final String DB_COLUMN_FAMILIES_CONFIG_KEY = "storage.db.columnFamilies";
   private static final String INDEX_DIRECTORY_CONFIG_KEY = "storage.index.directory";
   private static final String INDEX_SWITCH_CONFIG_KEY = "storage.index.switch";
   private static final String TRANSACTIONHISTORY_SWITCH_CONFIG_KEY = "storage.transHistory.switch";
   private static final String PROPERTIES_CONFIG_KEY = "storage.properties";
+  private static final String CACHE_CONFIG_KEY = "storage.cache";
+  private static final String FLUSH_ASYNC_CONFIG_KEY = "storage.flush.async";
+  private static final String FLUSH_MAX_BACKLOG_CONFIG_KEY = "storage.flush.maxBacklog";
+  private static final String SNAPSHOT_ARENA_CONFIG_KEY = "storage.snapshot.arena";
+  private static final String PROFILE_CONFIG_KEY = "storage.profile";
+  private static final String PROFILES_CONFIG_KEY = "storage.profiles";
+  private static final String PROFILE_COMPRESSION_CONFIG_KEY = "compression";
   private static final String DEFAULT_TRANSACTIONHISTORY_SWITCH = "on";
 
   private static final String NAME_CONFIG_KEY = "name";
@@ -70,6 +81,10 @@ public class Storage {
   private static final int DEFAULT_DB_VERSION = 2;
   private static final String DEFAULT_DB_ENGINE = "LEVELDB";
   private static final boolean DEFAULT_DB_SYNC = false;
+  private static final boolean DEFAULT_DB_COLUMN_FAMILIES = false;
+  private static final boolean DEFAULT_FLUSH_ASYNC = false;
+  private static final int DEFAULT_FLUSH_MAX_BACKLOG = 2;
+  private static final boolean DEFAULT_SNAPSHOT_ARENA = false;
   private static final boolean DEFAULT_EVENT_SUBSCRIBE_CONTRACT_PARSE = true;
   private static final String DEFAULT_DB_DIRECTORY = "database";
   private static final String DEFAULT_INDEX_DIRECTORY = "index";
@@ -94,6 +109,34 @@ public class Storage {
   @Setter
   private boolean dbSync;
 
+  /**
+   * Open the RocksDB stores as column families of one RocksDB instance
+   */
+  @Getter
+  @Setter
+  private boolean dbColumnFamilies = DEFAULT_DB_COLUMN_FAMILIES;
+
+  /**
+   * Flush snapshots to the databases in the background instead of on the block thread
+   */
+  @Getter
+  @Setter
+  private boolean asyncFlush = DEFAULT_FLUSH_ASYNC;
+
+  /**
+   * Max background flushes in flight before a new flush waits for the oldest one
+   */
+  @Getter
+  @Setter
+  private int maxFlushBacklog = DEFAULT_FLUSH_MAX_BACKLOG;
+
+  /**
+   * Keep the rows of a snapshot layer in one byte slab instead of a hash map of objects
+   */
+  @Getter
+  @Setter
+  private boolean snapshotArena = DEFAULT_SNAPSHOT_ARENA;
+
   /**
    * Index storage directory: /path/to/{indexDirectory}
    */
@@ -119,6 +162,24 @@ public class Storage {
   @Getter
   private Map<String, Property> propertyMap;
 
+  /**
+   * Key: dbName, Value: tuning profile of that database, see storage.profile
+   */
+  private Map<String, DbProfile> profileMap = new HashMap<>();
+
+  /**
+   * Key: profile, Value: block cache budget shared by the databases of that profile
+   */
+  private Map<DbProfile, Long> profileCacheSizeMap = new HashMap<>();
+
+  private Map<DbProfile, CompressionType> profileCompressionMap = new HashMap<>();
+
+  /**
+   * Key: dbName, Value: byte budget of the read cache in front of that database
+   */
+  @Getter
+  private Map<String, Long> cacheSizeMap = new HashMap<>();
+
   public static int getDbVersionFromConfig(final Config config) {
     return config.hasPath(DB_VERSION_CONFIG_KEY)
         ? config.getInt(DB_VERSION_CONFIG_KEY) : DEFAULT_DB_VERSION;
@@ -134,6 +195,26 @@ public class Storage {
         ? config.getBoolean(DB_SYNC_CONFIG_KEY) : DEFAULT_DB_SYNC;
   }
 
+  public static boolean getDbColumnFamiliesFromConfig(final Config config) {
+    return config.hasPath(DB_COLUMN_FAMILIES_CONFIG_KEY)
+        ? config.getBoolean(DB_COLUMN_FAMILIES_CONFIG_KEY) : DEFAULT_DB_COLUMN_FAMILIES;
+  }
+
+  public static boolean getFlushAsyncFromConfig(final Config config) {
+    return config.hasPath(FLUSH_ASYNC_CONFIG_KEY)
+        ? config.getBoolean(FLUSH_ASYNC_CONFIG_KEY) : DEFAULT_FLUSH_ASYNC;
+  }
+
+  public static int getFlushMaxBacklogFromConfig(final Config config) {
+    return config.hasPath(FLUSH_MAX_BACKLOG_CONFIG_KEY)
+        ? Math.max(1, config.getInt(FLUSH_MAX_BACKLOG_CONFIG_KEY)) : DEFAULT_FLUSH_MAX_BACKLOG;
+  }
+
+  public static boolean getSnapshotArenaFromConfig(final Config config) {
+    return config.hasPath(SNAPSHOT_ARENA_CONFIG_KEY)
+        ? config.getBoolean(SNAPSHOT_ARENA_CONFIG_KEY) : DEFAULT_SNAPSHOT_ARENA;
+  }
+
   public static Boolean getContractParseSwitchFromConfig(final Config config) {
     return config.hasPath(EVENT_SUBSCRIBE_CONTRACT_PARSE)
         ? config.getBoolean(EVENT_SUBSCRIBE_CONTRACT_PARSE)
@@ -299,6 +380,97 @@ public class Storage {
     }
   }
 
+  /**
+   * Set cacheSizeMap of Storage object from Config, e.g. storage.cache { account = 64m }
+   *
+   * @param config Config object from "config.conf" file
+   */
+  public void setCacheSizeMapFromConfig(final Config config) {
+    if (!config.hasPath(CACHE_CONFIG_KEY)) {
+      return;
+    }
+
+    Config cacheConfig = config.getConfig(CACHE_CONFIG_KEY);
+    for (String dbName : cacheConfig.root().keySet()) {
+      long size = cacheConfig.getBytes(ConfigUtil.joinPath(dbName));
+      if (size < 0) {
+        throw new IllegalArgumentException(
+            "[storage.cache] size of " + dbName + " must not be negative.");
+      }
+      cacheSizeMap.put(dbName, size);
+    }
+  }
+
+  /**
+   * @return byte budget of the read cache of dbName, 0 means no cache.
+   */
+  public long getCacheSize(String dbName) {
+    return cacheSizeMap.getOrDefault(dbName, 0L);
+  }
+
+  /**
+   * Bind databases to tuning profiles and override the cache budget and compression of
+   * profiles, e.g. storage.profile { account = point },
+   * storage.profiles { point = { cacheSize = 1g, compression = snappy } }
+   *
+   * @param config Config object from "config.conf" file
+   */
+  public void setProfileMapFromConfig(final Config config) {
+    if (config.hasPath(PROFILE_CONFIG_KEY)) {
+      Config profileConfig = config.getConfig(PROFILE_CONFIG_KEY);
+      for (String dbName : profileConfig.root().keySet()) {
+        profileMap.put(dbName, DbProfile.of(profileConfig.getString(ConfigUtil.joinPath(dbName))));
+      }
+    }
+
+    if (!config.hasPath(PROFILES_CONFIG_KEY)) {
+      return;
+    }
+    Config profilesConfig = config.getConfig(PROFILES_CONFIG_KEY);
+    for (String name : profilesConfig.root().keySet()) {
+      DbProfile profile = DbProfile.of(name);
+      Config conf = profilesConfig.getConfig(ConfigUtil.joinPath(name));
+      if (conf.hasPath(CACHE_SIZE_CONFIG_KEY)) {
+        profileCacheSizeMap.put(profile, conf.getBytes(CACHE_SIZE_CONFIG_KEY));
+      }
+      if (conf.hasPath(PROFILE_COMPRESSION_CONFIG_KEY)) {
+        String compression = conf.getString(PROFILE_COMPRESSION_CONFIG_KEY);
+        if ("snappy".equalsIgnoreCase(compression)) {
+          profileCompressionMap.put(profile, CompressionType.SNAPPY);
+        } else if ("none".equalsIgnoreCase(compression)) {
+          profileCompressionMap.put(profile, CompressionType.NONE);
+        } else {
+          throw new IllegalArgumentException(
+              "[storage.profiles] compression must be snappy or none.");
+        }
+      }
+    }
+  }
+
+  public boolean hasProfile(String dbName) {
+    return profileMap.containsKey(dbName);
+  }
+
+  public DbProfile getProfile(String dbName) {
+    return profileMap.getOrDefault(dbName, DbProfile.DEFAULT);
+  }
+
+  /**
+   * @return options of dbName by its profile, the block cache budget of a profile other than
+   *     default is split evenly among the databases bound to it and not in storage.properties.
+   */
+  public Options createOptionsByProfile(String dbName) {
+    DbProfile profile = getProfile(dbName);
+    long cacheSize = profileCacheSizeMap.getOrDefault(profile, profile.getCacheSize());
+    if (profile != DbProfile.DEFAULT) {
+      long dbs = profileMap.entrySet().stream().filter(e -> e.getValue() == profile
+          && (propertyMap == null || !propertyMap.containsKey(e.getKey()))).count();
+      cacheSize /= Math.max(1, dbs);
+    }
+    return profile.createOptions(cacheSize, profileCompressionMap
+        .getOrDefault(profile, DbOptionalsUtils.DEFAULT_COMPRESSION_TYPE));
+  }
+
   /**
    * Only for unit test on db
    */
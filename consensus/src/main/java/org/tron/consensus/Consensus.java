@@ -39,4 +39,8 @@ public class Consensus {
     return consensusInterface.applyBlock(blockCapsule);
   }
 
+  public void graftBlock(BlockCapsule blockCapsule, long oldSolidNum) {
+    consensusInterface.graftBlock(blockCapsule, oldSolidNum);
+  }
+
 }
\ No newline at end of file
@@ -14,4 +14,6 @@ public interface ConsensusInterface {
 
   boolean applyBlock(BlockCapsule block);
 
+  void graftBlock(BlockCapsule block, long oldSolidNum);
+
 }
\ No newline at end of file
@@ -143,14 +143,32 @@ public class DposService implements ConsensusInterface {
     return true;
   }
 
-  private void updateSolidBlock() {
+  /**
+   * Redo what applyBlock keeps out of the stores, for a block whose store writes were grafted
+   * back by a fork switch. The block does not start a maintenance period.
+   *
+   * @param oldSolidNum the latest solidified block number before the block.
+   */
+  @Override
+  public void graftBlock(BlockCapsule blockCapsule, long oldSolidNum) {
+    maintenanceManager.graftBlock(blockCapsule);
+    if (getNewSolidNum() >= oldSolidNum) {
+      CommonParameter.getInstance().setOldSolidityBlockNum(oldSolidNum);
+    }
+  }
+
+  private long getNewSolidNum() {
     List<Long> numbers = consensusDelegate.getActiveWitnesses().stream()
         .map(address -> consensusDelegate.getWitness(address.toByteArray()).getLatestBlockNum())
         .sorted()
         .collect(Collectors.toList());
     long size = consensusDelegate.getActiveWitnesses().size();
     int position = (int) (size * (1 - SOLIDIFIED_THRESHOLD * 1.0 / 100));
-    long newSolidNum = numbers.get(position);
+    return numbers.get(position);
+  }
+
+  private void updateSolidBlock() {
+    long newSolidNum = getNewSolidNum();
     long oldSolidNum = consensusDelegate.getLatestSolidifiedBlockNum();
     if (newSolidNum < oldSolidNum) {
       logger.warn("Update solid block number failed, new: {} < old: {}", newSolidNum, oldSolidNum);
@@ -80,6 +80,14 @@ public class MaintenanceManager {
     pbftManager.blockPrePrepare(blockCapsule, nextMaintenanceTime);
   }
 
+  /**
+   * Send the PBFT message of a block whose store writes were grafted back, the maintenance
+   * time it read is unchanged since it does not start a maintenance period.
+   */
+  public void graftBlock(BlockCapsule blockCapsule) {
+    pbftManager.blockPrePrepare(blockCapsule, consensusDelegate.getNextMaintenanceTime());
+  }
+
   private void updateWitnessValue(List<ByteString> srList) {
     srList.clear();
     srList.addAll(consensusDelegate.getActiveWitnesses());
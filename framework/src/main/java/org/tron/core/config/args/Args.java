@@ -331,6 +331,12 @@ public class Args extends CommonParameter {
       PARAMETER.longRunningTime = config.getInt(Constant.VM_LONG_RUNNING_TIME);
     }
 
+    PARAMETER.codeCacheSize = config.hasPath(Constant.VM_CODE_CACHE_SIZE)
+        ? config.getLong(Constant.VM_CODE_CACHE_SIZE) : 32 * 1024 * 1024;
+
+    PARAMETER.vmChargeRuns =
+        config.hasPath(Constant.VM_CHARGE_RUNS) && config.getBoolean(Constant.VM_CHARGE_RUNS);
+
     PARAMETER.storage = new Storage();
     PARAMETER.storage.setDbVersion(Optional.ofNullable(PARAMETER.storageDbVersion)
         .filter(StringUtils::isNotEmpty)
@@ -351,6 +357,8 @@ public class Args extends CommonParameter {
         .map(Boolean::valueOf)
         .orElse(Storage.getDbVersionSyncFromConfig(config)));
 
+    PARAMETER.storage.setDbColumnFamilies(Storage.getDbColumnFamiliesFromConfig(config));
+
     PARAMETER.storage.setContractParseSwitch(Optional.ofNullable(PARAMETER.contractParseEnable)
         .filter(StringUtils::isNotEmpty)
         .map(Boolean::valueOf)
@@ -375,6 +383,11 @@ public class Args extends CommonParameter {
                 .orElse(Storage.getTransactionHistorySwitchFromConfig(config)));
 
     PARAMETER.storage.setPropertyMapFromConfig(config);
+    PARAMETER.storage.setProfileMapFromConfig(config);
+    PARAMETER.storage.setCacheSizeMapFromConfig(config);
+    PARAMETER.storage.setAsyncFlush(Storage.getFlushAsyncFromConfig(config));
+    PARAMETER.storage.setMaxFlushBacklog(Storage.getFlushMaxBacklogFromConfig(config));
+    PARAMETER.storage.setSnapshotArena(Storage.getSnapshotArenaFromConfig(config));
 
     PARAMETER.seedNode = new SeedNode();
     PARAMETER.seedNode.setIpList(Optional.ofNullable(PARAMETER.seedNodes)
@@ -610,6 +623,9 @@ public class Args extends CommonParameter {
             .getInt(Constant.NODE_VALIDATE_SIGN_THREAD_NUM)
             : (Runtime.getRuntime().availableProcessors() + 1) / 2;
 
+    PARAMETER.prefetchState = config.hasPath(Constant.NODE_PREFETCH_STATE)
+        && config.getBoolean(Constant.NODE_PREFETCH_STATE);
+
     PARAMETER.walletExtensionApi =
         config.hasPath(Constant.NODE_WALLET_EXTENSION_API)
             && config.getBoolean(Constant.NODE_WALLET_EXTENSION_API);
@@ -635,6 +651,31 @@ public class Args extends CommonParameter {
     PARAMETER.pendingTransactionTimeout = config.hasPath(Constant.NODE_PENDING_TRANSACTION_TIMEOUT)
         ? config.getLong(Constant.NODE_PENDING_TRANSACTION_TIMEOUT) : 60_000;
 
+    PARAMETER.maxTransactionPendingBytes =
+        config.hasPath(Constant.NODE_MAX_TRANSACTION_PENDING_BYTES)
+            ? config.getBytes(Constant.NODE_MAX_TRANSACTION_PENDING_BYTES)
+            : 128 * 1024 * 1024L;
+
+    PARAMETER.maxTransactionPendingPerSender =
+        config.hasPath(Constant.NODE_MAX_TRANSACTION_PENDING_PER_SENDER)
+            ? config.getInt(Constant.NODE_MAX_TRANSACTION_PENDING_PER_SENDER) : 0;
+
+    PARAMETER.incrementalRevalidation =
+        config.hasPath(Constant.NODE_INCREMENTAL_REVALIDATION)
+            && config.getBoolean(Constant.NODE_INCREMENTAL_REVALIDATION);
+
+    PARAMETER.syncSignatureAheadBlocks =
+        config.hasPath(Constant.NODE_SYNC_SIGNATURE_AHEAD_BLOCKS)
+            ? config.getInt(Constant.NODE_SYNC_SIGNATURE_AHEAD_BLOCKS) : 0;
+
+    PARAMETER.signerCacheSize =
+        config.hasPath(Constant.NODE_SIGNER_CACHE_SIZE)
+            ? config.getLong(Constant.NODE_SIGNER_CACHE_SIZE) : 100_000;
+
+    PARAMETER.forkSwitchDetachedBlocks =
+        config.hasPath(Constant.NODE_FORK_SWITCH_DETACHED_BLOCKS)
+            ? config.getInt(Constant.NODE_FORK_SWITCH_DETACHED_BLOCKS) : 0;
+
     PARAMETER.needToUpdateAsset =
         config.hasPath(Constant.STORAGE_NEEDTO_UPDATE_ASSET) ? config
             .getBoolean(Constant.STORAGE_NEEDTO_UPDATE_ASSET)
@@ -1098,11 +1139,14 @@ public class Args extends CommonParameter {
         .getLong(prefix + "targetFileSizeBase") : 64;
     int targetFileSizeMultiplier = config.hasPath(prefix + "targetFileSizeMultiplier") ? config
         .getInt(prefix + "targetFileSizeMultiplier") : 1;
+    long writeBufferSize = config.hasPath(prefix + "writeBufferSize") ? config
+        .getLong(prefix + "writeBufferSize") : 512;
 
     PARAMETER.rocksDBCustomSettings = RocksDbSettings
         .initCustomSettings(levelNumber, compactThreads, blocksize, maxBytesForLevelBase,
             maxBytesForLevelMultiplier, level0FileNumCompactionTrigger,
-            targetFileSizeBase, targetFileSizeMultiplier);
+            targetFileSizeBase, targetFileSizeMultiplier)
+        .withWriteBufferSize(writeBufferSize);
     RocksDbSettings.loggingSettings();
   }
 
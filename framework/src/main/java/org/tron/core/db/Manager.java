@@ -13,10 +13,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -28,10 +29,9 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import lombok.Getter;
@@ -77,6 +77,7 @@ import org.tron.core.capsule.TransactionCapsule;
 import org.tron.core.capsule.TransactionInfoCapsule;
 import org.tron.core.capsule.TransactionRetCapsule;
 import org.tron.core.capsule.WitnessCapsule;
+import org.tron.core.capsule.utils.SignerCache;
 import org.tron.core.capsule.utils.TransactionUtil;
 import org.tron.core.config.Parameter.ChainConstant;
 import org.tron.core.config.args.Args;
@@ -88,6 +89,10 @@ import org.tron.core.db.api.AssetUpdateHelper;
 import org.tron.core.db.api.EnergyPriceHistoryLoader;
 import org.tron.core.db.api.MoveAbiHelper;
 import org.tron.core.db2.ISession;
+import org.tron.core.db2.common.DB;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.ReadCache;
+import org.tron.core.db2.common.Value;
 import org.tron.core.db2.core.Chainbase;
 import org.tron.core.db2.core.ITronChainBase;
 import org.tron.core.db2.core.SnapshotManager;
@@ -140,6 +145,7 @@ import org.tron.core.store.VotesStore;
 import org.tron.core.store.WitnessScheduleStore;
 import org.tron.core.store.WitnessStore;
 import org.tron.core.utils.TransactionRegister;
+import org.tron.core.vm.program.ProgramPrecompile;
 import org.tron.protos.Protocol.AccountType;
 import org.tron.protos.Protocol.Permission;
 import org.tron.protos.Protocol.Transaction;
@@ -187,9 +193,20 @@ public class Manager {
   @Setter
   private MerkleContainer merkleContainer;
   private ExecutorService validateSignService;
+  // null unless node.prefetchState is on
+  private StatePrefetcher statePrefetcher;
   private boolean isRunRePushThread = true;
   private boolean isRunTriggerCapsuleProcessThread = true;
   private BlockingQueue<TransactionCapsule> pushTransactionQueue = new LinkedBlockingQueue<>();
+  private final TransactionAdmission admission = new TransactionAdmission();
+  // layers of the blocks popped by fork switches, see switchFork
+  private final Map<BlockId, Map<String, DB<Key, Value>>> detachedBlocks =
+      new LinkedHashMap<BlockId, Map<String, DB<Key, Value>>>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BlockId, Map<String, DB<Key, Value>>> e) {
+          return size() > Args.getInstance().getForkSwitchDetachedBlocks();
+        }
+      };
   @Getter
   private Cache<Sha256Hash, Boolean> transactionIdCache = CacheBuilder
           .newBuilder().maximumSize(TX_ID_CACHE_SIZE)
@@ -208,14 +225,14 @@ public class Manager {
   @Getter
   private ChainBaseManager chainBaseManager;
   // transactions cache
-  private BlockingQueue<TransactionCapsule> pendingTransactions;
+  private TransactionPool pendingTransactions;
   @Getter
   private AtomicInteger shieldedTransInPendingCounts = new AtomicInteger(0);
   // transactions popped
   private List<TransactionCapsule> poppedTransactions =
       Collections.synchronizedList(Lists.newArrayList());
-  // the capacity is equal to Integer.MAX_VALUE default
-  private BlockingQueue<TransactionCapsule> rePushTransactions;
+  // bounded by node.maxTransactionPendingBytes and node.maxTransactionPendingPerSender
+  private TransactionPool rePushTransactions;
   private BlockingQueue<TriggerCapsule> triggerCapsuleQueue;
 
   /**
@@ -350,7 +367,7 @@ public class Manager {
     return chainBaseManager.getBlockIndexStore();
   }
 
-  public BlockingQueue<TransactionCapsule> getPendingTransactions() {
+  public TransactionPool getPendingTransactions() {
     return this.pendingTransactions;
   }
 
@@ -358,7 +375,7 @@ public class Manager {
     return this.poppedTransactions;
   }
 
-  public BlockingQueue<TransactionCapsule> getRePushTransactions() {
+  public TransactionPool getRePushTransactions() {
     return rePushTransactions;
   }
 
@@ -370,9 +387,6 @@ public class Manager {
     isRunTriggerCapsuleProcessThread = false;
   }
 
-  private Comparator downComparator = (Comparator<TransactionCapsule>) (o1, o2) -> Long
-      .compare(o2.getOrder(), o1.getOrder());
-
   @PostConstruct
   public void init() {
     Message.setDynamicPropertiesStore(this.getDynamicPropertiesStore());
@@ -383,17 +397,17 @@ public class Manager {
     trieService.setChainBaseManager(chainBaseManager);
     revokingStore.disable();
     revokingStore.check();
+    SignerCache.init(Args.getInstance().getSignerCacheSize());
+    ProgramPrecompile.init(Args.getInstance().getCodeCacheSize());
     this.setProposalController(ProposalController.createInstance(this));
     this.setMerkleContainer(
         merkleContainer.createInstance(chainBaseManager.getMerkleTreeStore(),
             chainBaseManager.getMerkleTreeIndexStore()));
-    if (Args.getInstance().isOpenTransactionSort()) {
-      this.pendingTransactions = new PriorityBlockingQueue(2000, downComparator);
-      this.rePushTransactions = new PriorityBlockingQueue<>(2000, downComparator);
-    } else {
-      this.pendingTransactions = new LinkedBlockingQueue<>();
-      this.rePushTransactions = new LinkedBlockingQueue<>();
-    }
+    // pending transactions are applied to the pending state, so they are never evicted
+    this.pendingTransactions = new TransactionPool(Args.getInstance().isOpenTransactionSort());
+    this.rePushTransactions = new TransactionPool(Args.getInstance().isOpenTransactionSort(),
+        Args.getInstance().getMaxTransactionPendingBytes(),
+        Args.getInstance().getMaxTransactionPendingPerSender());
     this.triggerCapsuleQueue = new LinkedBlockingQueue<>();
     chainBaseManager.setMerkleContainer(getMerkleContainer());
     chainBaseManager.setMortgageService(mortgageService);
@@ -444,6 +458,10 @@ public class Manager {
     revokingStore.enable();
     validateSignService = Executors
         .newFixedThreadPool(Args.getInstance().getValidateSignThreadNum());
+    if (Args.getInstance().isPrefetchState()) {
+      statePrefetcher = new StatePrefetcher(chainBaseManager, validateSignService,
+          Args.getInstance().getValidateSignThreadNum());
+    }
     Thread rePushThread = new Thread(rePushLoop);
     rePushThread.start();
     // add contract event listener for subscribing
@@ -682,24 +700,33 @@ public class Manager {
         throw new ValidateSignatureException("trans sig validate failed");
       }
 
-      synchronized (this) {
-        if (isShieldedTransaction(trx.getInstance())
-            && shieldedTransInPendingCounts.get() >= shieldedTransInPendingMaxCounts) {
-          return false;
-        }
-        if (!session.valid()) {
-          session.setValue(revokingStore.buildSession());
+      Lock lock = admission.lockOf(getOwner(trx));
+      lock.lock();
+      try {
+        if (!Thread.holdsLock(this)) {
+          admission.awaitBlocks();
         }
+        synchronized (this) {
+          if (isShieldedTransaction(trx.getInstance())
+              && shieldedTransInPendingCounts.get() >= shieldedTransInPendingMaxCounts) {
+            return false;
+          }
+          if (!session.valid()) {
+            session.setValue(revokingStore.buildSession());
+          }
 
-        try (ISession tmpSession = revokingStore.buildSession()) {
-          processTransaction(trx, null);
-          trx.setTrxTrace(null);
-          pendingTransactions.add(trx);
-          tmpSession.merge();
-        }
-        if (isShieldedTransaction(trx.getInstance())) {
-          shieldedTransInPendingCounts.incrementAndGet();
+          try (ISession tmpSession = revokingStore.buildSession()) {
+            processTransaction(trx, null);
+            trx.setTrxTrace(null);
+            pendingTransactions.add(trx);
+            tmpSession.merge();
+          }
+          if (isShieldedTransaction(trx.getInstance())) {
+            shieldedTransInPendingCounts.incrementAndGet();
+          }
         }
+      } finally {
+        lock.unlock();
       }
     } finally {
       pushTransactionQueue.remove(trx);
@@ -707,6 +734,20 @@ public class Manager {
     return true;
   }
 
+  /**
+   * Mark a pending transaction kept across a block as processed in the pending state again, as
+   * processTransaction did when it was pushed, so that its duplicates are refused.
+   */
+  synchronized void markPending(TransactionCapsule trx) {
+    if (!session.valid()) {
+      session.setValue(revokingStore.buildSession());
+    }
+    chainBaseManager.getTransactionStore().put(trx.getTransactionId().getBytes(), trx);
+    Optional.ofNullable(transactionCache)
+        .ifPresent(t -> t.put(trx.getTransactionId().getBytes(),
+            new BytesCapsule(ByteArray.fromLong(trx.getBlockNum()))));
+  }
+
   public void consumeMultiSignFee(TransactionCapsule trx, TransactionTrace trace)
       throws AccountResourceInsufficientException {
     if (trx.getInstance().getSignatureCount() > 1) {
@@ -748,13 +789,26 @@ public class Manager {
    * when switch fork need erase blocks on fork branch.
    */
   public synchronized void eraseBlock() {
+    eraseBlock(false);
+  }
+
+  /**
+   * @param detach keep the layer of the block, to graft it back if the chain switches back.
+   */
+  private void eraseBlock(boolean detach) {
     session.reset();
     try {
       BlockCapsule oldHeadBlock = chainBaseManager.getBlockById(
           getDynamicPropertiesStore().getLatestBlockHeaderHash());
       logger.info("start to erase block:" + oldHeadBlock);
       khaosDb.pop();
-      revokingStore.fastPop();
+      if (detach && Args.getInstance().getForkSwitchDetachedBlocks() > 0
+          && revokingStore instanceof SnapshotManager) {
+        detachedBlocks.put(oldHeadBlock.getBlockId(),
+            ((SnapshotManager) revokingStore).popDetached());
+      } else {
+        revokingStore.fastPop();
+      }
       logger.info("end to erase block:" + oldHeadBlock);
       poppedTransactions.addAll(oldHeadBlock.getTransactions());
 
@@ -803,6 +857,10 @@ public class Manager {
     }
 
     updateFork(block);
+    updateMaxFlushCount(block);
+  }
+
+  private void updateMaxFlushCount(BlockCapsule block) {
     if (System.currentTimeMillis() - block.getTimeStamp() >= 60_000) {
       revokingStore.setMaxFlushCount(SnapshotManager.DEFAULT_MAX_FLUSH_COUNT);
     } else {
@@ -810,6 +868,52 @@ public class Manager {
     }
   }
 
+  /**
+   * Apply a block of a fork switch, or graft the layer it left when a previous switch popped
+   * it. The state before a block only depends on its ancestors, so the layer is what
+   * executing it again would write. Only the state outside the databases is updated then,
+   * and the consensus sends the PBFT message of the block again.
+   */
+  private void applyOrGraft(BlockCapsule block) throws ContractValidateException,
+      ContractExeException, ValidateSignatureException, AccountResourceInsufficientException,
+      TransactionExpirationException, TooBigTransactionException, DupTransactionException,
+      TaposException, ValidateScheduleException, ReceiptCheckErrException,
+      VMIllegalException, TooBigTransactionResultException,
+      ZksnarkException, BadBlockException {
+    Map<String, DB<Key, Value>> detached = detachedBlocks.remove(block.getBlockId());
+    // a maintenance period and the event triggers change more than the databases
+    if (detached == null || Args.getInstance().isEventSubscribe()
+        || getDynamicPropertiesStore().getNextMaintenanceTime() <= block.getTimeStamp()
+        || !block.getParentHash().equals(getDynamicPropertiesStore().getLatestBlockHeaderHash())) {
+      applyBlock(block);
+      return;
+    }
+
+    long oldSolidNum = getDynamicPropertiesStore().getLatestSolidifiedBlockNum();
+    ((SnapshotManager) revokingStore).graft(detached);
+    try {
+      // saved only for a block with transactions
+      TransactionRetCapsule result = chainBaseManager.getTransactionRetStore()
+          .getTransactionInfoByBlockNum(ByteArray.fromLong(block.getNum()));
+      block.setResult(result != null ? result : new TransactionRetCapsule(block));
+    } catch (BadItemException e) {
+      throw new BadBlockException(e.getMessage());
+    }
+    consensus.graftBlock(block, oldSolidNum);
+    for (TransactionCapsule transactionCapsule : block.getTransactions()) {
+      transactionCapsule.setBlockNum(block.getNum());
+      if (isMultiSignTransaction(transactionCapsule.getInstance())) {
+        ownerAddressSet.add(ByteArray.toHexString(TransactionCapsule.getOwner(
+            transactionCapsule.getInstance().getRawData().getContract(0))));
+      }
+    }
+    updateTransHashCache(block);
+    updateDynamicProperties(block);
+    updateMaxFlushCount(block);
+    MetricsUtil.meterMark(MetricsKey.BLOCKCHAIN_FORK_GRAFT_COUNT);
+    logger.info("graft block {} instead of applying it", block.getBlockId().getString());
+  }
+
   private void switchFork(BlockCapsule newHead)
       throws ValidateSignatureException, ContractValidateException, ContractExeException,
       ValidateScheduleException, AccountResourceInsufficientException, TaposException,
@@ -843,7 +947,7 @@ public class Manager {
           .getLatestBlockHeaderHash()
           .equals(binaryTree.getValue().peekLast().getParentHash())) {
         reOrgContractTrigger();
-        eraseBlock();
+        eraseBlock(true);
       }
     }
 
@@ -854,7 +958,7 @@ public class Manager {
         Exception exception = null;
         // todo  process the exception carefully later
         try (ISession tmpSession = revokingStore.buildSession()) {
-          applyBlock(item.getBlk().setSwitch(true));
+          applyOrGraft(item.getBlk().setSwitch(true));
           tmpSession.commit();
         } catch (AccountResourceInsufficientException
             | ValidateSignatureException
@@ -893,7 +997,7 @@ public class Manager {
             for (KhaosBlock khaosBlock : second) {
               // todo  process the exception carefully later
               try (ISession tmpSession = revokingStore.buildSession()) {
-                applyBlock(khaosBlock.getBlk().setSwitch(true));
+                applyOrGraft(khaosBlock.getBlk().setSwitch(true));
                 tmpSession.commit();
               } catch (AccountResourceInsufficientException
                   | ValidateSignatureException
@@ -953,7 +1057,22 @@ public class Manager {
   /**
    * save a block.
    */
-  public synchronized void pushBlock(final BlockCapsule block)
+  public void pushBlock(final BlockCapsule block)
+      throws ValidateSignatureException, ContractValidateException, ContractExeException,
+      UnLinkedBlockException, ValidateScheduleException, AccountResourceInsufficientException,
+      TaposException, TooBigTransactionException, TooBigTransactionResultException,
+      DupTransactionException, TransactionExpirationException,
+      BadNumberBlockException, BadBlockException, NonCommonBlockException,
+      ReceiptCheckErrException, VMIllegalException, ZksnarkException {
+    admission.enterBlock();
+    try {
+      doPushBlock(block);
+    } finally {
+      admission.exitBlock();
+    }
+  }
+
+  private synchronized void doPushBlock(final BlockCapsule block)
       throws ValidateSignatureException, ContractValidateException, ContractExeException,
       UnLinkedBlockException, ValidateScheduleException, AccountResourceInsufficientException,
       TaposException, TooBigTransactionException, TooBigTransactionResultException,
@@ -966,7 +1085,7 @@ public class Manager {
                     + "block-tx-size: {}, verify-tx-size: {}",
             block.getNum(), rePushTransactions.size(), pendingTransactions.size(),
             block.getTransactions().size(), txs.size());
-    try (PendingManager pm = new PendingManager(this)) {
+    try (PendingManager pm = new PendingManager(this, block)) {
 
       if (!block.generatedByMyself) {
         if (!block.calcMerkleRoot().equals(block.getMerkleRoot())) {
@@ -1089,11 +1208,35 @@ public class Manager {
 
     MetricsUtil.meterMark(MetricsKey.BLOCKCHAIN_BLOCK_PROCESS_TIME,
         System.currentTimeMillis() - start);
+    // transaction ids hashed by every thread since the previous block
+    long hashCount = TransactionCapsule.resetHashCount();
+    MetricsUtil.histogramUpdate(MetricsKey.BLOCKCHAIN_TX_HASH_COUNT, hashCount);
+    MetricsUtil.meterMark(MetricsKey.BLOCKCHAIN_SIGNER_CACHE_HIT, SignerCache.resetHitCount());
+    MetricsUtil.meterMark(MetricsKey.BLOCKCHAIN_SIGNER_CACHE_MISS, SignerCache.resetMissCount());
+    // contract code analyses shared through the cache, by constant calls too
+    MetricsUtil.meterMark(MetricsKey.BLOCKCHAIN_CODE_CACHE_HIT, ProgramPrecompile.resetHitCount());
+    MetricsUtil.meterMark(MetricsKey.BLOCKCHAIN_CODE_CACHE_MISS,
+        ProgramPrecompile.resetMissCount());
+    MetricsUtil.histogramUpdate(MetricsKey.BLOCKCHAIN_CODE_CACHE_SAVED_TIME,
+        ProgramPrecompile.resetSavedTime() / 1000);
+    if (revokingStore instanceof SnapshotManager) {
+      // flushed on this thread or in the background since the previous block
+      SnapshotManager snapshotManager = (SnapshotManager) revokingStore;
+      MetricsUtil.meterMark(MetricsKey.DB_CHECKPOINT_BYTES,
+          snapshotManager.resetCheckpointBytes());
+      MetricsUtil.meterMark(MetricsKey.DB_CHECKPOINT_TIME, snapshotManager.resetCheckpointTime());
+      for (ReadCache cache : snapshotManager.getReadCaches()) {
+        MetricsUtil.meterMark(MetricsKey.DB_READ_CACHE_HIT + cache.getName(),
+            cache.resetHitCount());
+        MetricsUtil.meterMark(MetricsKey.DB_READ_CACHE_MISS + cache.getName(),
+            cache.resetMissCount());
+      }
+    }
 
-    logger.info("pushBlock block number:{}, cost/txs:{}/{}",
+    logger.info("pushBlock block number:{}, cost/txs/hashes:{}/{}/{}",
         block.getNum(),
         System.currentTimeMillis() - start,
-        block.getTransactions().size());
+        block.getTransactions().size(), hashCount);
   }
 
   public void updateDynamicProperties(BlockCapsule block) {
@@ -1242,7 +1385,16 @@ public class Manager {
   /**
    * Generate a block.
    */
-  public synchronized BlockCapsule generateBlock(Miner miner, long blockTime, long timeout) {
+  public BlockCapsule generateBlock(Miner miner, long blockTime, long timeout) {
+    admission.enterBlock();
+    try {
+      return doGenerateBlock(miner, blockTime, timeout);
+    } finally {
+      admission.exitBlock();
+    }
+  }
+
+  private synchronized BlockCapsule doGenerateBlock(Miner miner, long blockTime, long timeout) {
 
     long postponedTrxCount = 0;
 
@@ -1266,6 +1418,7 @@ public class Manager {
     }
 
     TransactionRetCapsule transactionRetCapsule = new TransactionRetCapsule(blockCapsule);
+    BlockCapsule.Assembler assembler = blockCapsule.assembler();
 
     Set<String> accountSet = new HashSet<>();
     AtomicInteger shieldedTransCounts = new AtomicInteger(0);
@@ -1294,8 +1447,7 @@ public class Manager {
       }
 
       // check the block size
-      if ((blockCapsule.getInstance().getSerializedSize() + trx.getSerializedSize() + 3)
-          > ChainConstant.BLOCK_SIZE) {
+      if (assembler.sizeWith(trx) > ChainConstant.BLOCK_SIZE) {
         postponedTrxCount++;
         continue;
       }
@@ -1324,7 +1476,7 @@ public class Manager {
         TransactionInfo result = processTransaction(trx, blockCapsule);
         accountStateCallBack.exeTransFinish();
         tmpSession.merge();
-        blockCapsule.addTransaction(trx);
+        assembler.add(trx);
         if (Objects.nonNull(result)) {
           transactionRetCapsule.addTransactionInfo(result);
         }
@@ -1336,6 +1488,7 @@ public class Manager {
             e.getMessage());
       }
     }
+    assembler.seal();
 
     accountStateCallBack.executeGenerateFinish();
 
@@ -1353,6 +1506,13 @@ public class Manager {
     return capsule;
   }
 
+  // owner of the first contract, empty if there is none
+  private static byte[] getOwner(TransactionCapsule trx) {
+    Transaction.raw rawData = trx.getInstance().getRawData();
+    return rawData.getContractCount() == 0 ? new byte[0]
+        : TransactionCapsule.getOwner(rawData.getContract(0));
+  }
+
   private void filterOwnerAddress(TransactionCapsule transactionCapsule, Set<String> result) {
     Contract contract = transactionCapsule.getInstance().getRawData().getContract(0);
     byte[] owner = TransactionCapsule.getOwner(contract);
@@ -1429,14 +1589,24 @@ public class Manager {
         Thread.currentThread().interrupt();
       }
     }
+    if (statePrefetcher != null) {
+      try {
+        statePrefetcher.prefetch(txs);
+      } catch (InterruptedException e) {
+        logger.error("prefetch state interrupted exception! block info: {}", block, e);
+        Thread.currentThread().interrupt();
+      }
+    }
 
     TransactionRetCapsule transactionRetCapsule =
         new TransactionRetCapsule(block);
     try {
       merkleContainer.resetCurrentMerkleTree();
       accountStateCallBack.preExecute(block);
+      int index = 0;
       for (TransactionCapsule transactionCapsule : block.getTransactions()) {
         transactionCapsule.setBlockNum(block.getNum());
+        transactionCapsule.setIndexInBlock(index++);
         if (block.generatedByMyself) {
           transactionCapsule.setVerified(true);
         }
@@ -1952,24 +2122,12 @@ public class Manager {
   }
 
   public TransactionCapsule getTxFromPending(String txId) {
-    AtomicReference<TransactionCapsule> transactionCapsule = new AtomicReference<>();
     Sha256Hash txHash = Sha256Hash.wrap(ByteArray.fromHexString(txId));
-    pendingTransactions.forEach(tx -> {
-      if (tx.getTransactionId().equals(txHash)) {
-        transactionCapsule.set(tx);
-        return;
-      }
-    });
-    if (transactionCapsule.get() != null) {
-      return transactionCapsule.get();
+    TransactionCapsule transactionCapsule = pendingTransactions.get(txHash);
+    if (transactionCapsule != null) {
+      return transactionCapsule;
     }
-    rePushTransactions.forEach(tx -> {
-      if (tx.getTransactionId().equals(txHash)) {
-        transactionCapsule.set(tx);
-        return;
-      }
-    });
-    return transactionCapsule.get();
+    return rePushTransactions.get(txHash);
   }
 
   public Collection<String> getTxListFromPending() {
@@ -1,18 +1,47 @@
 package org.tron.core.db;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
+import org.tron.core.capsule.BlockCapsule;
+import org.tron.core.capsule.BlockCapsule.BlockId;
 import org.tron.core.capsule.TransactionCapsule;
 import org.tron.core.config.args.Args;
+import org.tron.core.db2.common.WrappedByteArray;
+import org.tron.core.metrics.MetricsKey;
+import org.tron.core.metrics.MetricsUtil;
+import org.tron.protos.Protocol.InternalTransaction;
+import org.tron.protos.Protocol.Transaction.Contract;
+import org.tron.protos.Protocol.TransactionInfo;
 
 @Slf4j(topic = "DB")
 public class PendingManager implements AutoCloseable {
 
   private Manager dbManager;
   private long timeout = Args.getInstance().getPendingTransactionTimeout();
+  // the block being pushed, null when every pending transaction is re-pushed
+  private BlockCapsule block;
+  private BlockId headBlockId;
+  private long nextMaintenanceTime;
 
   public PendingManager(Manager db) {
+    this(db, null);
+  }
+
+  /**
+   * With node.incrementalRevalidation, the pending transactions which do not touch an account
+   * changed by block stay pending without being executed again, once block is the new head.
+   */
+  public PendingManager(Manager db, BlockCapsule block) {
     this.dbManager = db;
+    if (block != null && Args.getInstance().isIncrementalRevalidation()) {
+      this.block = block;
+      this.headBlockId = db.getChainBaseManager().getHeadBlockId();
+      this.nextMaintenanceTime = db.getDynamicPropertiesStore().getNextMaintenanceTime();
+    }
     db.getSession().reset();
     db.getShieldedTransInPendingCounts().set(0);
   }
@@ -21,38 +50,127 @@ public class PendingManager implements AutoCloseable {
   public void close() {
 
     long now = System.currentTimeMillis();
-    Iterator<TransactionCapsule> iterator = dbManager.getRePushTransactions().iterator();
-    while (iterator.hasNext()) {
-      if (now - iterator.next().getTime() > timeout) {
-        iterator.remove();
-      }
+    int expired = dbManager.getRePushTransactions().removeExpired(now - timeout);
+    if (expired > 0) {
+      MetricsUtil.meterMark(MetricsKey.BLOCKCHAIN_TX_POOL_EXPIRED, expired);
     }
 
+    Set<WrappedByteArray> touched = touchedAccounts();
+    List<TransactionCapsule> retained = new ArrayList<>();
     for (TransactionCapsule tx : dbManager.getPendingTransactions()) {
-      txIteration(tx);
+      if (touched != null && isRetained(tx, touched)) {
+        retained.add(tx);
+      } else {
+        txIteration(tx);
+      }
     }
 
     dbManager.getPendingTransactions().clear();
+    for (TransactionCapsule tx : retained) {
+      dbManager.markPending(tx);
+      dbManager.getPendingTransactions().put(tx);
+    }
     for (TransactionCapsule tx : dbManager.getPoppedTransactions()) {
       tx.setTime(System.currentTimeMillis());
       txIteration(tx);
     }
     dbManager.getPoppedTransactions().clear();
     if (Args.getInstance().isOpenPrintLog()) {
-      logger.warn("pending tx size:{}", dbManager.getRePushTransactions().size());
+      logger.warn("pending tx size:{}, retained:{}", dbManager.getRePushTransactions().size(),
+          retained.size());
     }
   }
 
   private void txIteration(TransactionCapsule tx) {
-    try {
-      if (System.currentTimeMillis() - tx.getTime() < timeout) {
-        dbManager.getRePushTransactions().put(tx);
-      } else if (Args.getInstance().isOpenPrintLog()) {
-        logger.warn("[timeout] remove tx from pending, txId:{}", tx.getTransactionId());
+    if (System.currentTimeMillis() - tx.getTime() < timeout) {
+      dbManager.getRePushTransactions().put(tx);
+    } else if (Args.getInstance().isOpenPrintLog()) {
+      logger.warn("[timeout] remove tx from pending, txId:{}", tx.getTransactionId());
+    }
+  }
+
+  /**
+   * @return the accounts the block changed, or null if every pending transaction has to be
+   *     executed again: the block was not applied on the previous head, started a maintenance
+   *     period, or its changes are not all known, see {@link #touchedAccounts(BlockCapsule)}.
+   */
+  private Set<WrappedByteArray> touchedAccounts() {
+    if (block == null
+        || !block.getBlockId().equals(dbManager.getChainBaseManager().getHeadBlockId())
+        || !block.getParentBlockId().equals(headBlockId)
+        || dbManager.getDynamicPropertiesStore().getNextMaintenanceTime()
+        != nextMaintenanceTime) {
+      return null;
+    }
+    return touchedAccounts(block);
+  }
+
+  /**
+   * @return the accounts the applied block changed, or null if they are not all known: it
+   *     holds a contract which may change other accounts, or it triggers contracts while the
+   *     internal transactions, the calls and transfers they made, are not saved.
+   */
+  static Set<WrappedByteArray> touchedAccounts(BlockCapsule block) {
+    if (block.getResult() == null) {
+      return null;
+    }
+    Set<WrappedByteArray> touched = new HashSet<>();
+    add(touched, block.getWitnessAddress().toByteArray());
+    for (TransactionCapsule tx : block.getTransactions()) {
+      if (tx.getInstance().getRawData().getContractCount() == 0) {
+        continue;
+      }
+      Contract contract = tx.getInstance().getRawData().getContract(0);
+      switch (contract.getType()) {
+        case TriggerSmartContract:
+          if (!Args.getInstance().isSaveInternalTx()) {
+            return null;
+          }
+          break;
+        case TransferContract:
+        case TransferAssetContract:
+        case VoteWitnessContract:
+          break;
+        default:
+          return null;
+      }
+      add(touched, TransactionCapsule.getOwner(contract));
+      add(touched, TransactionCapsule.getToAddress(contract));
+      add(touched, StatePrefetcher.getContractAddress(contract));
+    }
+    // value transfers and calls made by contracts
+    for (TransactionInfo info : block.getResult().getInstance().getTransactioninfoList()) {
+      for (InternalTransaction internal : info.getInternalTransactionsList()) {
+        add(touched, internal.getCallerAddress().toByteArray());
+        add(touched, internal.getTransferToAddress().toByteArray());
       }
-    } catch (InterruptedException e) {
-      logger.error(e.getMessage());
-      Thread.currentThread().interrupt();
     }
+    return touched;
+  }
+
+  private boolean isRetained(TransactionCapsule tx, Set<WrappedByteArray> touched) {
+    if (!tx.isVerified() || System.currentTimeMillis() - tx.getTime() >= timeout
+        || tx.getInstance().getRawData().getContractCount() == 0
+        || tx.getExpiration() <= dbManager.getDynamicPropertiesStore()
+        .getLatestBlockHeaderTimestamp()) {
+      return false;
+    }
+    Contract contract = tx.getInstance().getRawData().getContract(0);
+    if (contract.getType() == Contract.ContractType.ShieldedTransferContract) {
+      return false;
+    }
+    return !contains(touched, TransactionCapsule.getOwner(contract))
+        && !contains(touched, TransactionCapsule.getToAddress(contract))
+        && !contains(touched, StatePrefetcher.getContractAddress(contract));
+  }
+
+  private static void add(Set<WrappedByteArray> keys, byte[] key) {
+    if (ArrayUtils.isNotEmpty(key)) {
+      keys.add(WrappedByteArray.of(key));
+    }
+  }
+
+  private static boolean contains(Set<WrappedByteArray> keys, byte[] key) {
+    return ArrayUtils.isNotEmpty(key) && keys.contains(WrappedByteArray.of(key));
   }
 }
@@ -0,0 +1,108 @@
+package org.tron.core.db;
+
+import com.google.common.collect.Lists;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
+import org.tron.core.ChainBaseManager;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.db2.common.WrappedByteArray;
+import org.tron.protos.Protocol.Transaction.Contract;
+import org.tron.protos.contract.SmartContractOuterClass.TriggerSmartContract;
+
+/**
+ * Reads the rows the transactions of a block are going to touch in parallel before the block
+ * is executed, so the sequential pass finds them in the read caches of the snapshot roots and
+ * the database caches instead of loading them one transaction at a time.
+ * The rows are the accounts of the owners and receivers, and the account, contract and code
+ * of triggered contracts. Nothing is written, so the state and receipts of the block are the
+ * same with or without it.
+ */
+@Slf4j(topic = "DB")
+public class StatePrefetcher {
+
+  // fewer rows are not worth a task
+  private static final int MIN_BATCH = 16;
+
+  private final ChainBaseManager chainBaseManager;
+  private final ExecutorService executor;
+  private final int parallelism;
+
+  public StatePrefetcher(ChainBaseManager chainBaseManager, ExecutorService executor,
+      int parallelism) {
+    this.chainBaseManager = chainBaseManager;
+    this.executor = executor;
+    this.parallelism = Math.max(parallelism, 1);
+  }
+
+  /**
+   * @return the number of rows read.
+   */
+  public int prefetch(List<TransactionCapsule> txs) throws InterruptedException {
+    Set<WrappedByteArray> accounts = new LinkedHashSet<>();
+    Set<WrappedByteArray> contracts = new LinkedHashSet<>();
+    for (TransactionCapsule tx : txs) {
+      if (tx.getInstance().getRawData().getContractCount() == 0) {
+        continue;
+      }
+      Contract contract = tx.getInstance().getRawData().getContract(0);
+      add(accounts, TransactionCapsule.getOwner(contract));
+      add(accounts, TransactionCapsule.getToAddress(contract));
+      byte[] contractAddress = getContractAddress(contract);
+      add(accounts, contractAddress);
+      add(contracts, contractAddress);
+    }
+
+    List<Future<?>> futures = new ArrayList<>();
+    submit(futures, accounts, chainBaseManager.getAccountStore());
+    submit(futures, contracts, chainBaseManager.getContractStore());
+    submit(futures, contracts, chainBaseManager.getCodeStore());
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        // only the caches are cold, the block is executed the same
+        logger.warn("prefetch state failed, {}", e.getCause().getMessage());
+      }
+    }
+    return accounts.size() + contracts.size() * 2;
+  }
+
+  private void submit(List<Future<?>> futures, Set<WrappedByteArray> keys,
+      TronStoreWithRevoking<?> store) {
+    if (keys.isEmpty()) {
+      return;
+    }
+    int batch = Math.max(MIN_BATCH, (keys.size() + parallelism - 1) / parallelism);
+    for (List<WrappedByteArray> part : Lists.partition(new ArrayList<>(keys), batch)) {
+      futures.add(executor.submit(() -> part.forEach(key -> store.has(key.getBytes()))));
+    }
+  }
+
+  private static void add(Set<WrappedByteArray> keys, byte[] key) {
+    if (ArrayUtils.isNotEmpty(key)) {
+      keys.add(WrappedByteArray.of(key));
+    }
+  }
+
+  static byte[] getContractAddress(Contract contract) {
+    if (contract.getType() != Contract.ContractType.TriggerSmartContract) {
+      return null;
+    }
+    try {
+      ByteString address = contract.getParameter().unpack(TriggerSmartContract.class)
+          .getContractAddress();
+      return address.toByteArray();
+    } catch (InvalidProtocolBufferException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package org.tron.core.db;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Orders the pushed transactions in front of the Manager monitor, which they share with block
+ * import and production.
+ * Transactions of one sender are admitted one at a time in arrival order through a fair lock
+ * stripe picked by the owner address, so a flood from a few senders parks its threads on their
+ * stripes instead of piling them up on the monitor.
+ * A block import or production announces itself before taking the monitor, admissions which
+ * have not reached the monitor yet wait until it is done, so the block waits at most for the
+ * transaction being executed.
+ */
+@Slf4j(topic = "DB")
+public class TransactionAdmission {
+
+  private static final int STRIPES = 64;
+
+  private final Lock[] stripes = new Lock[STRIPES];
+  private final ReentrantLock blockLock = new ReentrantLock();
+  private final Condition blockDone = blockLock.newCondition();
+  private int blocks;
+
+  public TransactionAdmission() {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new ReentrantLock(true);
+    }
+  }
+
+  /**
+   * @return the lock ordering the transactions of owner.
+   */
+  public Lock lockOf(byte[] owner) {
+    return stripes[(Arrays.hashCode(owner) & 0x7fffffff) % STRIPES];
+  }
+
+  /**
+   * Announce a block about to take the monitor.
+   */
+  public void enterBlock() {
+    blockLock.lock();
+    try {
+      blocks++;
+    } finally {
+      blockLock.unlock();
+    }
+  }
+
+  public void exitBlock() {
+    blockLock.lock();
+    try {
+      if (--blocks == 0) {
+        blockDone.signalAll();
+      }
+    } finally {
+      blockLock.unlock();
+    }
+  }
+
+  /**
+   * Wait until no block is announced, an interrupted admission goes on to the monitor.
+   */
+  public void awaitBlocks() {
+    blockLock.lock();
+    try {
+      while (blocks > 0) {
+        blockDone.await();
+      }
+    } catch (InterruptedException e) {
+      logger.warn("wait for block interrupted");
+      Thread.currentThread().interrupt();
+    } finally {
+      blockLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,407 @@
+package org.tron.core.db;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.tron.common.utils.Sha256Hash;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.db2.common.WrappedByteArray;
+import org.tron.core.metrics.MetricsKey;
+import org.tron.core.metrics.MetricsUtil;
+
+/**
+ * Pending transactions indexed by priority, id, sender and arrival time.
+ * The priority is the order (fee) of a transaction when sorting is on, arrival otherwise, and
+ * both are taken when the transaction is added, so processing it again while pooled does not
+ * corrupt the index. A bounded pool evicts the lowest priority transactions once it holds more
+ * than maxBytes, or more than maxPerSender transactions of one sender, and expired
+ * transactions are dropped from the oldest end instead of scanning the pool.
+ * Every operation is O(log n) under one lock, iterators work on a copy.
+ */
+@Slf4j(topic = "DB")
+public class TransactionPool extends AbstractQueue<TransactionCapsule>
+    implements BlockingQueue<TransactionCapsule> {
+
+  private static final Comparator<Entry> FIFO = Comparator.comparingLong(e -> e.sequence);
+  private static final Comparator<Entry> BY_ORDER =
+      Comparator.<Entry>comparingLong(e -> -e.order).thenComparing(FIFO);
+  private static final Comparator<Entry> BY_TIME =
+      Comparator.<Entry>comparingLong(e -> e.time).thenComparing(FIFO);
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final NavigableSet<Entry> byPriority;
+  private final NavigableSet<Entry> byTime = new TreeSet<>(BY_TIME);
+  private final Map<Sha256Hash, Entry> byId = new HashMap<>();
+  private final Map<WrappedByteArray, NavigableSet<Entry>> bySender = new HashMap<>();
+  // 0 for no bound
+  private final long maxBytes;
+  private final int maxPerSender;
+  private long bytes;
+  private long sequence;
+
+  /**
+   * An unbounded pool.
+   */
+  public TransactionPool(boolean sortByOrder) {
+    this(sortByOrder, 0, 0);
+  }
+
+  public TransactionPool(boolean sortByOrder, long maxBytes, int maxPerSender) {
+    this.byPriority = new TreeSet<>(sortByOrder ? BY_ORDER : FIFO);
+    this.maxBytes = maxBytes;
+    this.maxPerSender = maxPerSender;
+  }
+
+  private static final class Entry {
+
+    private final TransactionCapsule tx;
+    private final Sha256Hash id;
+    private final WrappedByteArray sender;
+    private final long order;
+    private final long time;
+    private final long size;
+    private final long sequence;
+
+    private Entry(TransactionCapsule tx, long sequence) {
+      this.tx = tx;
+      this.id = tx.getTransactionId();
+      this.sender = WrappedByteArray.of(tx.getInstance().getRawData().getContractCount() == 0
+          ? new byte[0] : TransactionCapsule.getOwner(tx.getInstance().getRawData()
+          .getContract(0)));
+      this.order = tx.getOrder();
+      this.time = tx.getTime();
+      this.size = tx.getSerializedSize();
+      this.sequence = sequence;
+    }
+  }
+
+  /**
+   * Add a transaction, a transaction already pooled is kept where it is.
+   *
+   * @return false if the pool is bounded and tx has the lowest priority of what would have to
+   *     be evicted for it.
+   */
+  @Override
+  public boolean offer(TransactionCapsule tx) {
+    Sha256Hash id = tx.getTransactionId();
+    lock.lock();
+    try {
+      if (byId.containsKey(id)) {
+        return true;
+      }
+      Entry entry = new Entry(tx, sequence++);
+      add(entry);
+      if (!evict(entry)) {
+        return false;
+      }
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void add(Entry entry) {
+    byPriority.add(entry);
+    byTime.add(entry);
+    byId.put(entry.id, entry);
+    bySender.computeIfAbsent(entry.sender, k -> new TreeSet<>(byPriority.comparator()))
+        .add(entry);
+    bytes += entry.size;
+  }
+
+  private void unlink(Entry entry) {
+    byPriority.remove(entry);
+    byTime.remove(entry);
+    byId.remove(entry.id);
+    NavigableSet<Entry> own = bySender.get(entry.sender);
+    own.remove(entry);
+    if (own.isEmpty()) {
+      bySender.remove(entry.sender);
+    }
+    bytes -= entry.size;
+  }
+
+  /**
+   * @return false if added itself was evicted.
+   */
+  private boolean evict(Entry added) {
+    boolean kept = true;
+    if (maxPerSender > 0) {
+      NavigableSet<Entry> own = bySender.get(added.sender);
+      while (own.size() > maxPerSender) {
+        kept &= evict(own.last(), added);
+      }
+    }
+    while (maxBytes > 0 && bytes > maxBytes) {
+      kept &= evict(byPriority.last(), added);
+    }
+    return kept;
+  }
+
+  private boolean evict(Entry entry, Entry added) {
+    unlink(entry);
+    MetricsUtil.meterMark(MetricsKey.BLOCKCHAIN_TX_POOL_EVICTED);
+    logger.debug("evict tx {} from pool", entry.id);
+    return entry != added;
+  }
+
+  @Override
+  public void put(TransactionCapsule tx) {
+    offer(tx);
+  }
+
+  @Override
+  public boolean offer(TransactionCapsule tx, long timeout, TimeUnit unit) {
+    return offer(tx);
+  }
+
+  @Override
+  public TransactionCapsule poll() {
+    lock.lock();
+    try {
+      return pollFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private TransactionCapsule pollFirst() {
+    if (byPriority.isEmpty()) {
+      return null;
+    }
+    Entry entry = byPriority.first();
+    unlink(entry);
+    return entry.tx;
+  }
+
+  @Override
+  public TransactionCapsule take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (byPriority.isEmpty()) {
+        notEmpty.await();
+      }
+      return pollFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public TransactionCapsule poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (byPriority.isEmpty()) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return pollFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public TransactionCapsule peek() {
+    lock.lock();
+    try {
+      return byPriority.isEmpty() ? null : byPriority.first().tx;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (!(o instanceof TransactionCapsule)) {
+      return false;
+    }
+    Sha256Hash id = ((TransactionCapsule) o).getTransactionId();
+    lock.lock();
+    try {
+      Entry entry = byId.get(id);
+      if (entry == null) {
+        return false;
+      }
+      unlink(entry);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof TransactionCapsule && get(((TransactionCapsule) o).getTransactionId())
+        != null;
+  }
+
+  /**
+   * @return the pooled transaction of id, or null.
+   */
+  public TransactionCapsule get(Sha256Hash id) {
+    lock.lock();
+    try {
+      Entry entry = byId.get(id);
+      return entry == null ? null : entry.tx;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the pooled transactions of sender, in priority order.
+   */
+  public List<TransactionCapsule> getBySender(byte[] sender) {
+    lock.lock();
+    try {
+      List<TransactionCapsule> result = new ArrayList<>();
+      NavigableSet<Entry> own = bySender.get(WrappedByteArray.of(sender));
+      if (own != null) {
+        own.forEach(entry -> result.add(entry.tx));
+      }
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Drop the transactions added before time.
+   *
+   * @return the number dropped.
+   */
+  public int removeExpired(long time) {
+    lock.lock();
+    try {
+      int count = 0;
+      while (!byTime.isEmpty() && byTime.first().time < time) {
+        Entry entry = byTime.first();
+        unlink(entry);
+        count++;
+        logger.debug("[timeout] remove tx from pending, txId:{}", entry.id);
+      }
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return byPriority.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getBytes() {
+    lock.lock();
+    try {
+      return bytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      byPriority.clear();
+      byTime.clear();
+      byId.clear();
+      bySender.clear();
+      bytes = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int drainTo(Collection<? super TransactionCapsule> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super TransactionCapsule> c, int maxElements) {
+    lock.lock();
+    try {
+      int count = 0;
+      while (count < maxElements && !byPriority.isEmpty()) {
+        c.add(pollFirst());
+        count++;
+      }
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Iterate a copy of the pool in priority order, remove takes the transaction out of the pool.
+   */
+  @Override
+  public Iterator<TransactionCapsule> iterator() {
+    List<TransactionCapsule> copy = new ArrayList<>();
+    lock.lock();
+    try {
+      byPriority.forEach(entry -> copy.add(entry.tx));
+    } finally {
+      lock.unlock();
+    }
+
+    return new Iterator<TransactionCapsule>() {
+      private int index = 0;
+      private TransactionCapsule last;
+
+      @Override
+      public boolean hasNext() {
+        return index < copy.size();
+      }
+
+      @Override
+      public TransactionCapsule next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        last = copy.get(index++);
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        TransactionPool.this.remove(last);
+        last = null;
+      }
+    };
+  }
+}
@@ -6,8 +6,21 @@ public class MetricsKey {
   public static final String BLOCKCHAIN_BLOCK_PROCESS_TIME = "blockchain.blockProcessTime";
   public static final String BLOCKCHAIN_FORK_COUNT = "blockchain.forkCount";
   public static final String BLOCKCHAIN_FAIL_FORK_COUNT = "blockchain.failForkCount";
+  public static final String BLOCKCHAIN_FORK_GRAFT_COUNT = "blockchain.forkGraftCount";
   public static final String BLOCKCHAIN_MISSED_TRANSACTION = "blockchain.missedTransaction";
   public static final String BLOCKCHAIN_DUP_WITNESS = "blockchain.dupWitness.";
+  public static final String BLOCKCHAIN_TX_HASH_COUNT = "blockchain.txHashCount";
+  public static final String BLOCKCHAIN_TX_POOL_EVICTED = "blockchain.txPool.evicted";
+  public static final String BLOCKCHAIN_TX_POOL_EXPIRED = "blockchain.txPool.expired";
+  public static final String BLOCKCHAIN_SIGNER_CACHE_HIT = "blockchain.signerCache.hit";
+  public static final String BLOCKCHAIN_SIGNER_CACHE_MISS = "blockchain.signerCache.miss";
+  public static final String BLOCKCHAIN_CODE_CACHE_HIT = "blockchain.codeCache.hit";
+  public static final String BLOCKCHAIN_CODE_CACHE_MISS = "blockchain.codeCache.miss";
+  public static final String BLOCKCHAIN_CODE_CACHE_SAVED_TIME = "blockchain.codeCache.savedTime";
+  public static final String DB_CHECKPOINT_BYTES = "db.checkpoint.bytes";
+  public static final String DB_CHECKPOINT_TIME = "db.checkpoint.time";
+  public static final String DB_READ_CACHE_HIT = "db.readCache.hit.";
+  public static final String DB_READ_CACHE_MISS = "db.readCache.miss.";
   public static final String NET_LATENCY = "net.latency";
   public static final String NET_LATENCY_WITNESS = "net.latency.witness.";
   public static final String NET_DISCONNECTION_COUNT = "net.disconnectionCount";
@@ -4,16 +4,22 @@ import static org.tron.core.config.Parameter.NetConstants.MAX_BLOCK_FETCH_PER_PE
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Ordering;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +28,9 @@ import org.tron.common.overlay.server.Channel.TronState;
 import org.tron.common.utils.Pair;
 import org.tron.core.capsule.BlockCapsule;
 import org.tron.core.capsule.BlockCapsule.BlockId;
+import org.tron.core.capsule.TransactionCapsule;
 import org.tron.core.config.Parameter.NetConstants;
+import org.tron.core.config.args.Args;
 import org.tron.core.exception.P2pException;
 import org.tron.core.exception.P2pException.TypeEnum;
 import org.tron.core.net.TronNetDelegate;
@@ -57,12 +65,25 @@ public class SyncService {
   private ScheduledExecutorService blockHandleExecutor = Executors
       .newSingleThreadScheduledExecutor();
 
+  // recovers the signers of the blocks waiting to be processed, null if it is off
+  private ExecutorService signatureExecutor;
+
+  private int signatureAheadBlocks;
+
+  private Map<BlockId, Future<?>> signatureInRecover = new ConcurrentHashMap<>();
+
   private volatile boolean handleFlag = false;
 
   @Setter
   private volatile boolean fetchFlag = false;
 
   public void init() {
+    signatureAheadBlocks = Args.getInstance().getSyncSignatureAheadBlocks();
+    if (signatureAheadBlocks > 0) {
+      signatureExecutor = Executors
+          .newFixedThreadPool(Args.getInstance().getValidateSignThreadNum());
+    }
+
     fetchExecutor.scheduleWithFixedDelay(() -> {
       try {
         if (fetchFlag) {
@@ -89,6 +110,9 @@ public class SyncService {
   public void close() {
     fetchExecutor.shutdown();
     blockHandleExecutor.shutdown();
+    if (signatureExecutor != null) {
+      signatureExecutor.shutdownNow();
+    }
   }
 
   public void startSync(PeerConnection peer) {
@@ -238,6 +262,7 @@ public class SyncService {
         blockWaitToProcess.forEach((msg, peerConnection) -> {
           if (peerConnection.isDisconnect()) {
             blockWaitToProcess.remove(msg);
+            cancelRecoverSigners(msg.getBlockId());
             invalid(msg.getBlockId());
             return;
           }
@@ -259,9 +284,52 @@ public class SyncService {
     }
   }
 
+  /**
+   * Recover the signers of the next blocks waiting to be processed on signatureExecutor, while
+   * the current block is executed. Up to signatureAheadBlocks blocks are recovered ahead of
+   * the one processed.
+   */
+  private void recoverSignersAhead() {
+    if (signatureExecutor == null) {
+      return;
+    }
+    List<BlockMessage> waiting = new ArrayList<>(blockWaitToProcess.keySet());
+    Set<BlockId> waitingIds = waiting.stream().map(BlockMessage::getBlockId)
+        .collect(Collectors.toSet());
+    // forget the blocks no longer waiting: processed, dropped with their peer or received twice
+    signatureInRecover.entrySet().removeIf(entry -> {
+      if (waitingIds.contains(entry.getKey())) {
+        return false;
+      }
+      entry.getValue().cancel(false);
+      return true;
+    });
+
+    int room = signatureAheadBlocks - signatureInRecover.size();
+    if (room <= 0) {
+      return;
+    }
+    Ordering.from(Comparator.comparingLong((BlockMessage msg) -> msg.getBlockId().getNum()))
+        .leastOf(waiting.stream()
+            .filter(msg -> !signatureInRecover.containsKey(msg.getBlockId()))
+            .iterator(), room)
+        .forEach(msg -> signatureInRecover.computeIfAbsent(msg.getBlockId(),
+            id -> signatureExecutor.submit(() -> msg.getBlockCapsule().getTransactions()
+                .forEach(TransactionCapsule::recoverSigners))));
+  }
+
+  private void cancelRecoverSigners(BlockId blockId) {
+    Future<?> future = signatureInRecover.remove(blockId);
+    if (future != null) {
+      future.cancel(false);
+    }
+  }
+
   private void processSyncBlock(BlockCapsule block) {
     boolean flag = true;
     BlockId blockId = block.getBlockId();
+    cancelRecoverSigners(blockId);
+    recoverSignersAhead();
     try {
       tronNetDelegate.validSignature(block);
       tronNetDelegate.processBlock(block, true);
@@ -214,10 +214,16 @@ public class LiteFullNodeTool {
     logger.info("-- begin to merge checkpoint to dataset");
     try {
       DBInterface tmpDb = DbTool.getDB(sourceDir, CHECKPOINT_DB);
+      byte[] prefix = checkpointPrefix(tmpDb);
       try (DBIterator iterator = tmpDb.iterator()) {
         for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
           byte[] key = iterator.getKey();
           byte[] value = iterator.getValue();
+          if (!Arrays.equals(prefix, Arrays.copyOf(key, Math.min(prefix.length, key.length)))
+              || Arrays.equals(key, SnapshotManager.CHECKPOINT_EPOCH_KEY)) {
+            continue;
+          }
+          key = Arrays.copyOfRange(key, prefix.length, key.length);
           String dbName = SnapshotManager.simpleDecode(key);
           byte[] realKey = Arrays.copyOfRange(key, dbName.getBytes().length + 4, key.length);
           byte[] realValue = value.length == 1 ? null : Arrays.copyOfRange(value, 1, value.length);
@@ -251,8 +257,9 @@ public class LiteFullNodeTool {
   private long getLatestBlockHeaderNum(String databaseDir) throws IOException, RocksDBException {
     // query latest_block_header_number from checkpoint first
     final String latestBlockHeaderNumber = "latest_block_header_number";
-    byte[] value = DbTool.getDB(databaseDir, CHECKPOINT_DB).get(
-            Bytes.concat(simpleEncode(CHECKPOINT_DB), latestBlockHeaderNumber.getBytes()));
+    DBInterface checkpointDb = DbTool.getDB(databaseDir, CHECKPOINT_DB);
+    byte[] value = checkpointDb.get(Bytes.concat(checkpointPrefix(checkpointDb),
+            simpleEncode(CHECKPOINT_DB), latestBlockHeaderNumber.getBytes()));
     if (value != null && value.length > 1) {
       return ByteArray.toLong(Arrays.copyOfRange(value, 1, value.length));
     }
@@ -353,6 +360,16 @@ public class LiteFullNodeTool {
     return result;
   }
 
+  /**
+   * Rows of the checkpoint are prefixed by the epoch published in its marker,
+   * a checkpoint without the marker was written by an old version without prefix.
+   */
+  private static byte[] checkpointPrefix(DBInterface checkpointDb) {
+    byte[] epoch = checkpointDb.get(SnapshotManager.CHECKPOINT_EPOCH_KEY);
+    return epoch == null
+            ? new byte[0] : SnapshotManager.checkpointPrefix(Longs.fromByteArray(epoch));
+  }
+
   private static byte[] simpleEncode(String s) {
     byte[] bytes = s.getBytes();
     byte[] length = Ints.toByteArray(bytes.length);
@@ -454,7 +471,8 @@ public class LiteFullNodeTool {
     DBInterface checkpointDb = DbTool.getDB(sourceDir, "tmp");
     byte[] value = sourceDb.get(key);
     if (isEmptyBytes(value)) {
-      byte[] valueFromTmp = checkpointDb.get(Bytes.concat(simpleEncode(dbName), key));
+      byte[] valueFromTmp = checkpointDb.get(Bytes.concat(checkpointPrefix(checkpointDb),
+              simpleEncode(dbName), key));
       value = valueFromTmp.length == 1
               ? null : Arrays.copyOfRange(valueFromTmp, 1, valueFromTmp.length);
     }
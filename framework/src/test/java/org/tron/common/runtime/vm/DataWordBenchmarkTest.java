@@ -0,0 +1,90 @@
+package org.tron.common.runtime.vm;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.tron.common.utils.ByteUtil;
+
+/**
+ * Compare the time and allocation of the DataWord arithmetic with the BigInteger formulas it
+ * replaced, one line per opcode, run manually.
+ */
+@Slf4j
+@Ignore
+public class DataWordBenchmarkTest {
+
+  private static final int WORDS = 1024;
+  private static final int OPERATIONS = 2_000_000;
+  private static final int ROUNDS = 5;
+
+  private final byte[][] x = new byte[WORDS][];
+  private final byte[][] y = new byte[WORDS][];
+
+  @Test
+  public void compare() {
+    Random random = new Random(0);
+    for (int i = 0; i < WORDS; i++) {
+      x[i] = new byte[32];
+      y[i] = new byte[32];
+      random.nextBytes(x[i]);
+      // divisors of every length
+      random.nextBytes(y[i]);
+      for (int j = 0; j < i % 32; j++) {
+        y[i][j] = 0;
+      }
+      y[i][31] |= 1;
+    }
+
+    for (int round = 0; round < ROUNDS; round++) {
+      run("ADD", DataWord::add, BigInteger::add, false);
+      run("SUB", DataWord::sub, BigInteger::subtract, false);
+      run("MUL", DataWord::mul, BigInteger::multiply, false);
+      run("DIV", DataWord::div, BigInteger::divide, false);
+      run("SDIV", DataWord::sDiv, BigInteger::divide, true);
+      run("MOD", DataWord::mod, BigInteger::mod, false);
+      run("SMOD", DataWord::sMod, (a, b) -> a.abs().mod(b.abs()), true);
+      run("ADDMOD", (a, b) -> a.addmod(b, b), (a, b) -> a.add(b).mod(b), false);
+      run("MULMOD", (a, b) -> a.mulmod(b, b), (a, b) -> a.multiply(b).mod(b), false);
+      // a 16 bits exponent, like most EXP in contracts
+      run("EXP", (a, b) -> a.exp(new DataWord(b.intValue() & 0xffff)),
+          (a, b) -> a.modPow(b.and(BigInteger.valueOf(0xffff)), DataWord._2_256), false);
+    }
+  }
+
+  private void run(String name, BiConsumer<DataWord, DataWord> op,
+      BinaryOperator<BigInteger> reference, boolean signed) {
+    long[] word = measure(() -> {
+      for (int i = 0; i < OPERATIONS; i++) {
+        DataWord a = new DataWord(x[i % WORDS].clone());
+        op.accept(a, new DataWord(y[i % WORDS]));
+      }
+    });
+    long[] big = measure(() -> {
+      for (int i = 0; i < OPERATIONS; i++) {
+        byte[] a = x[i % WORDS];
+        byte[] b = y[i % WORDS];
+        BigInteger result = signed
+            ? reference.apply(new BigInteger(a), new BigInteger(b))
+            : reference.apply(new BigInteger(1, a), new BigInteger(1, b));
+        ByteUtil.copyToArray(result.and(DataWord.MAX_VALUE));
+      }
+    });
+    logger.info("{}: DataWord {} ns/op {} B/op, BigInteger {} ns/op {} B/op", name,
+        word[0] / OPERATIONS, word[1] / OPERATIONS, big[0] / OPERATIONS, big[1] / OPERATIONS);
+  }
+
+  private static long[] measure(Runnable runnable) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    long start = System.nanoTime();
+    runnable.run();
+    return new long[] {System.nanoTime() - start,
+        threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated};
+  }
+}
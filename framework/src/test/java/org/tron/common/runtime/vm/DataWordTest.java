@@ -23,9 +23,11 @@ import static org.junit.Assert.assertTrue;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Random;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.util.encoders.Hex;
 import org.junit.Test;
+import org.tron.common.utils.ByteUtil;
 
 @Slf4j
 public class DataWordTest {
@@ -580,5 +582,112 @@ public class DataWordTest {
     }
   }
 
+  /**
+   * Compares the limb arithmetic with the BigInteger results it replaced, on random words biased
+   * towards zero, one, the maximum and the signed minimum.
+   */
+  @Test
+  public void testArithmeticAgainstBigInteger() {
+    Random random = new Random(0);
+    BigInteger max = DataWord.MAX_VALUE;
+    for (int i = 0; i < 20_000; i++) {
+      byte[] x = randomWord(random);
+      byte[] y = randomWord(random);
+      byte[] z = randomWord(random);
+      BigInteger ux = new BigInteger(1, x);
+      BigInteger uy = new BigInteger(1, y);
+      BigInteger uz = new BigInteger(1, z);
+      BigInteger sx = new BigInteger(x);
+      BigInteger sy = new BigInteger(y);
+      String operands = Hex.toHexString(x) + " " + Hex.toHexString(y) + " " + Hex.toHexString(z);
+
+      DataWord w = new DataWord(x.clone());
+      w.add(new DataWord(y.clone()));
+      assertEquals("add " + operands, word(ux.add(uy)), w);
+      w = new DataWord(x.clone());
+      w.sub(new DataWord(y.clone()));
+      assertEquals("sub " + operands, word(ux.subtract(uy)), w);
+      w = new DataWord(x.clone());
+      w.mul(new DataWord(y.clone()));
+      assertEquals("mul " + operands, word(ux.multiply(uy)), w);
+      w = new DataWord(x.clone());
+      w.exp(new DataWord(new byte[] {y[30], y[31]}));
+      assertEquals("exp " + operands,
+          word(ux.modPow(new BigInteger(1, new byte[] {y[30], y[31]}), DataWord._2_256)), w);
+      w = new DataWord(x.clone());
+      w.bnot();
+      assertEquals("not " + operands, word(max.subtract(ux)), w);
+      w = new DataWord(x.clone());
+      w.negate();
+      assertEquals("negate " + operands, word(ux.negate()), w);
+
+      boolean zero = uy.signum() == 0;
+      w = new DataWord(x.clone());
+      w.div(new DataWord(y.clone()));
+      assertEquals("div " + operands, zero ? DataWord.ZERO() : word(ux.divide(uy)), w);
+      w = new DataWord(x.clone());
+      w.sDiv(new DataWord(y.clone()));
+      assertEquals("sdiv " + operands, zero ? DataWord.ZERO() : word(sx.divide(sy)), w);
+      w = new DataWord(x.clone());
+      w.mod(new DataWord(y.clone()));
+      assertEquals("mod " + operands, zero ? DataWord.ZERO() : word(ux.mod(uy)), w);
+      if (!zero) {
+        BigInteger smod = sx.abs().mod(sy.abs());
+        w = new DataWord(x.clone());
+        w.sMod(new DataWord(y.clone()));
+        assertEquals("smod " + operands, word(sx.signum() < 0 ? smod.negate() : smod), w);
+      }
+
+      zero = uz.signum() == 0;
+      w = new DataWord(x.clone());
+      w.addmod(new DataWord(y.clone()), new DataWord(z.clone()));
+      assertEquals("addmod " + operands, zero ? DataWord.ZERO() : word(ux.add(uy).mod(uz)), w);
+      w = new DataWord(x.clone());
+      w.mulmod(new DataWord(y.clone()), new DataWord(z.clone()));
+      assertEquals("mulmod " + operands,
+          zero ? DataWord.ZERO() : word(ux.multiply(uy).mod(uz)), w);
+
+      int shift = random.nextInt(260);
+      DataWord arg = new DataWord(shift);
+      assertEquals("shl " + operands + " " + shift,
+          shift >= 256 ? DataWord.ZERO() : word(ux.shiftLeft(shift)),
+          new DataWord(x).shiftLeft(arg));
+      assertEquals("shr " + operands + " " + shift,
+          shift >= 256 ? DataWord.ZERO() : word(ux.shiftRight(shift)),
+          new DataWord(x).shiftRight(arg));
+      assertEquals("sar " + operands + " " + shift, word(sx.shiftRight(Math.min(shift, 256))),
+          new DataWord(x).shiftRightSigned(arg));
+    }
+  }
 
+  private static DataWord word(BigInteger value) {
+    return new DataWord(ByteUtil.copyToArray(value.and(DataWord.MAX_VALUE)));
+  }
+
+  private static byte[] randomWord(Random random) {
+    byte[] word = new byte[32];
+    switch (random.nextInt(6)) {
+      case 0:
+        break;
+      case 1:
+        word[31] = (byte) random.nextInt(3);
+        break;
+      case 2:
+        Arrays.fill(word, (byte) 0xff);
+        break;
+      case 3:
+        word[0] = (byte) 0x80;
+        break;
+      default:
+        // any width, so that every divisor length is covered
+        int length = 1 + random.nextInt(32);
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        System.arraycopy(bytes, 0, word, 32 - length, length);
+        if (random.nextBoolean()) {
+          word[0] |= (byte) 0x80;
+        }
+    }
+    return word;
+  }
 }
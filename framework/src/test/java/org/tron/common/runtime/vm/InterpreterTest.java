@@ -28,6 +28,7 @@ import org.tron.common.runtime.InternalTransaction.TrxType;
 import org.tron.core.config.args.Args;
 import org.tron.core.exception.ContractValidateException;
 import org.tron.core.vm.VM;
+import org.tron.core.vm.config.VMConfig;
 import org.tron.core.vm.program.Program;
 import org.tron.core.vm.program.invoke.ProgramInvokeMockImpl;
 import org.tron.protos.Protocol.Transaction;
@@ -150,4 +151,54 @@ public class InterpreterTest {
 
     assertTrue(result);
   }
+
+  @Test
+  public void testChargeRuns() throws ContractValidateException {
+    byte[][] codes = {
+        // PUSH1 5, JUMPDEST, PUSH1 1, SWAP1, SUB, DUP1, PUSH1 2, JUMPI, STOP - count down
+        {0x60, 0x05, 0x5b, 0x60, 0x01, (byte) 0x90, 0x03, (byte) 0x80, 0x60, 0x02, 0x57, 0x00},
+        // JUMPDEST, PUSH1 0, JUMP - forever
+        {0x5b, 0x60, 0x00, 0x56},
+        // PUSH1 1, PUSH1 2, ADD, ADD - stack too small at the last op
+        {0x60, 0x01, 0x60, 0x02, 0x01, 0x01},
+        // PUSH1 1, PUSH1 3, JUMP, JUMPDEST - bad jump destination
+        {0x60, 0x01, 0x60, 0x03, 0x56, 0x5b}
+    };
+    try {
+      for (byte[] code : codes) {
+        for (long energyLimit = 0; energyLimit < 200; energyLimit++) {
+          Program expected = run(code, energyLimit, false);
+          Program actual = run(code, energyLimit, true);
+          Assert.assertEquals(expected.getResult().getEnergyUsed(),
+              actual.getResult().getEnergyUsed());
+          Assert.assertEquals(expected.getResult().getException() == null ? null
+                  : expected.getResult().getException().getClass(),
+              actual.getResult().getException() == null ? null
+                  : actual.getResult().getException().getClass());
+          Assert.assertEquals(expected.getStack(), actual.getStack());
+        }
+      }
+    } finally {
+      VMConfig.setChargeRuns(false);
+    }
+  }
+
+  private Program run(byte[] code, long energyLimit, boolean chargeRuns)
+      throws ContractValidateException {
+    VMConfig.setChargeRuns(chargeRuns);
+    VM vm = new VM();
+    invoke = new ProgramInvokeMockImpl();
+    invoke.setEnergyLimit(energyLimit);
+    Transaction trx = Transaction.getDefaultInstance();
+    InternalTransaction interTrx = new InternalTransaction(trx, TrxType.TRX_UNKNOWN_TYPE);
+    program = new Program(code, invoke, interTrx);
+    try {
+      while (!program.isStopped()) {
+        vm.step(program);
+      }
+    } catch (RuntimeException e) {
+      program.setRuntimeFailure(e);
+    }
+    return program;
+  }
 }
@@ -0,0 +1,71 @@
+package org.tron.common.runtime.vm;
+
+import java.nio.ByteBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.tron.common.crypto.Hash;
+import org.tron.core.vm.program.Memory;
+
+/**
+ * Time the memory patterns of memory heavy contracts, run manually with several sizes.
+ */
+@Slf4j
+@Ignore
+public class MemoryBenchmarkTest {
+
+  private static final int[] SIZES = {64 * 1024, 256 * 1024, 1024 * 1024};
+  private static final int ROUNDS = 10;
+
+  @Test
+  public void run() {
+    for (int round = 0; round < ROUNDS; round++) {
+      for (int size : SIZES) {
+        long[] cost = workload(size);
+        if (round == ROUNDS - 1) {
+          logger.info("{} KB: mstore {} us, mload {} us, calldatacopy {} us, sha3 {} us",
+              size / 1024, cost[0] / 1000, cost[1] / 1000, cost[2] / 1000, cost[3] / 1000);
+        }
+      }
+    }
+  }
+
+  private long[] workload(int size) {
+    long[] cost = new long[4];
+    Memory memory = new Memory();
+    DataWord word = new DataWord(0x0123456789L);
+
+    // abi encoding an array word by word, growing the memory
+    long start = System.nanoTime();
+    for (int i = 0; i < size; i += DataWord.WORD_SIZE) {
+      memory.write(i, word.getData(), DataWord.WORD_SIZE, false);
+    }
+    cost[0] = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < size; i += DataWord.WORD_SIZE) {
+      memory.readWord(i);
+    }
+    cost[1] = System.nanoTime() - start;
+
+    // copying call data of a quarter of the memory, then returning it
+    byte[] data = new byte[size / 4];
+    start = System.nanoTime();
+    for (int i = 0; i < 4; i++) {
+      memory.write(i * data.length, data, data.length, false);
+      memory.read(i * data.length, data.length);
+    }
+    cost[2] = System.nanoTime() - start;
+
+    // hashing 64 bytes keys like mappings do, and the whole memory
+    start = System.nanoTime();
+    for (int i = 0; i + 64 <= size; i += 64) {
+      ByteBuffer view = memory.view(i, 64);
+      Hash.sha3(view.array(), view.position(), view.remaining());
+    }
+    ByteBuffer view = memory.view(0, size);
+    Hash.sha3(view.array(), view.position(), view.remaining());
+    cost[3] = System.nanoTime() - start;
+    return cost;
+  }
+}
@@ -22,6 +22,7 @@ import static java.lang.Math.ceil;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.util.encoders.Hex;
@@ -562,5 +563,34 @@ public class MemoryTest {
     assertTrue(zero == 10);
   }
 
+  @Test
+  public void testGrowAndView() {
+    Memory memoryBuffer = new Memory();
+    byte[] data = new byte[3000];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = (byte) i;
+    }
 
+    // outgrow the buffer several times, the old content is kept
+    for (int address = 0; address < 100 * CHUNK_SIZE; address += 7 * CHUNK_SIZE + 13) {
+      memoryBuffer.write(address, data, data.length, false);
+      assertArrayEquals(data, memoryBuffer.read(address, data.length));
+      assertArrayEquals(data, memoryBuffer.read(0, data.length));
+    }
+    Assert.assertEquals(calcSize(memoryBuffer.size(), CHUNK_SIZE), memoryBuffer.internalSize());
+    Assert.assertEquals(memoryBuffer.internalSize() / CHUNK_SIZE,
+        memoryBuffer.getChunks().size());
+
+    ByteBuffer view = memoryBuffer.view(100, 200);
+    Assert.assertEquals(200, view.remaining());
+    byte[] viewed = new byte[200];
+    view.get(viewed);
+    assertArrayEquals(memoryBuffer.read(100, 200), viewed);
+
+    // a view past the end extends the memory
+    int size = memoryBuffer.size();
+    Assert.assertEquals(0, memoryBuffer.view(size, 1).get());
+    Assert.assertEquals(size + WORD_SIZE, memoryBuffer.size());
+    Assert.assertEquals(0, memoryBuffer.view(0, 0).remaining());
+  }
 }
@@ -0,0 +1,55 @@
+package org.tron.common.runtime.vm;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tron.common.crypto.Hash;
+import org.tron.core.Constant;
+import org.tron.core.config.args.Args;
+import org.tron.core.vm.program.ProgramPrecompile;
+
+public class ProgramPrecompileTest {
+
+  @BeforeClass
+  public static void init() {
+    Args.setParam(new String[]{}, Constant.TEST_CONF);
+    ProgramPrecompile.init(Args.getInstance().getCodeCacheSize());
+  }
+
+  @AfterClass
+  public static void destroy() {
+    ProgramPrecompile.init(0);
+    Args.clearParam();
+  }
+
+  @Test
+  public void testCompile() {
+    // PUSH1 0x5b, JUMPDEST, STOP
+    byte[] ops = {0x60, 0x5b, 0x5b, 0x00};
+    byte[] codeHash = Hash.sha3(ops);
+
+    ProgramPrecompile.resetHitCount();
+    ProgramPrecompile.resetMissCount();
+    ProgramPrecompile precompile = ProgramPrecompile.compile(codeHash, ops);
+    Assert.assertSame(precompile, ProgramPrecompile.compile(codeHash, ops));
+    Assert.assertEquals(1, ProgramPrecompile.resetMissCount());
+    Assert.assertEquals(1, ProgramPrecompile.resetHitCount());
+
+    Assert.assertFalse(precompile.hasJumpDest(1));
+    Assert.assertTrue(precompile.hasJumpDest(2));
+    Assert.assertFalse(precompile.hasJumpDest(-1));
+    Assert.assertFalse(precompile.hasJumpDest(ops.length));
+
+    // code without a hash is analyzed each time
+    Assert.assertNotSame(ProgramPrecompile.compile(new byte[0], ops),
+        ProgramPrecompile.compile(new byte[0], ops));
+    Assert.assertEquals(0, ProgramPrecompile.resetHitCount());
+
+    // without a cache the code is analyzed each time
+    ProgramPrecompile.init(0);
+    Assert.assertNotSame(ProgramPrecompile.compile(codeHash, ops),
+        ProgramPrecompile.compile(codeHash, ops));
+    Assert.assertEquals(0, ProgramPrecompile.resetMissCount());
+  }
+}
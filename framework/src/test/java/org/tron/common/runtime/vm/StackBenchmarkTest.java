@@ -0,0 +1,83 @@
+package org.tron.common.runtime.vm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.tron.core.vm.program.Stack;
+
+/**
+ * Time the stack operations of typical opcode sequences against java.util.Stack, which the
+ * operand stack used to extend, run manually.
+ */
+@Slf4j
+@Ignore
+public class StackBenchmarkTest {
+
+  private static final int SEQUENCES = 20_000_000;
+  private static final int ROUNDS = 5;
+
+  @Test
+  public void compare() {
+    DataWord[] words = new DataWord[16];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = new DataWord(i);
+    }
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      long sum = arrayStack(words);
+      long array = System.nanoTime() - start;
+      start = System.nanoTime();
+      sum += vectorStack(words);
+      long vector = System.nanoTime() - start;
+      logger.info("Stack {} ns/sequence, java.util.Stack {} ns/sequence ({})",
+          (double) array / SEQUENCES, (double) vector / SEQUENCES, sum);
+    }
+  }
+
+  // PUSH PUSH ADD, DUP2 SWAP1 POP, the argument shuffling of a function body, with the words
+  // of 16 locals below them
+  private static long arrayStack(DataWord[] words) {
+    Stack stack = new Stack();
+    for (DataWord word : words) {
+      stack.push(word);
+    }
+    long sum = 0;
+    for (int i = 0; i < SEQUENCES; i++) {
+      stack.push(words[i & 15]);
+      stack.push(words[(i + 1) & 15]);
+      stack.push(stack.pop() == stack.pop() ? words[0] : words[1]);
+      stack.push(stack.get(stack.size() - 2));
+      stack.swap(stack.size() - 1, stack.size() - 2);
+      stack.pop();
+      stack.swap(stack.size() - 1, stack.size() - 16);
+      sum += stack.peek().getData()[31];
+      stack.pop();
+    }
+    return sum + stack.size();
+  }
+
+  private static long vectorStack(DataWord[] words) {
+    java.util.Stack<DataWord> stack = new java.util.Stack<>();
+    for (DataWord word : words) {
+      stack.push(word);
+    }
+    long sum = 0;
+    for (int i = 0; i < SEQUENCES; i++) {
+      stack.push(words[i & 15]);
+      stack.push(words[(i + 1) & 15]);
+      stack.push(stack.pop() == stack.pop() ? words[0] : words[1]);
+      stack.push(stack.get(stack.size() - 2));
+      swap(stack, stack.size() - 1, stack.size() - 2);
+      stack.pop();
+      swap(stack, stack.size() - 1, stack.size() - 16);
+      sum += stack.peek().getData()[31];
+      stack.pop();
+    }
+    return sum + stack.size();
+  }
+
+  private static void swap(java.util.Stack<DataWord> stack, int from, int to) {
+    DataWord tmp = stack.get(from);
+    stack.set(from, stack.set(to, tmp));
+  }
+}
@@ -0,0 +1,71 @@
+package org.tron.common.runtime.vm;
+
+import java.util.EmptyStackException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.core.vm.program.Stack;
+import org.tron.core.vm.program.listener.ProgramListenerAdaptor;
+
+public class StackTest {
+
+  @Test
+  public void testPushPopSwap() {
+    Stack stack = new Stack();
+    for (int i = 0; i < Stack.MAX_SIZE; i++) {
+      stack.push(new DataWord(i));
+    }
+    Assert.assertEquals(Stack.MAX_SIZE, stack.size());
+    Assert.assertEquals(new DataWord(Stack.MAX_SIZE - 1), stack.peek());
+    Assert.assertEquals(new DataWord(3), stack.get(3));
+
+    stack.swap(stack.size() - 1, stack.size() - 17);
+    Assert.assertEquals(new DataWord(Stack.MAX_SIZE - 17), stack.pop());
+    Assert.assertEquals(new DataWord(Stack.MAX_SIZE - 2), stack.peek());
+    Assert.assertEquals(new DataWord(Stack.MAX_SIZE - 1), stack.get(stack.size() - 16));
+
+    while (!stack.isEmpty()) {
+      stack.pop();
+    }
+    try {
+      stack.pop();
+      Assert.fail();
+    } catch (EmptyStackException e) {
+      // expected
+    }
+    try {
+      stack.get(0);
+      Assert.fail();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testListener() {
+    int[] calls = new int[3];
+    Stack stack = new Stack();
+    stack.setProgramListener(new ProgramListenerAdaptor() {
+      @Override
+      public void onStackPop() {
+        calls[0]++;
+      }
+
+      @Override
+      public void onStackPush(DataWord value) {
+        calls[1]++;
+      }
+
+      @Override
+      public void onStackSwap(int from, int to) {
+        calls[2]++;
+      }
+    });
+    stack.push(new DataWord(1));
+    stack.push(new DataWord(2));
+    stack.swap(0, 1);
+    // out of the stack, nothing to swap
+    stack.swap(0, 2);
+    stack.pop();
+    Assert.assertArrayEquals(new int[] {1, 2, 1}, calls);
+  }
+}
@@ -9,6 +9,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -360,4 +361,70 @@ public class RocksDbDataSourceImplTest {
     dataSource.resetDb();
     dataSource.closeDB();
   }
+
+  @Test
+  public void testColumnFamilies() throws Exception {
+    Args.getInstance().getStorage().setDbColumnFamilies(true);
+    try {
+      String parent = Args.getInstance().getOutputDirectory() + "column-families";
+      RocksDbDataSourceImpl first = new RocksDbDataSourceImpl(parent, "test_family_1");
+      RocksDbDataSourceImpl second = new RocksDbDataSourceImpl(parent, "test_family_2");
+      first.initDB();
+      second.initDB();
+      Assert.assertNotNull(first.getShared());
+      Assert.assertSame(first.getShared(), second.getShared());
+
+      first.putData(key1, value1);
+      assertNull(second.getData(key1));
+      try (org.rocksdb.WriteBatch batch = new org.rocksdb.WriteBatch()) {
+        Map<byte[], byte[]> rows = new HashMap<>();
+        rows.put(key1, null);
+        rows.put(key2, value2);
+        first.appendTo(batch, rows);
+        second.appendTo(batch, Collections.singletonMap(key3, value3));
+        first.getShared().write(new org.rocksdb.WriteOptions(), batch);
+      }
+      assertNull(first.getData(key1));
+      Assert.assertArrayEquals(value2, first.getData(key2));
+      Assert.assertArrayEquals(value3, second.getData(key3));
+      assertEquals(1, second.allKeys().size());
+
+      second.resetDb();
+      assertEquals(0, second.allKeys().size());
+      Assert.assertArrayEquals(value2, first.getData(key2));
+
+      // the column families survive the instance
+      first.closeDB();
+      second.closeDB();
+      first = new RocksDbDataSourceImpl(parent, "test_family_1");
+      first.initDB();
+      Assert.assertArrayEquals(value2, first.getData(key2));
+      first.closeDB();
+
+      // a separate database is not turned into an empty column family
+      String separateParent = Args.getInstance().getOutputDirectory() + "separate";
+      Args.getInstance().getStorage().setDbColumnFamilies(false);
+      RocksDbDataSourceImpl separate = new RocksDbDataSourceImpl(separateParent, "test_separate");
+      separate.initDB();
+      separate.closeDB();
+      Args.getInstance().getStorage().setDbColumnFamilies(true);
+      try {
+        new RocksDbDataSourceImpl(separateParent, "test_separate").initDB();
+        Assert.fail();
+      } catch (RuntimeException e) {
+        Assert.assertEquals("Failed to initialize database", e.getMessage());
+      }
+
+      // nor a column family into an empty separate database
+      Args.getInstance().getStorage().setDbColumnFamilies(false);
+      try {
+        new RocksDbDataSourceImpl(parent, "test_family_1").initDB();
+        Assert.fail();
+      } catch (RuntimeException e) {
+        Assert.assertEquals("Failed to initialize database", e.getMessage());
+      }
+    } finally {
+      Args.getInstance().getStorage().setDbColumnFamilies(false);
+    }
+  }
 }
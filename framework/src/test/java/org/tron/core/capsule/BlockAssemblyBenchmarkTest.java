@@ -0,0 +1,88 @@
+package org.tron.core.capsule;
+
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.tron.common.utils.Sha256Hash;
+import org.tron.core.config.Parameter.ChainConstant;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
+import org.tron.protos.contract.BalanceContract.TransferContract;
+
+/**
+ * Compare filling a full block transaction by transaction, as generateBlock did, with the
+ * assembler, run manually.
+ */
+@Slf4j
+@Ignore
+public class BlockAssemblyBenchmarkTest {
+
+  private static final int ROUNDS = 10;
+
+  @Test
+  public void compare() {
+    List<TransactionCapsule> trxs = transactions();
+    run("warmup-rebuild", trxs, false);
+    run("warmup-assembler", trxs, true);
+    run("rebuild", trxs, false);
+    run("assembler", trxs, true);
+  }
+
+  private void run(String name, List<TransactionCapsule> trxs, boolean assemble) {
+    long start = System.nanoTime();
+    int count = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      BlockCapsule blockCapsule = new BlockCapsule(1, Sha256Hash.ZERO_HASH,
+          System.currentTimeMillis(), ByteString.copyFrom(new byte[21]));
+      if (assemble) {
+        BlockCapsule.Assembler assembler = blockCapsule.assembler();
+        for (TransactionCapsule trx : trxs) {
+          if (assembler.sizeWith(trx) > ChainConstant.BLOCK_SIZE) {
+            continue;
+          }
+          assembler.add(trx);
+        }
+        assembler.seal();
+      } else {
+        for (TransactionCapsule trx : trxs) {
+          if (blockCapsule.getInstance().getSerializedSize() + trx.getSerializedSize() + 3
+              > ChainConstant.BLOCK_SIZE) {
+            continue;
+          }
+          blockCapsule.addTransaction(trx);
+        }
+      }
+      blockCapsule.setMerkleRoot();
+      count = blockCapsule.getInstance().getTransactionsCount();
+      Assert.assertTrue(
+          blockCapsule.getInstance().getSerializedSize() <= ChainConstant.BLOCK_SIZE);
+    }
+    logger.info("{}: {} transactions per block, {} ms per block", name, count,
+        (System.nanoTime() - start) / 1_000_000 / ROUNDS);
+  }
+
+  // transfers of a full block and some more, which have to be postponed
+  private static List<TransactionCapsule> transactions() {
+    Random random = new Random(0);
+    List<TransactionCapsule> trxs = new ArrayList<>();
+    long size = 0;
+    while (size < ChainConstant.BLOCK_SIZE * 1.1) {
+      byte[] owner = new byte[21];
+      byte[] to = new byte[21];
+      random.nextBytes(owner);
+      random.nextBytes(to);
+      TransactionCapsule trx = new TransactionCapsule(TransferContract.newBuilder()
+          .setAmount(random.nextInt(1_000_000) + 1)
+          .setOwnerAddress(ByteString.copyFrom(owner))
+          .setToAddress(ByteString.copyFrom(to))
+          .build(), ContractType.TransferContract);
+      trxs.add(trx);
+      size += trx.getSerializedSize();
+    }
+    return trxs;
+  }
+}
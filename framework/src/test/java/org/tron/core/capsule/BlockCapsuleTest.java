@@ -133,4 +133,34 @@ public class BlockCapsuleTest {
     Assert.assertEquals(1234L, blockCapsule0.getTimeStamp());
   }
 
+  @Test
+  public void testAssembler() {
+    BlockCapsule blockCapsule = new BlockCapsule(2, Sha256Hash.ZERO_HASH, 1234,
+        ByteString.copyFrom("1234567".getBytes()));
+    BlockCapsule.Assembler assembler = blockCapsule.assembler();
+    Assert.assertEquals(blockCapsule.getInstance().getSerializedSize(),
+        assembler.getSerializedSize());
+
+    for (long amount = 1; amount <= 3; amount++) {
+      TransferContract transferContract = TransferContract.newBuilder()
+          .setAmount(amount)
+          .setOwnerAddress(ByteString.copyFrom("0x0000000000000000000".getBytes()))
+          .setToAddress(ByteString.copyFrom(ByteArray.fromHexString(
+              (Wallet.getAddressPreFixString() + "A389132D6639FBDA4FBC8B659264E6B7C90DB086"))))
+          .build();
+      TransactionCapsule trx = new TransactionCapsule(transferContract,
+          ContractType.TransferContract);
+      long expected = assembler.sizeWith(trx);
+      assembler.add(trx);
+      Assert.assertEquals(expected, assembler.getSerializedSize());
+    }
+    Assert.assertEquals(0, blockCapsule.getInstance().getTransactionsCount());
+
+    assembler.seal();
+    Assert.assertEquals(3, blockCapsule.getInstance().getTransactionsCount());
+    Assert.assertEquals(3, blockCapsule.getTransactions().size());
+    Assert.assertEquals(blockCapsule.getInstance().getSerializedSize(),
+        assembler.getSerializedSize());
+  }
+
 }
\ No newline at end of file
@@ -12,17 +12,24 @@ import org.testng.Assert;
 import org.tron.common.application.Application;
 import org.tron.common.application.ApplicationFactory;
 import org.tron.common.application.TronApplicationContext;
+import org.tron.common.parameter.CommonParameter;
+import org.tron.common.utils.ByteArray;
 import org.tron.common.utils.FileUtil;
+import org.tron.common.utils.Sha256Hash;
 import org.tron.common.utils.StringUtil;
 import org.tron.core.Constant;
 import org.tron.core.Wallet;
+import org.tron.core.capsule.utils.SignerCache;
 import org.tron.core.config.DefaultConfig;
 import org.tron.core.config.args.Args;
 import org.tron.core.db.Manager;
+import org.tron.core.exception.ValidateSignatureException;
 import org.tron.protos.Protocol.AccountType;
 import org.tron.protos.Protocol.Transaction;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
 import org.tron.protos.Protocol.Transaction.Result;
 import org.tron.protos.Protocol.Transaction.Result.contractResult;
+import org.tron.protos.contract.BalanceContract.TransferContract;
 
 @Slf4j
 public class TransactionCapsuleTest {
@@ -1088,4 +1095,64 @@ public class TransactionCapsuleTest {
     Assert.assertEquals(trxCap.getInstance()
         .getRet(0).getContractRet(), contractResult.OUT_OF_TIME);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void transactionIdMemoizedTest() {
+    TransactionCapsule trxCap = new TransactionCapsule(Transaction.newBuilder()
+        .setRawData(Transaction.raw.newBuilder().setTimestamp(1L)).build());
+    TransactionCapsule.resetHashCount();
+    Sha256Hash id = trxCap.getTransactionId();
+    Assert.assertEquals(trxCap.getTransactionId(), id);
+    Assert.assertEquals(id, Sha256Hash.of(CommonParameter.getInstance().isECKeyCryptoEngine(),
+        trxCap.getInstance().getRawData().toByteArray()));
+    Assert.assertEquals(TransactionCapsule.resetHashCount(), 1L);
+
+    // the result is not part of the raw data
+    trxCap.setResultCode(contractResult.SUCCESS);
+    Assert.assertEquals(trxCap.getTransactionId(), id);
+    Assert.assertEquals(TransactionCapsule.resetHashCount(), 0L);
+
+    trxCap.setReference(1L, new byte[32]);
+    Sha256Hash referenced = trxCap.getTransactionId();
+    Assert.assertNotEquals(referenced, id);
+    Assert.assertEquals(referenced, Sha256Hash.of(CommonParameter.getInstance()
+        .isECKeyCryptoEngine(), trxCap.getInstance().getRawData().toByteArray()));
+    Assert.assertEquals(TransactionCapsule.resetHashCount(), 1L);
+  }
+
+  @Test
+  public void recoverSignersTest() throws ValidateSignatureException {
+    TransactionCapsule trxCap = new TransactionCapsule(TransferContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(ByteArray.fromHexString(OWNER_ADDRESS)))
+        .setToAddress(ByteString.copyFrom(ByteArray.fromHexString(TO_ADDRESS)))
+        .setAmount(1).build(), ContractType.TransferContract);
+    trxCap.sign(ByteArray.fromHexString(OWNER_KEY));
+    SignerCache.init(Args.getInstance().getSignerCacheSize());
+    trxCap.recoverSigners();
+    SignerCache.resetHitCount();
+    SignerCache.resetMissCount();
+    Assert.assertTrue(trxCap.validatePubSignature(dbManager.getAccountStore(),
+        dbManager.getDynamicPropertiesStore()));
+    // the signers recovered ahead are used as they are
+    Assert.assertEquals(SignerCache.resetHitCount(), 0L);
+    Assert.assertEquals(SignerCache.resetMissCount(), 0L);
+
+    // while a capsule without them looks its signer up
+    Assert.assertTrue(new TransactionCapsule(trxCap.getInstance()).validatePubSignature(
+        dbManager.getAccountStore(), dbManager.getDynamicPropertiesStore()));
+    Assert.assertEquals(SignerCache.resetHitCount() + SignerCache.resetMissCount(), 1L);
+
+    // the permission is still checked
+    TransactionCapsule other = new TransactionCapsule(trxCap.getInstance().toBuilder()
+        .clearSignature().build());
+    other.sign(ByteArray.fromHexString(KEY_11));
+    other.recoverSigners();
+    try {
+      other.validatePubSignature(dbManager.getAccountStore(),
+          dbManager.getDynamicPropertiesStore());
+      Assert.fail();
+    } catch (ValidateSignatureException e) {
+      Assert.assertTrue(e.getMessage().contains("is not contained of permission"));
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package org.tron.core.capsule.utils;
+
+import com.google.protobuf.ByteString;
+import java.security.SignatureException;
+import java.util.Arrays;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.utils.Sha256Hash;
+import org.tron.core.Constant;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.config.args.Args;
+
+public class SignerCacheTest {
+
+  @BeforeClass
+  public static void init() {
+    Args.setParam(new String[]{}, Constant.TEST_CONF);
+    SignerCache.init(Args.getInstance().getSignerCacheSize());
+  }
+
+  @AfterClass
+  public static void destroy() {
+    SignerCache.init(0);
+    Args.clearParam();
+  }
+
+  @Test
+  public void testSignatureToAddress() throws SignatureException {
+    ECKey key = new ECKey();
+    byte[] hash = Sha256Hash.hash(true, "signer cache".getBytes());
+    ByteString sig = ByteString.copyFrom(key.sign(hash).toByteArray());
+    String base64 = TransactionCapsule.getBase64FromByteString(sig);
+
+    SignerCache.resetHitCount();
+    SignerCache.resetMissCount();
+    Assert.assertArrayEquals(key.getAddress(), SignerCache.signatureToAddress(hash, sig, base64));
+    Assert.assertArrayEquals(key.getAddress(), SignerCache.signatureToAddress(hash, sig, base64));
+    Assert.assertEquals(1, SignerCache.resetMissCount());
+    Assert.assertEquals(1, SignerCache.resetHitCount());
+
+    // another hash is another signer
+    byte[] other = Sha256Hash.hash(true, "other".getBytes());
+    Assert.assertFalse(Arrays.equals(key.getAddress(),
+        SignerCache.signatureToAddress(other, sig, base64)));
+    Assert.assertEquals(1, SignerCache.resetMissCount());
+
+    // without a cache every signer is recovered
+    SignerCache.init(0);
+    Assert.assertArrayEquals(key.getAddress(), SignerCache.signatureToAddress(hash, sig, base64));
+    Assert.assertEquals(0, SignerCache.resetHitCount());
+    Assert.assertEquals(0, SignerCache.resetMissCount());
+  }
+}
@@ -21,6 +21,7 @@ import org.iq80.leveldb.Options;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
+import org.tron.common.utils.DbProfile;
 import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.StorageUtils;
 
@@ -83,6 +84,42 @@ public class StorageTest {
     Assert.assertEquals(64 * 1024 * 1024, options.writeBufferSize());
     Assert.assertEquals(32 * 1024 * 1024L, options.cacheSize());
     Assert.assertEquals(5000, options.maxOpenFiles());
+
+    // unbound stores keep their built-in options
+    options = StorageUtils.getOptionsByDbName("block");
+    Assert.assertEquals(4 * 1024, options.blockSize());
+    Assert.assertEquals(256 * 1024 * 1024, options.writeBufferSize());
+    Assert.assertEquals(32 * 1024 * 1024L, options.cacheSize());
+  }
+
+  @Test
+  public void getProfile() {
+    Assert.assertEquals(DbProfile.POINT, storage.getProfile("witness"));
+    Assert.assertEquals(DbProfile.SCAN, storage.getProfile("proposal"));
+    Assert.assertFalse(storage.hasProfile("block"));
+    Assert.assertEquals(DbProfile.DEFAULT, storage.getProfile("block"));
+
+    // storage.properties wins over the profile
+    Assert.assertEquals(10485760, StorageUtils.getOptionsByDbName("account").writeBufferSize());
+
+    // the budget of 64m is split among witness and votes, account has its own options
+    Options options = StorageUtils.getOptionsByDbName("witness");
+    Assert.assertEquals(CompressionType.NONE, options.compressionType());
+    Assert.assertEquals(4 * 1024, options.blockSize());
+    Assert.assertEquals(64 * 1024 * 1024, options.writeBufferSize());
+    Assert.assertEquals(32 * 1024 * 1024L, options.cacheSize());
+    Assert.assertEquals(5000, options.maxOpenFiles());
+
+    options = StorageUtils.getOptionsByDbName("proposal");
+    Assert.assertEquals(CompressionType.SNAPPY, options.compressionType());
+    Assert.assertEquals(16 * 1024, options.blockSize());
+    Assert.assertEquals(128 * 1024 * 1024L, options.cacheSize());
+    Assert.assertEquals(1000, options.maxOpenFiles());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownProfile() {
+    DbProfile.of("fast");
   }
 
 }
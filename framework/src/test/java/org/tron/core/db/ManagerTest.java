@@ -61,6 +61,8 @@ import org.tron.core.exception.VMIllegalException;
 import org.tron.core.exception.ValidateScheduleException;
 import org.tron.core.exception.ValidateSignatureException;
 import org.tron.core.exception.ZksnarkException;
+import org.tron.core.metrics.MetricsKey;
+import org.tron.core.metrics.MetricsUtil;
 import org.tron.core.store.CodeStore;
 import org.tron.core.store.DynamicPropertiesStore;
 import org.tron.core.store.ExchangeStore;
@@ -616,6 +618,124 @@ public class ManagerTest extends BlockGenerate {
         chainManager.getDynamicPropertiesStore().getLatestBlockHeaderHash());
   }
 
+  @Test
+  public void switchBackGraft()
+      throws ValidateSignatureException, ContractValidateException, ContractExeException,
+      UnLinkedBlockException, ValidateScheduleException, AccountResourceInsufficientException,
+      TransactionExpirationException, TooBigTransactionException, DupTransactionException,
+      BadBlockException, TaposException, BadNumberBlockException, NonCommonBlockException,
+      ReceiptCheckErrException, VMIllegalException, TooBigTransactionResultException,
+      ZksnarkException {
+    Args.getInstance().setForkSwitchDetachedBlocks(10);
+    Args.getInstance().setNodeMetricsEnable(true);
+    String key = "f31db24bfbd1a2ef19beddca0a0fa37632eded9ac666a05d3bd925f01dde1f62";
+    byte[] privateKey = ByteArray.fromHexString(key);
+    final ECKey ecKey = ECKey.fromPrivate(privateKey);
+    byte[] address = ecKey.getAddress();
+    WitnessCapsule witnessCapsule = new WitnessCapsule(ByteString.copyFrom(address));
+    chainManager.getWitnessScheduleStore().saveActiveWitnesses(new ArrayList<>());
+    chainManager.addWitness(ByteString.copyFrom(address));
+
+    Block block = getSignedBlock(witnessCapsule.getAddress(), 1533529947843L, privateKey);
+    dbManager.pushBlock(new BlockCapsule(block));
+
+    Map<ByteString, String> addressToProvateKeys = addTestWitnessAndAccount();
+    addressToProvateKeys.put(ByteString.copyFrom(address), key);
+
+    long num = chainManager.getDynamicPropertiesStore().getLatestBlockHeaderNumber();
+    ByteString parent =
+        chainManager.getDynamicPropertiesStore().getLatestBlockHeaderHash().getByteString();
+    BlockCapsule blockA1 =
+        createTestBlockCapsule(1533529947843L + 3000, num + 1, parent, addressToProvateKeys);
+    BlockCapsule blockB1 =
+        createTestBlockCapsule(1533529947843L + 3001, num + 1, parent, addressToProvateKeys);
+    dbManager.pushBlock(blockA1);
+    dbManager.pushBlock(blockB1);
+    long producedA1 = chainManager.getWitnessStore()
+        .get(blockA1.getWitnessAddress().toByteArray()).getTotalProduced();
+
+    // switch to the branch of B1, popping A1
+    BlockCapsule blockB2 = createTestBlockCapsule(1533529947843L + 6000, num + 2,
+        blockB1.getBlockId().getByteString(), addressToProvateKeys);
+    dbManager.pushBlock(blockB2);
+    Assert.assertEquals(blockB2.getBlockId(),
+        chainManager.getDynamicPropertiesStore().getLatestBlockHeaderHash());
+
+    // switch back, grafting A1 instead of applying it again
+    long grafted = MetricsUtil.getMeter(MetricsKey.BLOCKCHAIN_FORK_GRAFT_COUNT).getCount();
+    BlockCapsule blockA2 = createTestBlockCapsule(1533529947843L + 6001, num + 2,
+        blockA1.getBlockId().getByteString(), addressToProvateKeys);
+    BlockCapsule blockA3 = createTestBlockCapsule(1533529947843L + 9000, num + 3,
+        blockA2.getBlockId().getByteString(), addressToProvateKeys);
+    dbManager.pushBlock(blockA2);
+    dbManager.pushBlock(blockA3);
+
+    Assert.assertEquals(grafted + 1,
+        MetricsUtil.getMeter(MetricsKey.BLOCKCHAIN_FORK_GRAFT_COUNT).getCount());
+    Assert.assertEquals(blockA3.getBlockId(),
+        chainManager.getDynamicPropertiesStore().getLatestBlockHeaderHash());
+    Assert.assertEquals(blockA1.getBlockId(), chainManager.getBlockIdByNum(num + 1));
+    Assert.assertEquals(blockA2.getBlockId(), chainManager.getBlockIdByNum(num + 2));
+    // the consensus state of A1 is back, and A2 and A3 are applied on it
+    WitnessCapsule witnessA1 =
+        chainManager.getWitnessStore().get(blockA1.getWitnessAddress().toByteArray());
+    Assert.assertTrue(witnessA1.getTotalProduced() >= producedA1);
+  }
+
+  @Test
+  public void pushBlockKeepsUntouchedPending()
+      throws ValidateSignatureException, ContractValidateException, ContractExeException,
+      UnLinkedBlockException, ValidateScheduleException, AccountResourceInsufficientException,
+      TransactionExpirationException, TooBigTransactionException, DupTransactionException,
+      BadBlockException, TaposException, BadNumberBlockException, NonCommonBlockException,
+      ReceiptCheckErrException, VMIllegalException, TooBigTransactionResultException,
+      ZksnarkException {
+    Args.getInstance().setIncrementalRevalidation(true);
+    String key = "f31db24bfbd1a2ef19beddca0a0fa37632eded9ac666a05d3bd925f01dde1f62";
+    byte[] privateKey = ByteArray.fromHexString(key);
+    byte[] address = ECKey.fromPrivate(privateKey).getAddress();
+    chainManager.getWitnessScheduleStore().saveActiveWitnesses(new ArrayList<>());
+    chainManager.addWitness(ByteString.copyFrom(address));
+    Block block = getSignedBlock(ByteString.copyFrom(address), 1533529947843L, privateKey);
+    dbManager.pushBlock(new BlockCapsule(block));
+
+    Map<ByteString, String> addressToProvateKeys = addTestWitnessAndAccount();
+    addressToProvateKeys.put(ByteString.copyFrom(address), key);
+    long num = chainManager.getDynamicPropertiesStore().getLatestBlockHeaderNumber();
+    BlockCapsule next = createTestBlockCapsule(1533529947843L + 3000, num + 1,
+        chainManager.getDynamicPropertiesStore().getLatestBlockHeaderHash().getByteString(),
+        addressToProvateKeys);
+
+    TransactionCapsule kept = pendingTransfer(TransactionStoreTest.randomBytes(21));
+    // the witness of the block is paid by it
+    TransactionCapsule touched = pendingTransfer(next.getWitnessAddress().toByteArray());
+    TransactionCapsule unverified = pendingTransfer(TransactionStoreTest.randomBytes(21));
+    unverified.setVerified(false);
+    dbManager.getPendingTransactions().put(kept);
+    dbManager.getPendingTransactions().put(touched);
+    dbManager.getPendingTransactions().put(unverified);
+    dbManager.pushBlock(next);
+
+    Assert.assertTrue(dbManager.getPendingTransactions().contains(kept));
+    // still refused as a duplicate
+    Assert.assertTrue(dbManager.getTransactionCache()
+        .has(kept.getTransactionId().getBytes()));
+    // re-pushed, and failing since their owners have no account
+    Assert.assertFalse(dbManager.getPendingTransactions().contains(touched));
+    Assert.assertFalse(dbManager.getPendingTransactions().contains(unverified));
+  }
+
+  private TransactionCapsule pendingTransfer(byte[] owner) {
+    TransactionCapsule tx = new TransactionCapsule(TransferContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(owner))
+        .setToAddress(ByteString.copyFrom(TransactionStoreTest.randomBytes(21)))
+        .setAmount(1).build(), ContractType.TransferContract);
+    tx.setExpiration(System.currentTimeMillis() + 60_000);
+    tx.setTime(System.currentTimeMillis());
+    tx.setVerified(true);
+    return tx;
+  }
+
   @Test
   public void getVerifyTxsTest() {
     TransferContract c1 = TransferContract.newBuilder()
@@ -0,0 +1,88 @@
+package org.tron.core.db;
+
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.Set;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tron.core.Constant;
+import org.tron.core.capsule.BlockCapsule;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.capsule.TransactionRetCapsule;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.common.WrappedByteArray;
+import org.tron.protos.Protocol.InternalTransaction;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
+import org.tron.protos.Protocol.TransactionInfo;
+import org.tron.protos.contract.BalanceContract.TransferContract;
+import org.tron.protos.contract.SmartContractOuterClass.TriggerSmartContract;
+
+public class PendingManagerTest {
+
+  private static final byte[] OWNER = TransactionStoreTest.randomBytes(21);
+  private static final byte[] RECEIVER = TransactionStoreTest.randomBytes(21);
+  private static final byte[] CONTRACT = TransactionStoreTest.randomBytes(21);
+
+  @BeforeClass
+  public static void init() {
+    Args.setParam(new String[]{}, Constant.TEST_CONF);
+  }
+
+  @AfterClass
+  public static void destroy() {
+    Args.clearParam();
+  }
+
+  @Test
+  public void testTransferBlock() {
+    TransactionCapsule transfer = new TransactionCapsule(TransferContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(OWNER))
+        .setToAddress(ByteString.copyFrom(RECEIVER))
+        .setAmount(1).build(), ContractType.TransferContract);
+    BlockCapsule block = new BlockCapsule(0, ByteString.EMPTY, 1,
+        Arrays.asList(transfer.getInstance()));
+
+    // not applied yet
+    Assert.assertNull(PendingManager.touchedAccounts(block));
+
+    block.setResult(new TransactionRetCapsule(block));
+    Set<WrappedByteArray> touched = PendingManager.touchedAccounts(block);
+    Assert.assertEquals(2, touched.size());
+    Assert.assertTrue(touched.contains(WrappedByteArray.of(OWNER)));
+    Assert.assertTrue(touched.contains(WrappedByteArray.of(RECEIVER)));
+  }
+
+  @Test
+  public void testTriggerBlock() {
+    TransactionCapsule trigger = new TransactionCapsule(TriggerSmartContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(OWNER))
+        .setContractAddress(ByteString.copyFrom(CONTRACT)).build(),
+        ContractType.TriggerSmartContract);
+    BlockCapsule block = new BlockCapsule(0, ByteString.EMPTY, 1,
+        Arrays.asList(trigger.getInstance()));
+    TransactionRetCapsule result = new TransactionRetCapsule(block);
+    result.addTransactionInfo(TransactionInfo.newBuilder()
+        .addInternalTransactions(InternalTransaction.newBuilder()
+            .setCallerAddress(ByteString.copyFrom(CONTRACT))
+            .setTransferToAddress(ByteString.copyFrom(RECEIVER)))
+        .build());
+    block.setResult(result);
+
+    // the calls and transfers of the contract are unknown
+    Args.getInstance().setSaveInternalTx(false);
+    Assert.assertNull(PendingManager.touchedAccounts(block));
+
+    Args.getInstance().setSaveInternalTx(true);
+    try {
+      Set<WrappedByteArray> touched = PendingManager.touchedAccounts(block);
+      Assert.assertEquals(3, touched.size());
+      Assert.assertTrue(touched.contains(WrappedByteArray.of(OWNER)));
+      Assert.assertTrue(touched.contains(WrappedByteArray.of(CONTRACT)));
+      Assert.assertTrue(touched.contains(WrappedByteArray.of(RECEIVER)));
+    } finally {
+      Args.getInstance().setSaveInternalTx(false);
+    }
+  }
+}
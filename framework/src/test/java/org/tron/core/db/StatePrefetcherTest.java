@@ -0,0 +1,99 @@
+package org.tron.core.db;
+
+import com.google.protobuf.ByteString;
+import com.typesafe.config.ConfigFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tron.common.application.TronApplicationContext;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.ChainBaseManager;
+import org.tron.core.Constant;
+import org.tron.core.capsule.AccountCapsule;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.config.DefaultConfig;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.common.ReadCache;
+import org.tron.core.db2.core.Chainbase;
+import org.tron.core.db2.core.SnapshotRoot;
+import org.tron.protos.Protocol.AccountType;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
+import org.tron.protos.contract.BalanceContract.TransferContract;
+
+public class StatePrefetcherTest {
+
+  private static String dbPath = "output_StatePrefetcher_test";
+  private static TronApplicationContext context;
+  private static ChainBaseManager chainBaseManager;
+  private static ExecutorService executor;
+
+  static {
+    Args.setParam(new String[]{"--output-directory", dbPath}, Constant.TEST_CONF);
+    Args.getInstance().getStorage().setCacheSizeMapFromConfig(
+        ConfigFactory.parseString("storage.cache { account = 1m }"));
+    context = new TronApplicationContext(DefaultConfig.class);
+  }
+
+  @BeforeClass
+  public static void init() {
+    chainBaseManager = context.getBean(ChainBaseManager.class);
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterClass
+  public static void destroy() {
+    executor.shutdownNow();
+    Args.clearParam();
+    context.destroy();
+    FileUtil.deleteDir(new File(dbPath));
+  }
+
+  @Test
+  public void testPrefetch() throws InterruptedException {
+    List<byte[]> addresses = new ArrayList<>();
+    List<TransactionCapsule> txs = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      byte[] address = TransactionStoreTest.randomBytes(21);
+      addresses.add(address);
+      chainBaseManager.getAccountStore().put(address, new AccountCapsule(
+          ByteString.copyFrom(address), ByteString.copyFromUtf8("a" + i), AccountType.Normal));
+    }
+    for (int i = 0; i < addresses.size(); i++) {
+      // every account is both an owner and a receiver, so it is read once
+      txs.add(new TransactionCapsule(TransferContract.newBuilder()
+          .setOwnerAddress(ByteString.copyFrom(addresses.get(i)))
+          .setToAddress(ByteString.copyFrom(addresses.get((i + 1) % addresses.size())))
+          .setAmount(1)
+          .build(), ContractType.TransferContract));
+    }
+    byte[][] before = addresses.stream()
+        .map(address -> chainBaseManager.getAccountStore().get(address).getData())
+        .toArray(byte[][]::new);
+
+    ReadCache cache = ((SnapshotRoot) ((Chainbase) chainBaseManager.getAccountStore()
+        .getRevokingDB()).getHead().getRoot()).getCache();
+    cache.clear();
+
+    StatePrefetcher prefetcher = new StatePrefetcher(chainBaseManager, executor, 2);
+    Assert.assertEquals(addresses.size(), prefetcher.prefetch(txs));
+    Assert.assertEquals(0, prefetcher.prefetch(new ArrayList<>()));
+    Assert.assertEquals(addresses.size(), cache.size());
+
+    // the block then reads the accounts from the cache, and nothing is written
+    long hits = cache.getHitCount();
+    long misses = cache.getMissCount();
+    for (int i = 0; i < addresses.size(); i++) {
+      Assert.assertTrue(Arrays.equals(before[i],
+          chainBaseManager.getAccountStore().get(addresses.get(i)).getData()));
+    }
+    Assert.assertEquals(addresses.size(), cache.getHitCount() - hits);
+    Assert.assertEquals(misses, cache.getMissCount());
+  }
+}
@@ -0,0 +1,38 @@
+package org.tron.core.db;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransactionAdmissionTest {
+
+  @Test
+  public void testLockOf() {
+    TransactionAdmission admission = new TransactionAdmission();
+    byte[] owner = TransactionStoreTest.randomBytes(21);
+    Assert.assertSame(admission.lockOf(owner), admission.lockOf(owner.clone()));
+  }
+
+  @Test
+  public void testAwaitBlocks() throws InterruptedException {
+    TransactionAdmission admission = new TransactionAdmission();
+    admission.awaitBlocks();
+
+    admission.enterBlock();
+    admission.enterBlock();
+    CountDownLatch admitted = new CountDownLatch(1);
+    Thread thread = new Thread(() -> {
+      admission.awaitBlocks();
+      admitted.countDown();
+    });
+    thread.start();
+    Assert.assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+
+    admission.exitBlock();
+    Assert.assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+    admission.exitBlock();
+    Assert.assertTrue(admitted.await(5, TimeUnit.SECONDS));
+    thread.join();
+  }
+}
@@ -0,0 +1,113 @@
+package org.tron.core.db;
+
+import com.google.protobuf.ByteString;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
+import org.tron.protos.contract.BalanceContract.TransferContract;
+
+public class TransactionPoolTest {
+
+  private static TransactionCapsule newTransaction(String owner, long amount, long order,
+      long time) {
+    TransactionCapsule tx = new TransactionCapsule(TransferContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFromUtf8(owner))
+        .setAmount(amount)
+        .build(), ContractType.TransferContract);
+    tx.setOrder(order);
+    tx.setTime(time);
+    return tx;
+  }
+
+  @Test
+  public void testOrder() {
+    TransactionPool fifo = new TransactionPool(false);
+    TransactionPool sorted = new TransactionPool(true);
+    TransactionCapsule low = newTransaction("a", 1, 1, 0);
+    TransactionCapsule high = newTransaction("b", 2, 5, 0);
+    TransactionCapsule same = newTransaction("c", 3, 5, 0);
+    for (TransactionCapsule tx : new TransactionCapsule[]{low, high, same}) {
+      fifo.put(tx);
+      sorted.put(tx);
+    }
+
+    // changing the order of a pooled transaction does not move it
+    low.setOrder(10);
+    Assert.assertSame(low, fifo.poll());
+    Assert.assertSame(high, fifo.poll());
+    Assert.assertSame(same, fifo.poll());
+    Assert.assertNull(fifo.poll());
+
+    Assert.assertSame(high, sorted.poll());
+    Assert.assertSame(same, sorted.poll());
+    Assert.assertSame(low, sorted.poll());
+  }
+
+  @Test
+  public void testIndex() {
+    TransactionPool pool = new TransactionPool(false);
+    TransactionCapsule tx1 = newTransaction("a", 1, 0, 0);
+    TransactionCapsule tx2 = newTransaction("a", 2, 0, 0);
+    TransactionCapsule tx3 = newTransaction("b", 3, 0, 0);
+    pool.put(tx1);
+    pool.put(tx2);
+    pool.put(tx3);
+    pool.put(new TransactionCapsule(tx1.getInstance()));
+    Assert.assertEquals(3, pool.size());
+    Assert.assertEquals(tx1.getSerializedSize() + tx2.getSerializedSize()
+        + tx3.getSerializedSize(), pool.getBytes());
+
+    Assert.assertSame(tx2, pool.get(tx2.getTransactionId()));
+    Assert.assertTrue(pool.contains(new TransactionCapsule(tx3.getInstance())));
+    Assert.assertEquals(2, pool.getBySender(ByteString.copyFromUtf8("a").toByteArray()).size());
+
+    Assert.assertTrue(pool.remove(tx2));
+    Assert.assertFalse(pool.remove(tx2));
+    Assert.assertNull(pool.get(tx2.getTransactionId()));
+    Assert.assertEquals(1, pool.getBySender(ByteString.copyFromUtf8("a").toByteArray()).size());
+    Assert.assertEquals(tx1.getSerializedSize() + tx3.getSerializedSize(), pool.getBytes());
+
+    pool.clear();
+    Assert.assertTrue(pool.isEmpty());
+    Assert.assertEquals(0, pool.getBytes());
+  }
+
+  @Test
+  public void testEvict() {
+    TransactionCapsule tx1 = newTransaction("a", 1, 3, 0);
+    TransactionCapsule tx2 = newTransaction("b", 2, 1, 0);
+    TransactionCapsule tx3 = newTransaction("c", 3, 2, 0);
+    TransactionPool pool = new TransactionPool(true,
+        tx1.getSerializedSize() + tx2.getSerializedSize(), 0);
+    pool.put(tx1);
+    pool.put(tx2);
+    // tx2 has the lowest order
+    Assert.assertTrue(pool.offer(tx3));
+    Assert.assertEquals(2, pool.size());
+    Assert.assertNull(pool.get(tx2.getTransactionId()));
+
+    TransactionCapsule tx4 = newTransaction("d", 4, 0, 0);
+    Assert.assertFalse(pool.offer(tx4));
+    Assert.assertNull(pool.get(tx4.getTransactionId()));
+
+    TransactionPool perSender = new TransactionPool(false, 0, 2);
+    perSender.put(newTransaction("a", 1, 0, 0));
+    perSender.put(newTransaction("a", 2, 0, 0));
+    perSender.put(newTransaction("b", 3, 0, 0));
+    Assert.assertFalse(perSender.offer(newTransaction("a", 4, 0, 0)));
+    Assert.assertEquals(3, perSender.size());
+  }
+
+  @Test
+  public void testRemoveExpired() {
+    TransactionPool pool = new TransactionPool(true);
+    pool.put(newTransaction("a", 1, 1, 300));
+    pool.put(newTransaction("b", 2, 2, 100));
+    pool.put(newTransaction("c", 3, 3, 200));
+    Assert.assertEquals(2, pool.removeExpired(300));
+    Assert.assertEquals(1, pool.size());
+    Assert.assertEquals(300, pool.peek().getTime());
+    Assert.assertEquals(0, pool.removeExpired(300));
+  }
+}
@@ -184,6 +184,50 @@ public class TransactionStoreTest {
         trxStore.get(trx.getTransactionId().getBytes()).getInstance(), trx.getInstance());
   }
 
+  @Test
+  public void getTransactionByIndexTest() throws BadItemException {
+    final BlockStore blockStore = chainBaseManager.getBlockStore();
+    final TransactionStore trxStore = chainBaseManager.getTransactionStore();
+    String key = "f31db24bfbd1a2ef19beddca0a0fa37632eded9ac666a05d3bd925f01dde1f62";
+
+    BlockCapsule blockCapsule =
+        new BlockCapsule(
+            3,
+            Sha256Hash.wrap(chainBaseManager.getGenesisBlockId().getByteString()),
+            3,
+            ByteString.copyFrom(
+                ECKey.fromPrivate(
+                    ByteArray.fromHexString(key)).getAddress()));
+    TransactionCapsule[] trxs = new TransactionCapsule[3];
+    for (int i = 0; i < trxs.length; i++) {
+      TransferContract tc =
+          TransferContract.newBuilder()
+              .setAmount(20 + i)
+              .setOwnerAddress(ByteString.copyFromUtf8("aaa"))
+              .setToAddress(ByteString.copyFromUtf8("bbb"))
+              .build();
+      trxs[i] = new TransactionCapsule(tc, ContractType.TransferContract);
+      blockCapsule.addTransaction(trxs[i]);
+      trxs[i].setBlockNum(blockCapsule.getNum());
+      trxs[i].setIndexInBlock(i);
+    }
+    blockStore.put(blockCapsule.getBlockId().getBytes(), blockCapsule);
+
+    // the index points at the transaction
+    trxStore.put(trxs[2].getTransactionId().getBytes(), trxs[2]);
+    Assert.assertEquals(2, trxStore.getIndexInBlock(trxs[2].getTransactionId().getBytes()));
+    Assert.assertEquals(3, trxStore.getBlockNumber(trxs[2].getTransactionId().getBytes()));
+    TransactionCapsule result = trxStore.get(trxs[2].getTransactionId().getBytes());
+    Assert.assertEquals(trxs[2].getInstance(), result.getInstance());
+    Assert.assertEquals(3, result.getBlockNum());
+
+    // a wrong index falls back to scanning the block
+    trxs[1].setIndexInBlock(0);
+    trxStore.put(trxs[1].getTransactionId().getBytes(), trxs[1]);
+    Assert.assertEquals(trxs[1].getInstance(),
+        trxStore.get(trxs[1].getTransactionId().getBytes()).getInstance());
+  }
+
   /**
    * put and get CreateAccountTransaction.
    */
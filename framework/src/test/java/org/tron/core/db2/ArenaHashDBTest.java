@@ -0,0 +1,55 @@
+package org.tron.core.db2;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.core.db2.common.ArenaHashDB;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.Value;
+import org.tron.core.db2.common.Value.Operator;
+
+public class ArenaHashDBTest {
+
+  private static Key key(String s) {
+    return Key.of(s.getBytes());
+  }
+
+  @Test
+  public void testPutGetRemove() {
+    ArenaHashDB db = new ArenaHashDB("test");
+    Assert.assertTrue(db.isEmpty());
+    db.put(key("a"), Value.of(Operator.PUT, "1".getBytes()));
+    db.put(key("b"), Value.of(Operator.DELETE, null));
+    db.put(key("a"), Value.of(Operator.PUT, "2".getBytes()));
+    Assert.assertEquals(2, db.size());
+    Assert.assertArrayEquals("2".getBytes(), db.get(key("a")).getBytes());
+    Assert.assertEquals(Operator.DELETE, db.get(key("b")).getOperator());
+    Assert.assertNull(db.get(key("b")).getBytes());
+
+    db.remove(key("a"));
+    Assert.assertNull(db.get(key("a")));
+    Assert.assertEquals(1, db.size());
+  }
+
+  @Test
+  public void testGrowAndCompact() {
+    ArenaHashDB db = new ArenaHashDB("test");
+    Map<String, String> expected = new HashMap<>();
+    Random random = new Random(0);
+    for (int i = 0; i < 50_000; i++) {
+      String k = "key" + random.nextInt(2_000);
+      String v = "value" + i;
+      db.put(key(k), Value.of(Operator.PUT, v.getBytes()));
+      expected.put(k, v);
+    }
+
+    Assert.assertEquals(expected.size(), db.size());
+    expected.forEach((k, v) -> Assert.assertArrayEquals(v.getBytes(), db.get(key(k)).getBytes()));
+    Map<String, String> actual = new HashMap<>();
+    db.forEach(e -> actual.put(new String(e.getKey().getBytes()),
+        new String(e.getValue().getBytes())));
+    Assert.assertEquals(expected, actual);
+  }
+}
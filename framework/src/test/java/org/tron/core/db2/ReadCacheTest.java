@@ -0,0 +1,109 @@
+package org.tron.core.db2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.core.db2.common.ReadCache;
+import org.tron.core.db2.common.WrappedByteArray;
+
+public class ReadCacheTest {
+
+  private static byte[] bytes(String s) {
+    return s.getBytes();
+  }
+
+  @Test
+  public void testFillAndGet() {
+    ReadCache cache = new ReadCache("test", 1024 * 1024);
+    Assert.assertNull(cache.get(bytes("k")));
+    cache.fill(bytes("k"), bytes("v"), cache.version(bytes("k")));
+    Assert.assertArrayEquals(bytes("v"), cache.get(bytes("k")));
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+
+    // reported once, the totals are kept
+    Assert.assertEquals(1, cache.resetHitCount());
+    Assert.assertEquals(1, cache.resetMissCount());
+    Assert.assertEquals(0, cache.resetHitCount());
+    Assert.assertEquals(0, cache.resetMissCount());
+    Assert.assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void testStaleFillIsDropped() {
+    ReadCache cache = new ReadCache("test", 1024 * 1024);
+    long version = cache.version(bytes("k"));
+    cache.put(bytes("k"), bytes("new"));
+    cache.remove(bytes("k"));
+    cache.fill(bytes("k"), bytes("old"), version);
+    Assert.assertNull(cache.get(bytes("k")));
+  }
+
+  @Test
+  public void testPutAllUpdatesAndDeletes() {
+    ReadCache cache = new ReadCache("test", 1024 * 1024);
+    cache.fill(bytes("a"), bytes("1"), cache.version(bytes("a")));
+    cache.fill(bytes("b"), bytes("2"), cache.version(bytes("b")));
+    Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
+    batch.put(WrappedByteArray.of(bytes("a")), WrappedByteArray.of(bytes("3")));
+    batch.put(WrappedByteArray.of(bytes("b")), WrappedByteArray.of(null));
+    cache.putAll(batch);
+    Assert.assertArrayEquals(bytes("3"), cache.get(bytes("a")));
+    Assert.assertNull(cache.get(bytes("b")));
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testByteBudgetAndAdmission() {
+    ReadCache cache = new ReadCache("test", 4096);
+    byte[] value = new byte[512];
+    for (int i = 0; i < 100; i++) {
+      byte[] key = bytes("hot" + i % 4);
+      cache.get(key);
+      cache.fill(key, value, cache.version(key));
+    }
+    // a cold scan must not push the frequently read rows out
+    for (int i = 0; i < 100; i++) {
+      cache.fill(bytes("cold" + i), value, cache.version(bytes("cold" + i)));
+    }
+    Assert.assertTrue(cache.getUsedBytes() <= cache.getMaxBytes());
+    for (int i = 0; i < 4; i++) {
+      Assert.assertNotNull(cache.get(bytes("hot" + i)));
+    }
+    Assert.assertTrue(cache.getRejectCount() > 0);
+  }
+
+  @Test
+  public void testConcurrentSegments() throws Exception {
+    ReadCache cache = new ReadCache("test", 64 * 1024 * 1024);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            byte[] key = bytes(thread + "-" + i);
+            Assert.assertNull(cache.get(key));
+            cache.fill(key, key, cache.version(key));
+            Assert.assertArrayEquals(key, cache.get(key));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(4000, cache.size());
+    Assert.assertEquals(4000, cache.getHitCount());
+    Assert.assertEquals(4000, cache.getMissCount());
+  }
+}
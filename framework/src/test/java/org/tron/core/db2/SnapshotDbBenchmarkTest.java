@@ -0,0 +1,79 @@
+package org.tron.core.db2;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.tron.core.db2.common.ArenaHashDB;
+import org.tron.core.db2.common.DB;
+import org.tron.core.db2.common.HashDB;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.Value;
+import org.tron.core.db2.common.Value.Operator;
+
+/**
+ * Compare the allocation and gc cost of the snapshot layer DBs, run manually with a fixed heap,
+ * e.g. -Xmx2g -XX:+UseG1GC.
+ */
+@Slf4j
+@Ignore
+public class SnapshotDbBenchmarkTest {
+
+  private static final int LAYERS = 256;
+  private static final int WRITES_PER_LAYER = 5_000;
+  private static final int ROUNDS = 20;
+
+  @Test
+  public void compare() {
+    run("warmup-hash", () -> new HashDB("bench"), true);
+    run("warmup-arena", () -> new ArenaHashDB("bench"), false);
+    run("hash", () -> new HashDB("bench"), true);
+    run("arena", () -> new ArenaHashDB("bench"), false);
+  }
+
+  // keep LAYERS layers alive like the snapshot stack and write accounts sized rows into them
+  private void run(String name, Supplier<DB<Key, Value>> factory, boolean copy) {
+    Random random = new Random(0);
+    byte[] value = new byte[200];
+    @SuppressWarnings("unchecked")
+    DB<Key, Value>[] layers = new DB[LAYERS];
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    long gcCount = gcCount();
+    long gcTime = gcTime();
+    long start = System.nanoTime();
+    for (int i = 0; i < LAYERS * ROUNDS; i++) {
+      DB<Key, Value> layer = factory.get();
+      for (int j = 0; j < WRITES_PER_LAYER; j++) {
+        byte[] key = new byte[21];
+        random.nextBytes(key);
+        random.nextBytes(value);
+        if (copy) {
+          layer.put(Key.copyOf(key), Value.copyOf(Operator.PUT, value));
+        } else {
+          layer.put(Key.of(key), Value.of(Operator.PUT, value));
+        }
+      }
+      layers[i % LAYERS] = layer;
+    }
+
+    logger.info("{}: cost {} ms, allocated {} MB, gc count {}, gc time {} ms", name,
+        (System.nanoTime() - start) / 1_000_000,
+        (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated) >> 20,
+        gcCount() - gcCount, gcTime() - gcTime);
+  }
+
+  private static long gcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+  }
+
+  private static long gcTime() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+  }
+}
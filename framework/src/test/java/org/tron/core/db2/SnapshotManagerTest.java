@@ -1,6 +1,13 @@
 package org.tron.core.db2;
 
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Longs;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.After;
 import org.junit.Assert;
@@ -13,8 +20,14 @@ import org.tron.common.utils.FileUtil;
 import org.tron.core.Constant;
 import org.tron.core.config.DefaultConfig;
 import org.tron.core.config.args.Args;
+import org.tron.core.db.common.DbSourceInter;
 import org.tron.core.db2.RevokingDbWithCacheNewValueTest.TestRevokingTronStore;
 import org.tron.core.db2.SnapshotRootTest.ProtoCapsuleTest;
+import org.tron.core.db2.common.DB;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.Value;
+import org.tron.core.db2.common.Value.Operator;
+import org.tron.core.db2.core.Chainbase;
 import org.tron.core.db2.core.SnapshotManager;
 import org.tron.core.exception.BadItemException;
 import org.tron.core.exception.ItemNotFoundException;
@@ -68,9 +81,76 @@ public class SnapshotManagerTest {
       }
     }
 
+    revokingDatabase.resetCheckpointBytes();
     revokingDatabase.flush();
     Assert.assertEquals(new ProtoCapsuleTest("refresh10".getBytes()),
         tronDatabase.get(protoCapsule.getData()));
+    Assert.assertTrue(revokingDatabase.resetCheckpointBytes() > 0);
+    Assert.assertEquals(0, revokingDatabase.resetCheckpointBytes());
+  }
+
+  @Test
+  public synchronized void testAsyncRefresh() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    Args.getInstance().getStorage().setAsyncFlush(true);
+    try {
+      revokingDatabase.setMaxFlushCount(1);
+      revokingDatabase.setUnChecked(false);
+      revokingDatabase.setMaxSize(2);
+      ProtoCapsuleTest protoCapsule = new ProtoCapsuleTest("async".getBytes());
+      for (int i = 1; i < 11; i++) {
+        ProtoCapsuleTest testProtoCapsule = new ProtoCapsuleTest(("async" + i).getBytes());
+        try (ISession tmpSession = revokingDatabase.buildSession()) {
+          tronDatabase.put(protoCapsule.getData(), testProtoCapsule);
+          tmpSession.commit();
+        }
+        Assert.assertEquals(testProtoCapsule, tronDatabase.get(protoCapsule.getData()));
+      }
+
+      // popping every session waits for the background flushes, the root holds async7
+      while (revokingDatabase.size() != 0) {
+        revokingDatabase.pop();
+      }
+      Assert.assertEquals(new ProtoCapsuleTest("async7".getBytes()),
+          tronDatabase.get(protoCapsule.getData()));
+    } finally {
+      Args.getInstance().getStorage().setAsyncFlush(false);
+    }
+  }
+
+  @Test
+  public synchronized void testRangeScan() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    revokingDatabase.setMaxFlushCount(0);
+    revokingDatabase.setUnChecked(false);
+    revokingDatabase.setMaxSize(2);
+    for (int i = 0; i < 6; i++) {
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        tronDatabase.put(("scan" + i).getBytes(), new ProtoCapsuleTest(("value" + i).getBytes()));
+        tmpSession.commit();
+      }
+    }
+    // the oldest rows are flushed to the root, shadow and delete some of them in a new layer
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put("scan1".getBytes(), new ProtoCapsuleTest("new1".getBytes()));
+      tronDatabase.delete("scan2".getBytes());
+      tmpSession.commit();
+    }
+
+    List<String> page = new ArrayList<>();
+    tronDatabase.getRevokingDB().getNext("scan1".getBytes(), 3).forEach((k, v) ->
+        page.add(new String(k) + "=" + new String(v)));
+    Assert.assertEquals(Arrays.asList("scan1=new1", "scan3=value3", "scan4=value4"), page);
+
+    List<String> all = new ArrayList<>();
+    tronDatabase.getRevokingDB().iterator().forEachRemaining(e -> all.add(new String(e.getKey())));
+    Assert.assertEquals(Arrays.asList("scan0", "scan1", "scan3", "scan4", "scan5"), all);
   }
 
   @Test
@@ -93,4 +173,98 @@ public class SnapshotManagerTest {
         tronDatabase.get(protoCapsule.getData()));
 
   }
+
+  @Test
+  public synchronized void testIndexedRead() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    ProtoCapsuleTest protoCapsule = new ProtoCapsuleTest("index".getBytes());
+    for (int i = 1; i < 4; i++) {
+      ProtoCapsuleTest testProtoCapsule = new ProtoCapsuleTest(("index" + i).getBytes());
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        tronDatabase.put(protoCapsule.getData(), testProtoCapsule);
+        tmpSession.commit();
+      }
+    }
+    Assert.assertEquals(new ProtoCapsuleTest("index3".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+
+    // a solidity read must not see the layers above the solidity snapshot
+    revokingDatabase.updateSolidity(2);
+    revokingDatabase.setCursor(Chainbase.Cursor.SOLIDITY);
+    Assert.assertEquals(new ProtoCapsuleTest("index2".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+    revokingDatabase.setCursor(Chainbase.Cursor.HEAD);
+
+    revokingDatabase.pop();
+    Assert.assertEquals(new ProtoCapsuleTest("index2".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+    tronDatabase.delete(protoCapsule.getData());
+    Assert.assertNull(tronDatabase.get(protoCapsule.getData()));
+    revokingDatabase.pop();
+    Assert.assertEquals(new ProtoCapsuleTest("index1".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+  }
+
+  @Test
+  public synchronized void testGraft() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    byte[] kept = "graft-kept".getBytes();
+    byte[] deleted = "graft-deleted".getBytes();
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put(deleted, new ProtoCapsuleTest("old".getBytes()));
+      tmpSession.commit();
+    }
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put(kept, new ProtoCapsuleTest("new".getBytes()));
+      tronDatabase.delete(deleted);
+      tmpSession.commit();
+    }
+
+    Map<String, DB<Key, Value>> detached = revokingDatabase.popDetached();
+    Assert.assertNull(tronDatabase.get(kept));
+    Assert.assertEquals(new ProtoCapsuleTest("old".getBytes()), tronDatabase.get(deleted));
+
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      revokingDatabase.graft(detached);
+      tmpSession.commit();
+    }
+    Assert.assertEquals(new ProtoCapsuleTest("new".getBytes()), tronDatabase.get(kept));
+    Assert.assertNull(tronDatabase.get(deleted));
+
+    revokingDatabase.pop();
+    Assert.assertNull(tronDatabase.get(kept));
+  }
+
+  @Test
+  public synchronized void testCheckReplaysLatestEpoch() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    String dbName = "testSnapshotManager-test";
+    byte[] key = "check".getBytes();
+    DbSourceInter<byte[]> source = revokingDatabase.getCheckTmpStore().getDbSource();
+    byte[] encodedName = SnapshotManager.simpleEncode(dbName);
+    Map<byte[], byte[]> rows = new HashMap<>();
+    // epoch 1 is obsolete and epoch 3 was never published, only epoch 2 is replayed
+    rows.put(Bytes.concat(SnapshotManager.checkpointPrefix(1), encodedName, key),
+        Value.of(Operator.PUT, "check1".getBytes()).encode());
+    rows.put(Bytes.concat(SnapshotManager.checkpointPrefix(2), encodedName, key),
+        Value.of(Operator.PUT, "check2".getBytes()).encode());
+    rows.put(Bytes.concat(SnapshotManager.checkpointPrefix(3), encodedName, key),
+        Value.of(Operator.PUT, "check3".getBytes()).encode());
+    rows.put(SnapshotManager.CHECKPOINT_EPOCH_KEY, Longs.toByteArray(2));
+    source.updateByBatch(rows);
+
+    revokingDatabase.setUnChecked(true);
+    revokingDatabase.check();
+    Assert.assertEquals(new ProtoCapsuleTest("check2".getBytes()), tronDatabase.get(key));
+    Assert.assertFalse(source.iterator().hasNext());
+  }
 }
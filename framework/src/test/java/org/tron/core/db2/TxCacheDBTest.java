@@ -0,0 +1,124 @@
+package org.tron.core.db2;
+
+import com.google.common.primitives.Longs;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.Constant;
+import org.tron.core.config.args.Args;
+import org.tron.core.db.TransactionStoreTest;
+import org.tron.core.db2.common.TxCacheDB;
+
+public class TxCacheDBTest {
+
+  private static final String OUTPUT_DIR = "output_tx_cache_db_test";
+  private static final int BLOCK_COUNT = 70_000;
+  private static final Path SNAPSHOT = Paths.get(OUTPUT_DIR, "database",
+      "trans-cache-test-reload", "tx-cache.snapshot");
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"-d", OUTPUT_DIR}, Constant.TEST_CONF);
+  }
+
+  @After
+  public void destroy() {
+    Args.clearParam();
+    FileUtil.deleteDir(new File(OUTPUT_DIR));
+  }
+
+  @Test
+  public void testWindow() {
+    TxCacheDB db = new TxCacheDB("trans-cache-test-window");
+    byte[] tx1 = TransactionStoreTest.randomBytes(32);
+    byte[] tx2 = TransactionStoreTest.randomBytes(32);
+    byte[] tx3 = TransactionStoreTest.randomBytes(32);
+    db.put(tx1, Longs.toByteArray(1));
+    db.put(tx2, Longs.toByteArray(2));
+    // put again by a later block
+    db.put(tx2, Longs.toByteArray(3));
+    Assert.assertEquals(2, db.size());
+    Assert.assertEquals(3, Longs.fromByteArray(db.get(tx2)));
+
+    // no transaction in the block reusing the bucket of block 1
+    db.put(tx3, Longs.toByteArray(BLOCK_COUNT + 2));
+    Assert.assertNull(db.get(tx1));
+    Assert.assertEquals(3, Longs.fromByteArray(db.get(tx2)));
+    Assert.assertEquals(2, db.size());
+
+    // out of the window
+    db.put(tx1, Longs.toByteArray(2));
+    Assert.assertNull(db.get(tx1));
+
+    db.put(tx1, Longs.toByteArray(BLOCK_COUNT + 3));
+    Assert.assertNull(db.get(tx2));
+    Iterator<Entry<byte[], byte[]>> iterator = db.iterator();
+    int count = 0;
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    Assert.assertEquals(2, count);
+    db.close();
+  }
+
+  @Test
+  public void testReload() throws IOException {
+    TxCacheDB db = new TxCacheDB("trans-cache-test-reload");
+    byte[][] txs = new byte[100][];
+    for (int i = 0; i < txs.length; i++) {
+      txs[i] = TransactionStoreTest.randomBytes(32);
+      db.put(txs[i], Longs.toByteArray(i / 10));
+    }
+    db.remove(txs[0]);
+    db.close();
+
+    // from the snapshot of the clean shutdown
+    db = new TxCacheDB("trans-cache-test-reload");
+    Assert.assertEquals(txs.length - 1, db.size());
+    Assert.assertNull(db.get(txs[0]));
+    for (int i = 1; i < txs.length; i++) {
+      Assert.assertEquals(i / 10, Longs.fromByteArray(db.get(txs[i])));
+    }
+    db.close();
+
+    // from persistent storage after a crash, the removed id stays removed
+    Files.delete(SNAPSHOT);
+    db = new TxCacheDB("trans-cache-test-reload");
+    Assert.assertEquals(txs.length - 1, db.size());
+    Assert.assertNull(db.get(txs[0]));
+    db.close();
+  }
+
+  @Test
+  public void testStaleSnapshot() throws IOException {
+    TxCacheDB db = new TxCacheDB("trans-cache-test-reload");
+    byte[] tx1 = TransactionStoreTest.randomBytes(32);
+    db.put(tx1, Longs.toByteArray(1));
+    db.close();
+    Path stale = Paths.get(OUTPUT_DIR, "stale.snapshot");
+    Files.copy(SNAPSHOT, stale);
+
+    // the store moves on, e.g. run by a version without snapshots
+    db = new TxCacheDB("trans-cache-test-reload");
+    byte[] tx2 = TransactionStoreTest.randomBytes(32);
+    db.put(tx2, Longs.toByteArray(2));
+    db.close();
+
+    Files.copy(stale, SNAPSHOT, StandardCopyOption.REPLACE_EXISTING);
+    db = new TxCacheDB("trans-cache-test-reload");
+    Assert.assertEquals(2, db.size());
+    Assert.assertEquals(2, Longs.fromByteArray(db.get(tx2)));
+    db.close();
+  }
+}